@@ -0,0 +1,36 @@
+package com.naz1k1.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naz1k1.config.ConverterProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * 多节点部署的默认队列和存储：基于 converter.cluster.directory 指定的共享目录
+ * <p>
+ * 注册了 {@link JobQueue} 或 {@link SharedStorage} 的其他实现时不创建对应的默认实现。
+ * 作为自动配置在 META-INF/spring.factories 中注册，在所有用户 Bean 之后处理，缺失条件才不受扫描顺序影响；
+ * 组件扫描会跳过已注册为自动配置的类。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "converter.cluster", name = "enabled", havingValue = "true")
+public class ClusterConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(JobQueue.class)
+    public JobQueue directoryJobQueue(ConverterProperties properties, ObjectMapper objectMapper) throws IOException {
+        ConverterProperties.Cluster cluster = properties.getCluster();
+        return new DirectoryJobQueue(cluster.getDirectory().resolve("queue"),
+                cluster.getPollInterval(), cluster.getClaimTimeout(), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SharedStorage.class)
+    public SharedStorage directoryStorage(ConverterProperties properties) throws IOException {
+        return new DirectoryStorage(properties.getCluster().getDirectory().resolve("objects"));
+    }
+}
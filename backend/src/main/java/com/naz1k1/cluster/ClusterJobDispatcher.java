@@ -0,0 +1,288 @@
+package com.naz1k1.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.JobStatus;
+import com.naz1k1.exception.ConversionException;
+import com.naz1k1.exception.TooManyJobsException;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.ConversionProgress;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.WaveformPeaks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多节点部署时的任务分发与查询：输入写入共享存储，任务发布到共享队列，状态记录写入共享存储
+ * <p>
+ * 任务状态以共享存储中的记录为准，任一节点都可按任务ID还原任务，因此查询、SSE 推送和结果下载
+ * 不依赖提交任务的节点，该节点重启后任务也不会丢失。本节点跟踪被查询过的未结束任务，
+ * 按进度推送间隔读取记录更新，成功后把结果取回本地供下载；共享存储中的对象在结果过期后由任一节点清理。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "converter.cluster", name = "enabled", havingValue = "true")
+public class ClusterJobDispatcher {
+
+    private final JobQueue queue;
+    private final SharedStorage storage;
+    private final ObjectMapper objectMapper;
+    private final ConverterProperties.Cluster config;
+    private final ConverterProperties.Jobs jobsConfig;
+    /** 本节点跟踪的未结束任务 */
+    private final Map<String, ConversionJob> tracked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ClusterJobDispatcher(JobQueue queue,
+                                SharedStorage storage,
+                                ObjectMapper objectMapper,
+                                ConverterProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.queue = queue;
+        this.storage = storage;
+        this.objectMapper = objectMapper;
+        this.config = properties.getCluster();
+        this.jobsConfig = properties.getJobs();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = jobsConfig.getProgressInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("converter.cluster.queue.depth", this, ClusterJobDispatcher::queueDepth)
+                .description("共享队列中等待领取的转换任务数")
+                .register(meterRegistry);
+        Gauge.builder("converter.cluster.tracked", tracked, Map::size)
+                .description("本节点跟踪的未结束转换任务数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 分发任务，成功后调用方可删除本地输入文件
+     *
+     * @param job 输入已保存到本地的任务
+     * @throws TooManyJobsException 当共享队列已满时抛出
+     * @throws ConversionException  当写入共享存储或队列失败时抛出
+     */
+    public void dispatch(ConversionJob job) {
+        if (queueDepth() >= config.getQueueCapacity()) {
+            throw new TooManyJobsException("转换任务过多，请稍后重试");
+        }
+
+        String inputKey = ClusterKeys.input(job.getId(), job.getVideoFile());
+        JobTicket ticket = JobTicket.builder()
+                .jobId(job.getId())
+                .originalFileName(job.getOriginalFileName())
+                .options(job.getOptions())
+                .inputKey(inputKey)
+                .estimatedCost(job.getEstimatedCost())
+                .fastLane(job.isFastLane())
+                .createdAt(job.getCreatedAt())
+                .build();
+        JobRecord record = new JobRecord();
+        record.setJobId(job.getId());
+        record.setStatus(JobStatus.QUEUED);
+        record.setTicket(ticket);
+        record.setUpdatedAt(System.currentTimeMillis());
+        try {
+            storage.put(inputKey, job.getVideoFile());
+            storage.write(ClusterKeys.record(job.getId()), objectMapper.writeValueAsBytes(record));
+            tracked.put(job.getId(), job);
+            queue.publish(ticket);
+        } catch (IOException e) {
+            tracked.remove(job.getId());
+            deleteQuietly(ClusterKeys.record(job.getId()));
+            deleteQuietly(inputKey);
+            throw new ConversionException("提交转换任务失败", e);
+        }
+    }
+
+    /**
+     * 按共享存储中的记录还原任务，用于查询在其他节点提交或本节点重启前提交的任务
+     *
+     * @param jobId 任务ID
+     * @return Optional<ConversionJob> 还原的任务，记录不存在时为空；未结束的任务此后由本节点跟踪更新
+     * @throws ConversionException 当读取记录或取回结果失败时抛出
+     */
+    public Optional<ConversionJob> load(String jobId) {
+        try {
+            Optional<JobRecord> record = readRecord(jobId);
+            if (!record.isPresent() || record.get().getTicket() == null) {
+                return Optional.empty();
+            }
+            JobTicket ticket = record.get().getTicket();
+            ConversionJob job = tracked.computeIfAbsent(jobId, id -> new ConversionJob(
+                    id, ticket.getOriginalFileName(), ticket.getOptions(), null,
+                    ticket.getEstimatedCost(), ticket.isFastLane(), null, ticket.getCreatedAt()));
+            update(job, record.get());
+            return Optional.of(job);
+        } catch (IOException e) {
+            throw new ConversionException("读取任务状态失败: " + jobId, e);
+        }
+    }
+
+    /**
+     * 读取各任务的状态记录，更新进度，结束的任务取回结果后停止跟踪
+     */
+    private void refresh() {
+        tracked.values().forEach(job -> {
+            try {
+                if (job.getStatus().isFinished()) {
+                    // 已在本地按超时处理
+                    tracked.remove(job.getId());
+                    return;
+                }
+                Optional<JobRecord> record = readRecord(job.getId());
+                if (record.isPresent()) {
+                    update(job, record.get());
+                } else {
+                    tracked.remove(job.getId());
+                    job.markFailed("任务状态已丢失");
+                    log.warn("共享存储中的任务记录不存在 - 任务ID: {}", job.getId());
+                }
+            } catch (IOException | RuntimeException e) {
+                // 异常会终止定时任务，记录后继续下一轮
+                log.warn("读取任务状态失败 - 任务ID: {}", job.getId(), e);
+            }
+        });
+    }
+
+    /**
+     * 按记录更新任务，查询线程和定时刷新可能同时更新同一任务，在任务上同步以免重复取回结果
+     */
+    private void update(ConversionJob job, JobRecord record) throws IOException {
+        synchronized (job) {
+            applyRecord(job, record);
+        }
+    }
+
+    private void applyRecord(ConversionJob job, JobRecord record) throws IOException {
+        if (job.getStatus().isFinished()) {
+            return;
+        }
+        ConversionProgress progress = job.getProgress();
+        if (record.isStarted() && !progress.isStarted()) {
+            progress.start(record.getDurationMicros());
+        }
+        progress.advance(record.getFramesProcessed() - progress.getFramesProcessed(),
+                record.getEncodedMicros() - progress.getEncodedMicros());
+
+        long finishedAt = record.getFinishedAt() != null ? record.getFinishedAt() : System.currentTimeMillis();
+        if (record.getStatus() == JobStatus.RUNNING && job.getStatus() == JobStatus.QUEUED) {
+            job.markRunning();
+        } else if (record.getStatus() == JobStatus.SUCCEEDED) {
+            Path audioFile = Files.createTempFile("audio-", "." + job.getOptions().getFormat().getExtension());
+            try {
+                storage.get(record.getOutputKey(), audioFile);
+                WaveformPeaks peaks = null;
+                if (record.getPeaksKey() != null) {
+                    peaks = storage.read(record.getPeaksKey())
+                            .map(WaveformPeaks::fromDat)
+                            .orElseThrow(() -> new IOException("波形峰值不存在: " + record.getPeaksKey()));
+                }
+                job.markSucceeded(new ConversionResult(audioFile, job.getOptions().getFormat(), peaks), finishedAt);
+            } catch (IOException e) {
+                Files.deleteIfExists(audioFile);
+                throw e;
+            }
+            tracked.remove(job.getId());
+            log.info("转换任务完成 - 任务ID: {}, 工作节点: {}", job.getId(), record.getWorker());
+        } else if (record.getStatus() == JobStatus.FAILED) {
+            job.markFailed(record.getErrorMessage(), finishedAt);
+            tracked.remove(job.getId());
+            log.warn("转换任务失败 - 任务ID: {}, 工作节点: {}", job.getId(), record.getWorker());
+        }
+    }
+
+    /**
+     * 清理共享存储：删除结果已过期任务的记录、输入和输出，超过 job-timeout 仍未结束的任务记为失败
+     * <p>
+     * 各节点都会执行，删除和写入失败记录均可重复执行。超时的任务若仍在某个节点上执行，
+     * 其最终状态会覆盖失败记录。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredRecords() {
+        long now = System.currentTimeMillis();
+        try {
+            for (String key : storage.list(ClusterKeys.RECORDS)) {
+                Optional<byte[]> data = storage.read(key);
+                if (!data.isPresent()) {
+                    continue;
+                }
+                JobRecord record = objectMapper.readValue(data.get(), JobRecord.class);
+                if (record.getFinishedAt() == null) {
+                    if (record.getTicket() != null
+                            && record.getTicket().getCreatedAt() < now - config.getJobTimeout().toMillis()) {
+                        log.warn("转换任务超时 - 任务ID: {}, 状态: {}", record.getJobId(), record.getStatus());
+                        record.setStatus(JobStatus.FAILED);
+                        record.setErrorMessage("转换任务超时");
+                        record.setUpdatedAt(now);
+                        record.setFinishedAt(now);
+                        storage.write(key, objectMapper.writeValueAsBytes(record));
+                        deleteQuietly(record.getTicket().getInputKey());
+                    }
+                } else if (record.getFinishedAt() < now - jobsConfig.getResultTtl().toMillis()) {
+                    log.debug("清理过期任务的共享对象: {}", record.getJobId());
+                    if (record.getOutputKey() != null) {
+                        deleteQuietly(record.getOutputKey());
+                    }
+                    if (record.getPeaksKey() != null) {
+                        deleteQuietly(record.getPeaksKey());
+                    }
+                    if (record.getTicket() != null) {
+                        deleteQuietly(record.getTicket().getInputKey());
+                    }
+                    deleteQuietly(key);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("清理共享存储失败", e);
+        }
+    }
+
+    private Optional<JobRecord> readRecord(String jobId) throws IOException {
+        Optional<byte[]> data = storage.read(ClusterKeys.record(jobId));
+        return data.isPresent()
+                ? Optional.of(objectMapper.readValue(data.get(), JobRecord.class))
+                : Optional.empty();
+    }
+
+    private int queueDepth() {
+        try {
+            return queue.size();
+        } catch (IOException e) {
+            log.warn("读取共享队列失败", e);
+            return 0;
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            storage.delete(key);
+        } catch (IOException e) {
+            log.warn("清理共享存储对象失败: {}", key, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
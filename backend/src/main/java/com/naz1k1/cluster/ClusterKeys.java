@@ -0,0 +1,41 @@
+package com.naz1k1.cluster;
+
+import java.nio.file.Path;
+
+/**
+ * 共享存储中的对象键
+ */
+final class ClusterKeys {
+    /** 状态记录的键前缀 */
+    static final String RECORDS = "jobs/";
+
+    private ClusterKeys() {
+    }
+
+    /**
+     * 输入视频的键，保留本地文件的扩展名
+     */
+    static String input(String jobId, Path videoFile) {
+        return "inputs/" + jobId + extension(videoFile.getFileName().toString());
+    }
+
+    static String output(String jobId, String extension) {
+        return "outputs/" + jobId + "." + extension;
+    }
+
+    static String peaks(String jobId) {
+        return "peaks/" + jobId + ".dat";
+    }
+
+    /**
+     * @return String 文件名中以点开头的扩展名，没有扩展名时为空字符串
+     */
+    static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot) : "";
+    }
+
+    static String record(String jobId) {
+        return RECORDS + jobId + ".json";
+    }
+}
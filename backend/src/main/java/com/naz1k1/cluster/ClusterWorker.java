@@ -0,0 +1,291 @@
+package com.naz1k1.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.JobStatus;
+import com.naz1k1.exception.ConversionException;
+import com.naz1k1.model.ConversionProgress;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.service.ConverterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多节点部署时的工作节点：从共享队列领取任务执行转换，结果和状态写回共享存储
+ * <p>
+ * 工作线程数由 converter.cluster.workers 配置，并从本节点的本地工作线程中扣除，
+ * 增加节点即可线性扩展转换能力。
+ * 执行中的任务按进度推送间隔写入状态记录并续期领取租约；节点失效后租约过期，任务由其他节点重新领取。
+ * 领取到已结束的任务（如续期不及时被放回队列、或已按超时处理）时直接确认，不重复执行。
+ * 租约已过期的执行节点不再写入进度和失败记录，也不删除共享存储中的输入，交由重新领取的节点处理。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "converter.cluster", name = "enabled", havingValue = "true")
+public class ClusterWorker {
+
+    private final ConverterService converterService;
+    private final JobQueue queue;
+    private final SharedStorage storage;
+    private final ObjectMapper objectMapper;
+    private final ConverterProperties.Cluster config;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    /** 执行中的任务，状态记录的写入在各任务的进度对象上同步 */
+    private final Map<String, ActiveJob> active = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean shutdown;
+
+    public ClusterWorker(ConverterService converterService,
+                         JobQueue queue,
+                         SharedStorage storage,
+                         ObjectMapper objectMapper,
+                         ConverterProperties properties) {
+        this.converterService = converterService;
+        this.queue = queue;
+        this.storage = storage;
+        this.objectMapper = objectMapper;
+        this.config = properties.getCluster();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!config.isWorker()) {
+            log.info("本节点不执行共享队列中的任务");
+            return;
+        }
+
+        long interval = properties.getJobs().getProgressInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::writeProgress, interval, interval, TimeUnit.MILLISECONDS);
+        for (int i = 1; i <= config.getWorkers(); i++) {
+            Thread thread = new Thread(this::workLoop, "cluster-worker-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+        log.info("工作节点已启动 - 节点: {}, 工作线程数: {}", nodeId, workers.size());
+    }
+
+    /**
+     * 工作线程主循环
+     */
+    private void workLoop() {
+        while (!shutdown) {
+            JobTicket ticket;
+            try {
+                ticket = queue.claim(config.getPollInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.warn("领取任务失败", e);
+                sleep();
+                continue;
+            }
+            if (ticket != null) {
+                run(ticket);
+            }
+        }
+    }
+
+    /**
+     * 执行转换任务，无论成功与否都写入最终状态并从队列中移除
+     *
+     * @param ticket 已领取的任务
+     */
+    private void run(JobTicket ticket) {
+        String jobId = ticket.getJobId();
+        try {
+            if (isFinished(jobId)) {
+                log.info("任务已结束，跳过 - 任务ID: {}", jobId);
+                acknowledge(ticket);
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取任务状态失败 - 任务ID: {}", jobId, e);
+        }
+
+        ConversionProgress progress = new ConversionProgress();
+        active.put(jobId, new ActiveJob(ticket, progress));
+        JobRecord record = newRecord(ticket, JobStatus.RUNNING);
+        Path videoFile = null;
+        try {
+            if (ticket.getAttempts() >= config.getMaxAttempts()) {
+                // 执行节点多次在转换过程中失效，多半是输入导致进程崩溃，不再重试
+                throw new ConversionException("任务已被领取 " + ticket.getAttempts() + " 次仍未完成");
+            }
+            writeRecord(record);
+            log.info("开始执行转换任务 - 任务ID: {}, 文件名: {}", jobId, ticket.getOriginalFileName());
+
+            videoFile = Files.createTempFile("video-", ClusterKeys.extension(ticket.getInputKey()));
+            storage.get(ticket.getInputKey(), videoFile);
+            try (ConversionResult result = converterService.convertFile(videoFile, ticket.getOptions(), progress)) {
+                String outputKey = ClusterKeys.output(jobId, result.getFormat().getExtension());
+                storage.put(outputKey, result.getAudioFile());
+                record = newRecord(ticket, JobStatus.SUCCEEDED);
+                record.setOutputKey(outputKey);
+                if (result.getPeaks() != null) {
+                    String peaksKey = ClusterKeys.peaks(jobId);
+                    storage.write(peaksKey, result.getPeaks().toDat());
+                    record.setPeaksKey(peaksKey);
+                }
+                log.info("转换任务完成 - 任务ID: {}, 输出大小: {} bytes", jobId, result.getSize());
+            }
+        } catch (Exception e) {
+            log.error("转换任务失败 - 任务ID: {}", jobId, e);
+            record = newRecord(ticket, JobStatus.FAILED);
+            record.setErrorMessage("视频转换过程中发生错误");
+        } finally {
+            progress.finish();
+            synchronized (progress) {
+                active.remove(jobId);
+                fill(record, progress);
+                if (record.getStatus() == JobStatus.FAILED && !ownsClaim(ticket)) {
+                    // 任务已由其他节点重新领取，失败记录不能覆盖其状态
+                    log.warn("领取已过期，不写入失败记录 - 任务ID: {}", jobId);
+                } else {
+                    try {
+                        writeRecord(record);
+                    } catch (IOException e) {
+                        log.error("写入任务状态失败 - 任务ID: {}", jobId, e);
+                    }
+                }
+            }
+            try {
+                if (videoFile != null) {
+                    Files.deleteIfExists(videoFile);
+                }
+            } catch (IOException e) {
+                log.warn("清理临时文件失败: {}", videoFile, e);
+            }
+            acknowledge(ticket);
+        }
+    }
+
+    /**
+     * 确认任务并删除共享存储中的输入，领取已过期时两者都留给重新领取该任务的节点
+     *
+     * @param ticket 已领取的任务
+     */
+    private void acknowledge(JobTicket ticket) {
+        try {
+            if (queue.acknowledge(ticket)) {
+                storage.delete(ticket.getInputKey());
+            } else {
+                log.warn("领取已过期，任务已被放回队列 - 任务ID: {}, 尝试次数: {}", ticket.getJobId(), ticket.getAttempts());
+            }
+        } catch (IOException e) {
+            log.warn("清理任务失败 - 任务ID: {}", ticket.getJobId(), e);
+        }
+    }
+
+    /**
+     * 续期并检查本次领取是否仍有效，读写队列失败时按仍有效处理
+     */
+    private boolean ownsClaim(JobTicket ticket) {
+        try {
+            return queue.renew(ticket);
+        } catch (IOException | RuntimeException e) {
+            log.warn("续期任务领取失败 - 任务ID: {}", ticket.getJobId(), e);
+            return true;
+        }
+    }
+
+    /**
+     * 写入执行中任务的进度
+     */
+    private void writeProgress() {
+        active.forEach((jobId, job) -> {
+            synchronized (job.progress) {
+                if (!active.containsKey(jobId)) {
+                    // 任务已结束，不能覆盖最终状态
+                    return;
+                }
+                if (!ownsClaim(job.ticket)) {
+                    // 任务已被放回队列，进度由重新领取的节点写入
+                    return;
+                }
+                JobRecord record = newRecord(job.ticket, JobStatus.RUNNING);
+                fill(record, job.progress);
+                try {
+                    writeRecord(record);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("写入任务进度失败 - 任务ID: {}", jobId, e);
+                }
+            }
+        });
+    }
+
+    private JobRecord newRecord(JobTicket ticket, JobStatus status) {
+        JobRecord record = new JobRecord();
+        record.setJobId(ticket.getJobId());
+        record.setStatus(status);
+        record.setTicket(ticket);
+        record.setWorker(nodeId);
+        record.setUpdatedAt(System.currentTimeMillis());
+        if (status.isFinished()) {
+            record.setFinishedAt(record.getUpdatedAt());
+        }
+        return record;
+    }
+
+    private boolean isFinished(String jobId) throws IOException {
+        Optional<byte[]> data = storage.read(ClusterKeys.record(jobId));
+        return data.isPresent() && objectMapper.readValue(data.get(), JobRecord.class).getStatus().isFinished();
+    }
+
+    private static void fill(JobRecord record, ConversionProgress progress) {
+        record.setStarted(progress.isStarted());
+        record.setFramesProcessed(progress.getFramesProcessed());
+        record.setEncodedMicros(progress.getEncodedMicros());
+        record.setDurationMicros(progress.getDurationMicros());
+    }
+
+    private void writeRecord(JobRecord record) throws IOException {
+        storage.write(ClusterKeys.record(record.getJobId()), objectMapper.writeValueAsBytes(record));
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(config.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 执行中的任务及其进度
+     */
+    private static final class ActiveJob {
+        private final JobTicket ticket;
+        private final ConversionProgress progress;
+
+        ActiveJob(JobTicket ticket, ConversionProgress progress) {
+            this.ticket = ticket;
+            this.progress = progress;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        scheduler.shutdownNow();
+        workers.forEach(Thread::interrupt);
+    }
+}
@@ -0,0 +1,169 @@
+package com.naz1k1.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基于共享目录的任务队列实现
+ * <p>
+ * 每个任务是 pending 目录下的一个文件，文件名以通道和提交时间开头，按文件名排序即为领取顺序
+ * （快速通道优先，同通道先进先出）。领取时把文件原子地重命名到 claimed 目录，
+ * 多个节点同时领取同一任务时只有一个重命名成功，其余节点继续尝试下一个。
+ * <p>
+ * claimed 目录下文件的修改时间即领取租约，执行节点续期时更新。领取时顺带检查过期的租约，
+ * 先把过期文件原子地移入暂存目录（同样只有一个节点成功），递增尝试次数后放回 pending。
+ * <p>
+ * 文件名包含尝试次数，同一任务每次被领取后的 claimed 文件名都不同，因此续期和确认只作用于
+ * 本次领取的文件：租约过期后原执行节点的续期和确认找不到自己的文件，不会影响重新领取该任务的节点。
+ */
+@Slf4j
+public class DirectoryJobQueue implements JobQueue {
+    private static final String SUFFIX = ".json";
+
+    private final Path pending;
+    private final Path claimed;
+    private final Path staging;
+    private final Duration pollInterval;
+    private final Duration claimTimeout;
+    private final ObjectMapper objectMapper;
+    /** 上次检查过期租约的时间，避免每次轮询都列出 claimed 目录 */
+    private volatile long lastExpiryCheck;
+
+    /**
+     * @param root         队列根目录，不存在时创建
+     * @param pollInterval 队列为空时的轮询间隔
+     * @param claimTimeout 领取租约的有效期
+     * @param objectMapper 任务序列化
+     * @throws IOException 当创建目录失败时抛出
+     */
+    public DirectoryJobQueue(Path root, Duration pollInterval, Duration claimTimeout, ObjectMapper objectMapper)
+            throws IOException {
+        this.pending = Files.createDirectories(root.resolve("pending"));
+        this.claimed = Files.createDirectories(root.resolve("claimed"));
+        this.staging = Files.createDirectories(root.resolve(".staging"));
+        this.pollInterval = pollInterval;
+        this.claimTimeout = claimTimeout;
+        this.objectMapper = objectMapper;
+        log.info("共享任务队列目录: {}", root);
+    }
+
+    @Override
+    public void publish(JobTicket ticket) throws IOException {
+        Path stagingFile = staging.resolve(UUID.randomUUID() + SUFFIX);
+        try {
+            objectMapper.writeValue(stagingFile.toFile(), ticket);
+            Files.move(stagingFile, pending.resolve(fileName(ticket)), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(stagingFile);
+        }
+    }
+
+    @Override
+    public JobTicket claim(Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            requeueExpiredClaims();
+            for (Path file : list(pending)) {
+                Path target = claimed.resolve(file.getFileName());
+                try {
+                    // 重命名保留修改时间，先更新为领取时间，避免在队列中等待较久的任务一领取就被判为过期
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    // 已被其他节点领取
+                    continue;
+                }
+                return objectMapper.readValue(target.toFile(), JobTicket.class);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            Thread.sleep(Math.min(pollInterval.toMillis(), Math.max(1, remaining / 1_000_000)));
+        }
+    }
+
+    @Override
+    public boolean renew(JobTicket ticket) throws IOException {
+        try {
+            Files.setLastModifiedTime(claimed.resolve(fileName(ticket)), FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            // 已因租约过期被放回队列
+            return false;
+        }
+    }
+
+    @Override
+    public boolean acknowledge(JobTicket ticket) throws IOException {
+        return Files.deleteIfExists(claimed.resolve(fileName(ticket)));
+    }
+
+    @Override
+    public int size() throws IOException {
+        try (Stream<Path> files = Files.list(pending)) {
+            return (int) files.count();
+        }
+    }
+
+    /**
+     * 将租约过期的任务放回队列，每个租约有效期内最多检查4次
+     *
+     * @throws IOException 当读取或写入队列失败时抛出
+     */
+    private void requeueExpiredClaims() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastExpiryCheck < Math.max(pollInterval.toMillis(), claimTimeout.toMillis() / 4)) {
+            return;
+        }
+        lastExpiryCheck = now;
+
+        for (Path file : list(claimed)) {
+            Path stagingFile = staging.resolve(UUID.randomUUID() + SUFFIX);
+            try {
+                if (Files.getLastModifiedTime(file).toMillis() > now - claimTimeout.toMillis()) {
+                    continue;
+                }
+                Files.move(file, stagingFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // 已被确认，或已由其他节点放回
+                continue;
+            }
+            try {
+                JobTicket ticket = objectMapper.readValue(stagingFile.toFile(), JobTicket.class);
+                ticket = ticket.toBuilder().attempts(ticket.getAttempts() + 1).build();
+                objectMapper.writeValue(stagingFile.toFile(), ticket);
+                Files.move(stagingFile, pending.resolve(fileName(ticket)), StandardCopyOption.ATOMIC_MOVE);
+                log.warn("任务领取超时，重新放回队列 - 任务ID: {}, 尝试次数: {}", ticket.getJobId(), ticket.getAttempts());
+            } finally {
+                Files.deleteIfExists(stagingFile);
+            }
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 文件名：通道-提交时间-任务ID-尝试次数，提交时间补零到固定宽度以便按字典序排序
+     */
+    private static String fileName(JobTicket ticket) {
+        return String.format("%d-%015d-%s-%d%s", ticket.isFastLane() ? 0 : 1, ticket.getCreatedAt(),
+                ticket.getJobId(), ticket.getAttempts(), SUFFIX);
+    }
+}
@@ -0,0 +1,132 @@
+package com.naz1k1.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基于共享目录的存储实现：单机上多个节点共用本地目录，多机部署时挂载同一网络文件系统
+ * <p>
+ * 先写入暂存文件再原子重命名，读取方只会看到完整的对象；
+ * 与节点的临时目录位于同一文件系统时通过硬链接传递文件，不复制数据。
+ */
+@Slf4j
+public class DirectoryStorage implements SharedStorage {
+    private static final String STAGING_DIRECTORY = ".staging";
+
+    private final Path root;
+    private final Path staging;
+
+    /**
+     * @param root 存储根目录，不存在时创建
+     * @throws IOException 当创建目录失败时抛出
+     */
+    public DirectoryStorage(Path root) throws IOException {
+        this.root = root;
+        this.staging = root.resolve(STAGING_DIRECTORY);
+        Files.createDirectories(staging);
+        log.info("共享存储目录: {}", root);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path stagingFile = newStagingFile();
+        try {
+            linkOrCopy(source, stagingFile);
+            publish(stagingFile, key);
+        } finally {
+            Files.deleteIfExists(stagingFile);
+        }
+    }
+
+    @Override
+    public void get(String key, Path target) throws IOException {
+        linkOrCopy(resolve(key), target);
+    }
+
+    @Override
+    public void write(String key, byte[] data) throws IOException {
+        Path stagingFile = newStagingFile();
+        try {
+            Files.write(stagingFile, data);
+            publish(stagingFile, key);
+        } finally {
+            Files.deleteIfExists(stagingFile);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> read(String key) throws IOException {
+        try {
+            return Optional.of(Files.readAllBytes(resolve(key)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<String> list(String prefix) throws IOException {
+        // 前缀按目录处理，"jobs/" 对应 jobs 目录下的对象，不含子目录
+        Path directory = resolve(prefix);
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path newStagingFile() {
+        return staging.resolve(UUID.randomUUID().toString());
+    }
+
+    /**
+     * 将暂存文件原子地移动到对象路径，已存在时覆盖
+     */
+    private void publish(Path stagingFile, String key) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.move(stagingFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 解析对象路径，拒绝跳出根目录的键
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.startsWith(staging)) {
+            throw new IllegalArgumentException("非法的对象键: " + key);
+        }
+        return path;
+    }
+
+    /**
+     * 优先创建硬链接，跨文件系统时退化为复制
+     */
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.deleteIfExists(target);
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
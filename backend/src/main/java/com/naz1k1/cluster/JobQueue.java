@@ -0,0 +1,58 @@
+package com.naz1k1.cluster;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 多节点共享的转换任务队列
+ * <p>
+ * API 节点发布任务，工作节点领取执行；同一任务只会被一个节点领取。
+ * 领取后执行节点需定期调用 {@link #renew(JobTicket)} 续期，超过领取超时未续期的任务视为执行节点失效，
+ * 重新放回队列并递增 {@link JobTicket#getAttempts()}。放回后原执行节点的续期和确认不再生效，
+ * 不会影响重新领取该任务的节点。
+ * 内置实现为 {@link DirectoryJobQueue}，部署其他消息队列时注册该接口的 Bean 即可替换。
+ */
+public interface JobQueue {
+
+    /**
+     * 发布任务，快速通道任务优先被领取
+     *
+     * @param ticket 任务描述
+     * @throws IOException 当写入队列失败时抛出
+     */
+    void publish(JobTicket ticket) throws IOException;
+
+    /**
+     * 领取一个任务，队列为空时最多等待指定时长
+     *
+     * @param timeout 最长等待时间
+     * @return JobTicket 领取到的任务，超时时返回null
+     * @throws IOException          当读取队列失败时抛出
+     * @throws InterruptedException 当等待被中断时抛出
+     */
+    JobTicket claim(Duration timeout) throws IOException, InterruptedException;
+
+    /**
+     * 续期已领取的任务，表明执行节点仍在处理
+     *
+     * @param ticket 已领取的任务
+     * @return boolean 本次领取是否仍有效，任务已因超时被放回队列时返回false
+     * @throws IOException 当写入队列失败时抛出
+     */
+    boolean renew(JobTicket ticket) throws IOException;
+
+    /**
+     * 确认任务已处理完毕（成功或失败），从队列中移除
+     *
+     * @param ticket 已领取的任务
+     * @return boolean 是否由本次领取确认，任务已因超时被放回队列（可能已被其他节点领取）时返回false
+     * @throws IOException 当写入队列失败时抛出
+     */
+    boolean acknowledge(JobTicket ticket) throws IOException;
+
+    /**
+     * @return int 等待领取的任务数
+     * @throws IOException 当读取队列失败时抛出
+     */
+    int size() throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.naz1k1.cluster;
+
+import com.naz1k1.enums.JobStatus;
+import lombok.Data;
+
+/**
+ * 任务在共享存储中的状态记录，任何节点都可据此还原任务、查询进度和取回结果
+ * <p>
+ * 提交时由 API 节点写入，执行期间由工作节点按进度推送间隔更新。
+ */
+@Data
+public class JobRecord {
+    private String jobId;
+    private JobStatus status;
+    /** 提交时的任务描述 */
+    private JobTicket ticket;
+    /** 执行任务的节点，尚未领取时为空 */
+    private String worker;
+    /** 转换结果在共享存储中的键，成功后才有值 */
+    private String outputKey;
+    /** 波形峰值在共享存储中的键，未请求波形峰值时为空 */
+    private String peaksKey;
+    private String errorMessage;
+    /** 是否已开始转换，命中缓存时不会开始 */
+    private boolean started;
+    private long framesProcessed;
+    private long encodedMicros;
+    private long durationMicros;
+    /** 最近一次写入的时间（毫秒） */
+    private long updatedAt;
+    /** 结束时间（毫秒），未结束时为空 */
+    private Long finishedAt;
+}
@@ -0,0 +1,27 @@
+package com.naz1k1.cluster;
+
+import com.naz1k1.model.ConversionOptions;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * 共享队列中的任务描述，输入视频位于共享存储中
+ */
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class JobTicket {
+    String jobId;
+    String originalFileName;
+    ConversionOptions options;
+    /** 输入视频在共享存储中的键 */
+    String inputKey;
+    /** 估算的转换开销（墙钟秒） */
+    double estimatedCost;
+    /** 是否进入快速通道，优先被领取 */
+    boolean fastLane;
+    long createdAt;
+    /** 因领取超时被放回队列的次数，执行节点失效时递增 */
+    int attempts;
+}
@@ -0,0 +1,68 @@
+package com.naz1k1.cluster;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 多节点共享的对象存储，用于在 API 节点和工作节点之间传递输入视频、转换结果和任务状态
+ * <p>
+ * 写入完成后对所有节点可见，读取方不会看到写了一半的对象。
+ * 内置实现为 {@link DirectoryStorage}，部署对象存储服务时注册该接口的 Bean 即可替换。
+ */
+public interface SharedStorage {
+
+    /**
+     * 写入本地文件
+     *
+     * @param key    对象键
+     * @param source 本地文件，写入后调用方可删除
+     * @throws IOException 当写入失败时抛出
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * 读取对象到本地文件
+     *
+     * @param key    对象键
+     * @param target 本地文件，已存在时覆盖
+     * @throws IOException 当对象不存在或读取失败时抛出
+     */
+    void get(String key, Path target) throws IOException;
+
+    /**
+     * 写入小对象，如任务状态
+     *
+     * @param key  对象键
+     * @param data 对象内容
+     * @throws IOException 当写入失败时抛出
+     */
+    void write(String key, byte[] data) throws IOException;
+
+    /**
+     * 读取小对象
+     *
+     * @param key 对象键
+     * @return Optional<byte[]> 对象内容，不存在时为空
+     * @throws IOException 当读取失败时抛出
+     */
+    Optional<byte[]> read(String key) throws IOException;
+
+    /**
+     * 列出键以指定前缀开头的对象
+     *
+     * @param prefix 键前缀，如 "jobs/"
+     * @return List<String> 对象键
+     * @throws IOException 当读取失败时抛出
+     */
+    List<String> list(String prefix) throws IOException;
+
+    /**
+     * 删除对象，不存在时忽略
+     *
+     * @param key 对象键
+     * @throws IOException 当删除失败时抛出
+     */
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,171 @@
+package com.naz1k1.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 转换服务配置，对应 application.yml 中的 converter 节点
+ */
+@Data
+@ConfigurationProperties(prefix = "converter")
+public class ConverterProperties {
+
+    private final Jobs jobs = new Jobs();
+    private final Cache cache = new Cache();
+    private final DirectStream directStream = new DirectStream();
+    private final Segmented segmented = new Segmented();
+    private final Admission admission = new Admission();
+    private final Uploads uploads = new Uploads();
+    private final Probe probe = new Probe();
+    private final Threads threads = new Threads();
+    private final Filters filters = new Filters();
+    private final Cluster cluster = new Cluster();
+    private final Sync sync = new Sync();
+    private final Waveform waveform = new Waveform();
+
+    @Data
+    public static class Jobs {
+        /** 转换工作线程数，默认为CPU核数 */
+        private int workers = Runtime.getRuntime().availableProcessors();
+        /** 等待队列容量，队列已满时拒绝新任务 */
+        private int queueCapacity = 32;
+        /** 已完成任务结果的保留时长 */
+        private Duration resultTtl = Duration.ofMinutes(30);
+        /** 通过 SSE 推送任务进度的间隔 */
+        private Duration progressInterval = Duration.ofMillis(500);
+    }
+
+    @Data
+    public static class Cache {
+        /** 是否启用转换结果缓存 */
+        private boolean enabled = true;
+        /** 缓存目录，与临时目录位于同一文件系统时可使用硬链接避免复制 */
+        private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "audio-converter-cache");
+        /** 缓存总大小上限，超出时按最近最少使用淘汰 */
+        private DataSize maxSize = DataSize.ofGigabytes(2);
+    }
+
+    @Data
+    public static class DirectStream {
+        /**
+         * 同步转换接口是否直接从上传数据读取并把编码结果写入响应，不再落临时文件
+         * <p>
+         * 仅对可流式封装的格式生效，启用后响应不带 Content-Length 且不经过结果缓存
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Segmented {
+        /** 是否对长音频启用分段并行编码 */
+        private boolean enabled = true;
+        /** 时长达到该值的输入才分段编码 */
+        private Duration minDuration = Duration.ofMinutes(10);
+        /** 分段数及并行线程数，默认为CPU核数，小于2时不分段 */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        /** 允许分段编码的格式，分段输出需能按数据包直接拼接 */
+        private List<String> formats = Arrays.asList("wav", "mp3");
+    }
+
+    @Data
+    public static class Admission {
+        /** 是否按估算开销对异步任务做准入控制 */
+        private boolean enabled = true;
+        /** 单节点排队和执行中任务的估算墙钟耗时总和上限，超出时拒绝新任务；估算按单线程转换的耗时计，随实际墙钟耗时修正 */
+        private Duration wallTimeBudget = Duration.ofMinutes(5L * Runtime.getRuntime().availableProcessors());
+        /** 估算开销不超过该值的任务进入快速通道 */
+        private Duration fastLaneMaxCost = Duration.ofSeconds(10);
+        /** 为快速通道保留的工作线程数，其余线程才会执行大任务，至少留一个线程给大任务 */
+        private int reservedFastWorkers = 1;
+    }
+
+    @Data
+    public static class Uploads {
+        /** 上传无进展超过该时长后丢弃上传文件 */
+        private Duration expiry = Duration.ofHours(1);
+        /** 转换等待后续分块的最长时间，超时后任务失败 */
+        private Duration stallTimeout = Duration.ofMinutes(5);
+        /** 收到该大小的数据（足以探测流参数）后任务才进入队列，此前不占用工作线程 */
+        private DataSize startAfter = DataSize.ofMegabytes(2);
+    }
+
+    @Data
+    public static class Probe {
+        /** 探测接口读取的最大字节数，超出部分丢弃 */
+        private DataSize maxBytes = DataSize.ofMegabytes(2);
+        /** FFmpeg 分析流参数的最长媒体时长 */
+        private Duration analyzeDuration = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Threads {
+        /** 在进行中的转换之间平分的编解码线程总数，默认为CPU核数 */
+        private int cores = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Data
+    public static class Filters {
+        /** 响度标准化的目标综合响度（LUFS），默认为 EBU R128 的 -23 */
+        private double integratedLoudness = -23;
+        /** 响度标准化的真峰值上限（dBTP） */
+        private double truePeak = -1;
+        /** 响度标准化的目标响度范围（LU） */
+        private double loudnessRange = 7;
+        /** 去除静音时低于该电平视为静音 */
+        private String silenceThreshold = "-50dB";
+        /** 中间和结尾的静音持续超过该时长才会被去除 */
+        private Duration silenceMinDuration = Duration.ofSeconds(2);
+        /** 去除中间的静音时保留的停顿时长 */
+        private Duration silenceKeep = Duration.ofMillis(500);
+    }
+
+    @Data
+    public static class Cluster {
+        /** 是否以多节点方式运行：异步任务写入共享队列，由工作节点领取执行 */
+        private boolean enabled = false;
+        /** 本节点是否领取并执行共享队列中的任务，只接收请求的节点设为false */
+        private boolean worker = true;
+        /**
+         * 本节点执行共享队列任务的工作线程数，默认为CPU核数
+         * <p>
+         * 多节点部署时本地工作线程只执行分块上传的任务，数量相应减为 converter.jobs.workers 减去该值（至少1个），
+         * 节点同时进行的转换数不会因两组线程叠加而翻倍
+         */
+        private int workers = Runtime.getRuntime().availableProcessors();
+        /** 内置队列和存储实现使用的共享目录，多个节点需访问同一目录 */
+        private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "audio-converter-cluster");
+        /** 共享队列中等待领取的任务上限，超出时拒绝新任务 */
+        private int queueCapacity = 256;
+        /** 工作节点在队列为空时的轮询间隔 */
+        private Duration pollInterval = Duration.ofMillis(200);
+        /** 已领取的任务超过该时长未续期时视为执行节点失效，重新放回队列 */
+        private Duration claimTimeout = Duration.ofMinutes(1);
+        /** 任务最多被执行的次数，执行节点反复失效（如输入导致进程崩溃）时不再重试 */
+        private int maxAttempts = 3;
+        /** 提交后超过该时长仍未结束的任务按失败处理 */
+        private Duration jobTimeout = Duration.ofHours(6);
+    }
+
+    @Data
+    public static class Sync {
+        /** 同步接口同时执行的转换数，默认为CPU核数；请求线程只负责接收上传，不执行转换 */
+        private int concurrency = Runtime.getRuntime().availableProcessors();
+        /** 等待执行的同步转换上限，超出时返回429 */
+        private int queueCapacity = 64;
+        /** 同步接口等待转换（含排队）的最长时间，超时返回503，不包括响应写出的时间 */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Waveform {
+        /** 波形峰值每组的采样数，越小越精细、数据越大 */
+        private int samplesPerPixel = 512;
+    }
+}
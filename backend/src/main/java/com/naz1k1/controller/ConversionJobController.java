@@ -0,0 +1,317 @@
+package com.naz1k1.controller;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.enums.JobStatus;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.WaveformPeaks;
+import com.naz1k1.model.response.JobResponse;
+import com.naz1k1.model.response.PeaksResponse;
+import com.naz1k1.service.ConversionJobService;
+import com.naz1k1.service.ConversionMetrics;
+import com.naz1k1.service.JobEventPublisher;
+import com.naz1k1.util.FileTransfer;
+import com.naz1k1.validator.FileValidator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.Valid;
+import javax.validation.constraints.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/converter/jobs")
+@Valid
+@CrossOrigin(origins = "*", maxAge = 3600,
+        exposedHeaders = {"Accept-Ranges", "Content-Range", "ETag"})
+public class ConversionJobController {
+
+    private final ConversionJobService jobService;
+    private final JobEventPublisher eventPublisher;
+    private final ConversionMetrics metrics;
+
+    public ConversionJobController(
+            ConversionJobService jobService,
+            JobEventPublisher eventPublisher,
+            ConversionMetrics metrics) {
+        this.jobService = jobService;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 提交异步转换任务
+     *
+     * @param videoFile  要转换的视频文件
+     * @param format    目标音频格式 (mp3/aac/wav/flac/opus/ogg)
+     * @param bitrate   音频比特率 (16000-320000)，未指定时按格式取默认值
+     * @param sampleRate 采样率 (8000-192000)
+     * @param channels  声道数 (1-8)
+     * @param start     截取起点（秒），未指定时从头开始
+     * @param duration  截取时长（秒），未指定时截取到结尾
+     * @param normalize 是否按 EBU R128 标准化响度
+     * @param trimSilence 是否去除开头的静音以及中间、结尾较长的静音
+     * @param waveform  是否在转换的同时计算波形峰值，完成后通过 /{jobId}/peaks 获取
+     * @return ResponseEntity<JobResponse> 已入队的任务信息
+     */
+    @PostMapping
+    public ResponseEntity<JobResponse> submitJob(
+            @RequestParam("file") @NotNull(message = "请选择要转换的视频文件") MultipartFile videoFile,
+            @RequestParam(value = "format", defaultValue = "mp3")
+                @Pattern(regexp = "^(mp3|aac|wav|flac|opus|ogg)$" ,message = "不支持的音频格式") String format,
+            @RequestParam(value = "bitrate", required = false)
+                @Min(value = 16000, message = "比特率不能小于16kbps") @Max(value = 320000, message = "比特率不能大于320kps") Integer bitrate,
+            @RequestParam(value = "sampleRate", required = false)
+                @Min(value = 8000, message = "采样率不能小于8kHz") @Max(value = 192000, message = "采样率不能大于192kHz")Integer sampleRate,
+            @RequestParam(value = "channels", required = false)
+                @Min(value = 1, message = "声道数不能小于1") @Max(value = 8, message = "声道数不能大于8") Integer channels,
+            @RequestParam(value = "start", required = false)
+                @DecimalMin(value = "0", message = "截取起点不能小于0") Double start,
+            @RequestParam(value = "duration", required = false)
+                @DecimalMin(value = "0", inclusive = false, message = "截取时长必须大于0") Double duration,
+            @RequestParam(value = "normalize", defaultValue = "false") boolean normalize,
+            @RequestParam(value = "trimSilence", defaultValue = "false") boolean trimSilence,
+            @RequestParam(value = "waveform", defaultValue = "false") boolean waveform ) {
+
+        log.info("接收到转换任务 - 文件名: {}, 格式: {}, 比特率: {}, 采样率: {}, 声道数: {}, 截取: {}+{}",
+                videoFile.getOriginalFilename(), format, bitrate, sampleRate, channels, start, duration);
+
+        FileValidator.validateFileSize(videoFile);
+        FileValidator.validateFileType(videoFile);
+
+        AudioFormat audioFormat = AudioFormat.fromExtension(format);
+        ConversionOptions options = ConversionOptions.builder()
+                .format(audioFormat)
+                .bitrate(bitrate != null ? bitrate : audioFormat.getDefaultBitrate())
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .startMicros(toMicros(start))
+                .durationMicros(toMicros(duration))
+                .normalizeLoudness(normalize)
+                .trimSilence(trimSilence)
+                .waveform(waveform)
+                .build();
+        ConversionJob job = jobService.submit(videoFile, options);
+
+        return ResponseEntity.accepted()
+                .body(new JobResponse(job));
+    }
+
+    /**
+     * 查询任务状态
+     *
+     * @param jobId 任务ID
+     * @return ResponseEntity<JobResponse> 任务信息
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobResponse> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(new JobResponse(jobService.getJob(jobId)));
+    }
+
+    /**
+     * 订阅任务进度事件流
+     * <p>
+     * 运行期间按固定间隔推送 progress 事件，任务结束时推送 complete 事件后关闭连接，
+     * 事件数据与查询任务状态接口的响应相同
+     *
+     * @param jobId 任务ID
+     * @return SseEmitter 任务进度事件流
+     */
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeEvents(@PathVariable String jobId) {
+        return eventPublisher.subscribe(jobId);
+    }
+
+    /**
+     * 下载任务转换结果
+     * <p>
+     * 结果在任务过期前保持不变，以任务ID作为强 ETag：支持 If-None-Match / If-Modified-Since 条件请求，
+     * 以及单个区间的 Range 请求（可配合 If-Range），便于播放器拖动和客户端断点续传，无需重新转换。
+     * 多区间请求按完整内容返回。
+     *
+     * @param jobId          任务ID
+     * @param requestHeaders 请求头
+     * @param webRequest     用于条件请求判断
+     * @return ResponseEntity<StreamingResponseBody> 以流的方式返回转换后的音频数据或其中一段，未修改时返回null并响应304
+     * @throws InvalidInputException 当任务尚未成功完成时抛出
+     */
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<StreamingResponseBody> download(
+            @PathVariable String jobId,
+            @RequestHeader HttpHeaders requestHeaders,
+            WebRequest webRequest) {
+        ConversionJob job = jobService.getJob(jobId);
+        if (job.getStatus() != JobStatus.SUCCEEDED) {
+            throw new InvalidInputException("任务尚未完成: " + job.getStatus());
+        }
+
+        ConversionResult result = job.getResult();
+        String etag = "\"" + job.getId() + "\"";
+        long lastModified = job.getFinishedAt();
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(result.getFormat().getMimeType()));
+        headers.setContentDispositionFormData("attachment", getOutputFileName(job));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long size = result.getSize();
+        HttpRange range = resolveRange(requestHeaders, etag, lastModified);
+        if (range == null) {
+            headers.setContentLength(size);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(outputStream -> transfer(result, 0, size, outputStream));
+        }
+
+        if (range.getRangeStart(size) >= size) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .headers(headers)
+                    .build();
+        }
+        long start = range.getRangeStart(size);
+        long end = range.getRangeEnd(size);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        headers.setContentLength(end - start + 1);
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(outputStream -> transfer(result, start, end - start + 1, outputStream));
+    }
+
+    /**
+     * 获取转换结果的波形峰值，峰值在转换时一并计算，不需要再次解码
+     * <p>
+     * 默认返回 audiowaveform 的 JSON 格式，{@code format=dat} 时返回其二进制格式。以任务ID作为 ETag，支持条件请求。
+     *
+     * @param jobId      任务ID
+     * @param format     响应格式 (json/dat)
+     * @param webRequest 用于条件请求判断
+     * @return ResponseEntity<?> 波形峰值，未修改时返回null并响应304
+     * @throws InvalidInputException 当任务尚未成功完成或提交时未请求波形峰值时抛出
+     */
+    @GetMapping("/{jobId}/peaks")
+    public ResponseEntity<?> peaks(
+            @PathVariable String jobId,
+            @RequestParam(value = "format", defaultValue = "json")
+                @Pattern(regexp = "^(json|dat)$", message = "不支持的波形格式") String format,
+            WebRequest webRequest) {
+        ConversionJob job = jobService.getJob(jobId);
+        if (job.getStatus() != JobStatus.SUCCEEDED) {
+            throw new InvalidInputException("任务尚未完成: " + job.getStatus());
+        }
+        WaveformPeaks peaks = job.getResult().getPeaks();
+        if (peaks == null) {
+            throw new InvalidInputException("提交任务时未请求波形峰值");
+        }
+        if (webRequest.checkNotModified("\"" + job.getId() + "-" + format + "\"", job.getFinishedAt())) {
+            return null;
+        }
+
+        if ("dat".equals(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(peaks.toDat());
+        }
+        return ResponseEntity.ok(new PeaksResponse(peaks));
+    }
+
+    /**
+     * 解析 Range 请求头
+     * <p>
+     * If-Range 与当前结果不匹配、Range 格式不合法或包含多个区间时忽略 Range，返回完整内容。
+     *
+     * @param requestHeaders 请求头
+     * @param etag           当前结果的 ETag
+     * @param lastModified   当前结果的最后修改时间（毫秒）
+     * @return HttpRange 要返回的区间，返回完整内容时为null
+     */
+    private HttpRange resolveRange(HttpHeaders requestHeaders, String etag, long lastModified) {
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long ifRangeDate = ifRange.startsWith("\"") || ifRange.startsWith("W/") ? -1 : parseDate(ifRange);
+            // HTTP日期精度为秒
+            if (ifRangeDate < 0 || ifRangeDate / 1000 != lastModified / 1000) {
+                return null;
+            }
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+
+    private long parseDate(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.DATE, value);
+        try {
+            return headers.getFirstDate(HttpHeaders.DATE);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private void transfer(ConversionResult result, long position, long count, OutputStream outputStream)
+            throws IOException {
+        long startedAt = System.nanoTime();
+        FileTransfer.transfer(result.getAudioFile(), position, count, outputStream);
+        metrics.recordOutput(result.getFormat(), System.nanoTime() - startedAt);
+    }
+
+    /**
+     * 将请求中以秒为单位的时间转换为微秒
+     *
+     * @param seconds 秒数，可为空
+     * @return Long 微秒数，参数为空时返回null
+     */
+    private Long toMicros(Double seconds) {
+        return seconds != null ? Math.round(seconds * 1_000_000) : null;
+    }
+
+    /**
+     * 生成输出文件名
+     *
+     * @param job 转换任务
+     * @return String 生成的输出文件名
+     */
+    private String getOutputFileName(ConversionJob job) {
+        String originalFileName = job.getOriginalFileName();
+        String baseName = originalFileName != null ?
+                originalFileName.replaceAll("\\.[^.]*$", "") : "converted";
+        return baseName + "." + job.getOptions().getFormat().getExtension();
+    }
+}
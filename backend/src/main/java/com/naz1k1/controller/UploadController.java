@@ -0,0 +1,223 @@
+package com.naz1k1.controller;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.UploadSession;
+import com.naz1k1.model.response.UploadResponse;
+import com.naz1k1.service.ConversionJobService;
+import com.naz1k1.service.UploadService;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.*;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 可续传的分块上传，协议参照 tus 1.0 的 creation 和 termination 扩展
+ * <p>
+ * 创建上传时同时提交转换任务，收到足以探测的数据后转换即可开始，无需等待上传完成；
+ * 连接中断后客户端通过 HEAD 查询已接收的偏移量并从该处继续上传。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/converter/uploads")
+@Valid
+@CrossOrigin(origins = "*", maxAge = 3600,
+        exposedHeaders = {"Location", "Upload-Offset", "Upload-Length", "Tus-Resumable"})
+public class UploadController {
+    private static final String TUS_RESUMABLE = "Tus-Resumable";
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+
+    private final UploadService uploadService;
+    private final ConversionJobService jobService;
+
+    public UploadController(UploadService uploadService, ConversionJobService jobService) {
+        this.uploadService = uploadService;
+        this.jobService = jobService;
+    }
+
+    /**
+     * 查询服务端支持的上传协议能力
+     *
+     * @return ResponseEntity<Void> 携带协议版本和上传大小上限的响应
+     */
+    @RequestMapping(method = RequestMethod.OPTIONS)
+    public ResponseEntity<Void> options() {
+        return ResponseEntity.noContent()
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header("Tus-Version", TUS_VERSION)
+                .header("Tus-Max-Size", String.valueOf(UploadService.MAX_UPLOAD_SIZE))
+                .header("Tus-Extension", "creation,termination")
+                .build();
+    }
+
+    /**
+     * 创建上传并提交转换任务
+     *
+     * @param uploadLength 上传总长度
+     * @param metadata     上传元数据，格式为逗号分隔的 "键 base64值"，支持 filename 和 filetype
+     * @param format       目标音频格式 (mp3/aac/wav/flac/opus/ogg)
+     * @param bitrate      音频比特率 (16000-320000)，未指定时按格式取默认值
+     * @param sampleRate   采样率 (8000-192000)
+     * @param channels     声道数 (1-8)
+     * @param normalize    是否按 EBU R128 标准化响度
+     * @param trimSilence  是否去除开头的静音以及中间、结尾较长的静音
+     * @param waveform     是否在转换的同时计算波形峰值
+     * @return ResponseEntity<UploadResponse> 上传和任务信息，Location 指向上传地址
+     */
+    @PostMapping
+    public ResponseEntity<UploadResponse> createUpload(
+            @RequestHeader(UPLOAD_LENGTH) long uploadLength,
+            @RequestHeader(value = "Upload-Metadata", required = false) String metadata,
+            @RequestParam(value = "format", defaultValue = "mp3")
+                @Pattern(regexp = "^(mp3|aac|wav|flac|opus|ogg)$" ,message = "不支持的音频格式") String format,
+            @RequestParam(value = "bitrate", required = false)
+                @Min(value = 16000, message = "比特率不能小于16kbps") @Max(value = 320000, message = "比特率不能大于320kps") Integer bitrate,
+            @RequestParam(value = "sampleRate", required = false)
+                @Min(value = 8000, message = "采样率不能小于8kHz") @Max(value = 192000, message = "采样率不能大于192kHz")Integer sampleRate,
+            @RequestParam(value = "channels", required = false)
+                @Min(value = 1, message = "声道数不能小于1") @Max(value = 8, message = "声道数不能大于8") Integer channels,
+            @RequestParam(value = "normalize", defaultValue = "false") boolean normalize,
+            @RequestParam(value = "trimSilence", defaultValue = "false") boolean trimSilence,
+            @RequestParam(value = "waveform", defaultValue = "false") boolean waveform ) {
+
+        Map<String, String> fields = parseMetadata(metadata);
+        String fileType = fields.get("filetype");
+        if (fileType == null || !fileType.startsWith("video/")) {
+            throw new InvalidInputException("只支持视频文件格式");
+        }
+
+        AudioFormat audioFormat = AudioFormat.fromExtension(format);
+        ConversionOptions options = ConversionOptions.builder()
+                .format(audioFormat)
+                .bitrate(bitrate != null ? bitrate : audioFormat.getDefaultBitrate())
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .normalizeLoudness(normalize)
+                .trimSilence(trimSilence)
+                .waveform(waveform)
+                .build();
+
+        UploadSession upload = uploadService.create(fields.get("filename"), uploadLength);
+        ConversionJob job;
+        try {
+            job = jobService.submitUpload(upload, options);
+        } catch (RuntimeException e) {
+            uploadService.terminate(upload.getId());
+            throw e;
+        }
+        upload.setJobId(job.getId());
+
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/{uploadId}").buildAndExpand(upload.getId()).toUri())
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .body(new UploadResponse(upload));
+    }
+
+    /**
+     * 查询已接收的偏移量，用于断点续传
+     *
+     * @param uploadId 上传ID
+     * @return ResponseEntity<Void> 携带当前偏移量和总长度的响应
+     */
+    @RequestMapping(value = "/{uploadId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getOffset(@PathVariable String uploadId) {
+        UploadSession upload = uploadService.get(uploadId);
+        return ResponseEntity.ok()
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header(UPLOAD_OFFSET, String.valueOf(upload.getOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(upload.getLength()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .build();
+    }
+
+    /**
+     * 从指定偏移量追加一个分块，连接中断时已接收的部分仍然保留
+     *
+     * @param uploadId     上传ID
+     * @param uploadOffset 分块起始偏移量，必须等于服务端已接收的偏移量
+     * @param request      请求体为分块数据
+     * @return ResponseEntity<Void> 携带写入后偏移量的响应
+     * @throws IOException 当读取请求体或写入上传文件失败时抛出
+     */
+    @PatchMapping(value = "/{uploadId}", consumes = "application/offset+octet-stream")
+    public ResponseEntity<Void> appendChunk(
+            @PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long uploadOffset,
+            HttpServletRequest request) throws IOException {
+        UploadSession upload = uploadService.get(uploadId);
+        long offset = upload.write(uploadOffset, Channels.newChannel(request.getInputStream()));
+        log.debug("接收分块 - 上传ID: {}, 偏移量: {} -> {}", uploadId, uploadOffset, offset);
+
+        return ResponseEntity.noContent()
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header(UPLOAD_OFFSET, String.valueOf(offset))
+                .build();
+    }
+
+    /**
+     * 终止上传，正在进行的转换任务随之失败
+     *
+     * @param uploadId 上传ID
+     * @return ResponseEntity<Void> 空响应
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> terminate(@PathVariable String uploadId) {
+        uploadService.terminate(uploadId);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .build();
+    }
+
+    /**
+     * 解析 Upload-Metadata 请求头
+     *
+     * @param metadata 请求头的值，可以为null
+     * @return Map<String, String> 解码后的键值
+     * @throws InvalidInputException 当值不是合法的base64时抛出
+     */
+    private Map<String, String> parseMetadata(String metadata) {
+        Map<String, String> fields = new HashMap<>();
+        if (metadata == null || metadata.trim().isEmpty()) {
+            return fields;
+        }
+        for (String pair : metadata.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            try {
+                String value = parts.length > 1
+                        ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8)
+                        : "";
+                fields.put(parts[0], value);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidInputException("Upload-Metadata 格式不正确: " + parts[0]);
+            }
+        }
+        return fields;
+    }
+}
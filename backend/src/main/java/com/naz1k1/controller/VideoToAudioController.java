@@ -1,7 +1,18 @@
 package com.naz1k1.controller;
 
+import com.naz1k1.config.ConverterProperties;
 import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.ConversionTimeoutException;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.MediaInfo;
+import com.naz1k1.model.response.ProbeResponse;
+import com.naz1k1.service.ConversionMetrics;
 import com.naz1k1.service.ConverterService;
+import com.naz1k1.service.MediaProbeService;
+import com.naz1k1.service.SyncConversionExecutor;
+import com.naz1k1.util.FileTransfer;
 import com.naz1k1.validator.FileValidator;
 
 import lombok.extern.slf4j.Slf4j;
@@ -14,12 +25,38 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.validation.constraints.*;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Slf4j
 @RestController
@@ -28,67 +65,449 @@ import java.io.IOException;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class VideoToAudioController {
 
+    private static final int MAX_BATCH_FILES = 20;
+    private static final int MAX_BATCH_PROFILES = 8;
+    private static final String STREAM_INTERCEPTOR_KEY = VideoToAudioController.class.getName() + ".STREAM";
+
     private final ConverterService converterService;
+    private final MediaProbeService mediaProbeService;
+    private final ConversionMetrics metrics;
+    private final ConverterProperties properties;
+    private final SyncConversionExecutor syncExecutor;
 
-    public VideoToAudioController(ConverterService converterService) {
+    public VideoToAudioController(
+            ConverterService converterService,
+            MediaProbeService mediaProbeService,
+            ConversionMetrics metrics,
+            ConverterProperties properties,
+            SyncConversionExecutor syncExecutor) {
         this.converterService = converterService;
+        this.mediaProbeService = mediaProbeService;
+        this.metrics = metrics;
+        this.properties = properties;
+        this.syncExecutor = syncExecutor;
     }
 
     
  /**
      * 处理视频转音频的请求
+     * <p>
+     * 转换在同步转换线程池上执行，等待转换期间不占用请求线程；超过 converter.sync.timeout 仍未完成时返回503。
+     * 边转换边输出时，编码同样在同步转换线程池上执行，直接写入响应流。
      *
      * @param videoFile  要转换的视频文件
-     * @param format    目标音频格式 (mp3/aac/wav/flac)
-     * @param bitrate   音频比特率 (32000-320000)
+     * @param format    目标音频格式 (mp3/aac/wav/flac/opus/ogg)
+     * @param bitrate   音频比特率 (16000-320000)，未指定时按格式取默认值
      * @param sampleRate 采样率 (8000-192000)
      * @param channels  声道数 (1-8)
-     * @return ResponseEntity<byte[]> 包含转换后的音频数据
+     * @param start     截取起点（秒），未指定时从头开始
+     * @param duration  截取时长（秒），未指定时截取到结尾
+     * @param normalize 是否按 EBU R128 标准化响度
+     * @param trimSilence 是否去除开头的静音以及中间、结尾较长的静音
+     * @param request   当前请求，边转换边输出时用于在请求结束时释放转换线程
+     * @return DeferredResult<ResponseEntity<StreamingResponseBody>> 转换完成后以流的方式返回音频数据
      * @throws IOException 当文件处理发生错误时抛出
+     * @throws com.naz1k1.exception.TooManyJobsException 当同步转换线程全忙且等待队列已满时抛出
      */
     @PostMapping("/video-audio-convert")
-    public ResponseEntity<byte[]> convertVideoToAudio(
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> convertVideoToAudio(
             @RequestParam("file") @NotNull(message = "请选择要转换的视频文件") MultipartFile videoFile,
             @RequestParam(value = "format", defaultValue = "mp3") 
-                @Pattern(regexp = "^(mp3|aac|wav|flac)$" ,message = "不支持的音频格式") String format,
-            @RequestParam(value = "bitrate", defaultValue = "128000") 
-                @Min(value = 32000, message = "比特率不能小于32kbps") @Max(value = 320000, message = "比特率不能大于320kps") int bitrate,
+                @Pattern(regexp = "^(mp3|aac|wav|flac|opus|ogg)$" ,message = "不支持的音频格式") String format,
+            @RequestParam(value = "bitrate", required = false)
+                @Min(value = 16000, message = "比特率不能小于16kbps") @Max(value = 320000, message = "比特率不能大于320kps") Integer bitrate,
             @RequestParam(value = "sampleRate", required = false) 
                 @Min(value = 8000, message = "采样率不能小于8kHz") @Max(value = 192000, message = "采样率不能大于192kHz")Integer sampleRate,
             @RequestParam(value = "channels", required = false)  
-                @Min(value = 1, message = "声道数不能小于1") @Max(value = 8, message = "声道数不能大于8") Integer channels ) 
+                @Min(value = 1, message = "声道数不能小于1") @Max(value = 8, message = "声道数不能大于8") Integer channels,
+            @RequestParam(value = "start", required = false)
+                @DecimalMin(value = "0", message = "截取起点不能小于0") Double start,
+            @RequestParam(value = "duration", required = false)
+                @DecimalMin(value = "0", inclusive = false, message = "截取时长必须大于0") Double duration,
+            @RequestParam(value = "normalize", defaultValue = "false") boolean normalize,
+            @RequestParam(value = "trimSilence", defaultValue = "false") boolean trimSilence,
+            HttpServletRequest request)
                 throws IOException {
 
-        log.info("接收到视频转换请求 - 文件名: {}, 格式: {}, 比特率: {}, 采样率: {}, 声道数: {}", 
-        videoFile.getOriginalFilename(), format, bitrate, sampleRate, channels);
+        log.info("接收到视频转换请求 - 文件名: {}, 格式: {}, 比特率: {}, 采样率: {}, 声道数: {}, 截取: {}+{}", 
+        videoFile.getOriginalFilename(), format, bitrate, sampleRate, channels, start, duration);
                 
         FileValidator.validateFileSize(videoFile);
         FileValidator.validateFileType(videoFile);
       
-            byte[] audioBytes = converterService.convertVideoToAudio(
-                videoFile,
-                format,
-                bitrate,
-                sampleRate,
-                channels
-        );
         AudioFormat audioFormat = AudioFormat.fromExtension(format);
-        HttpHeaders headers = buildResponseHeaders(audioFormat, audioBytes.length, 
-                getOutputFileName(videoFile.getOriginalFilename(), format));
+        ConversionOptions options = ConversionOptions.builder()
+                .format(audioFormat)
+                .bitrate(bitrate != null ? bitrate : audioFormat.getDefaultBitrate())
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .startMicros(toMicros(start))
+                .durationMicros(toMicros(duration))
+                .normalizeLoudness(normalize)
+                .trimSilence(trimSilence)
+                .build();
+        String outputFileName = getOutputFileName(videoFile.getOriginalFilename(), format);
+
+        if (properties.getDirectStream().isEnabled() && options.getFormat().isStreamable()) {
+            // 边转换边写出，输出长度未知，使用分块传输
+            HttpHeaders headers = buildResponseHeaders(options.getFormat(), -1, outputFileName);
+            DeferredResult<ResponseEntity<StreamingResponseBody>> deferred = new DeferredResult<>();
+            deferred.setResult(ResponseEntity.ok()
+                    .headers(headers)
+                    .body(streamConversion(videoFile, options, request)));
+            return deferred;
+        }
+
+        // 上传数据在调用前已由容器接收完毕，异步处理期间不会被清理
+        return defer(() -> converterService.convertVideoToAudio(videoFile, options),
+                result -> {
+                    HttpHeaders headers = buildResponseHeaders(result.getFormat(), result.getSize(), outputFileName);
+
+                    log.info("视频转换成功 - 文件名: {}, 输出大小: {} bytes",
+                            videoFile.getOriginalFilename(), result.getSize());
+
+                    return ResponseEntity.ok()
+                            .headers(headers)
+                            .body(outputStream -> streamResult(result, outputStream));
+                },
+                ConversionResult::close);
+    }
+
+    /**
+     * 批量转换：多个视频文件，每个文件按一组输出配置转换，结果打包为ZIP返回
+     * <p>
+     * 同一文件的多个输出配置共用一次解码，转换在同步转换线程池上执行，超过 converter.sync.timeout 仍未完成时返回503。
+     *
+     * @param videoFiles 要转换的视频文件
+     * @param profiles   输出配置，格式为 "格式[:比特率]"，如 mp3:192000、flac
+     * @param sampleRate 采样率 (8000-192000)
+     * @param channels   声道数 (1-8)
+     * @return DeferredResult<ResponseEntity<StreamingResponseBody>> 转换完成后以流的方式返回ZIP压缩包
+     * @throws com.naz1k1.exception.TooManyJobsException 当同步转换线程全忙且等待队列已满时抛出
+     */
+    @PostMapping("/batch")
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> convertBatch(
+            @RequestParam("files") @NotEmpty(message = "请选择要转换的视频文件") List<MultipartFile> videoFiles,
+            @RequestParam(value = "profiles", defaultValue = "mp3:128000") List<String> profiles,
+            @RequestParam(value = "sampleRate", required = false)
+                @Min(value = 8000, message = "采样率不能小于8kHz") @Max(value = 192000, message = "采样率不能大于192kHz")Integer sampleRate,
+            @RequestParam(value = "channels", required = false)
+                @Min(value = 1, message = "声道数不能小于1") @Max(value = 8, message = "声道数不能大于8") Integer channels ) {
+
+        log.info("接收到批量转换请求 - 文件数: {}, 输出配置: {}", videoFiles.size(), profiles);
+
+        if (videoFiles.size() > MAX_BATCH_FILES) {
+            throw new InvalidInputException("单次最多转换" + MAX_BATCH_FILES + "个文件");
+        }
+        if (profiles.isEmpty() || profiles.size() > MAX_BATCH_PROFILES) {
+            throw new InvalidInputException("输出配置数量需在1到" + MAX_BATCH_PROFILES + "之间");
+        }
+        for (MultipartFile videoFile : videoFiles) {
+            FileValidator.validateFileSize(videoFile);
+            FileValidator.validateFileType(videoFile);
+        }
+        List<ConversionOptions> optionsList = new ArrayList<>();
+        for (String profile : profiles) {
+            optionsList.add(parseProfile(profile, sampleRate, channels));
+        }
+
+        return defer(() -> convertAll(videoFiles, optionsList),
+                entries -> {
+                    log.info("批量转换成功 - 输出文件数: {}", entries.size());
+
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(MediaType.parseMediaType("application/zip"));
+                    headers.setContentDispositionFormData("attachment", "converted.zip");
+                    return ResponseEntity.ok()
+                            .headers(headers)
+                            .body(outputStream -> streamZip(entries, outputStream));
+                },
+                entries -> entries.values().forEach(ConversionResult::close));
+    }
+
+    /**
+     * 在同步转换线程池上执行转换，转换完成后生成响应
+     * <p>
+     * 等待时间由 converter.sync.timeout 控制，与写出响应的 spring.mvc.async.request-timeout 分开计算。
+     * 超时或请求出错后，尚在排队的转换不再执行，已在执行的转换完成后立即释放结果。
+     *
+     * @param conversion 转换
+     * @param toResponse 由转换结果生成响应，响应写完后负责释放结果
+     * @param release    响应已被放弃时释放转换结果
+     * @param <T>        转换结果类型
+     * @return DeferredResult<ResponseEntity<StreamingResponseBody>> 转换完成后的响应
+     * @throws com.naz1k1.exception.TooManyJobsException 当同步转换线程全忙且等待队列已满时抛出
+     */
+    private <T> DeferredResult<ResponseEntity<StreamingResponseBody>> defer(
+            Supplier<T> conversion,
+            Function<T, ResponseEntity<StreamingResponseBody>> toResponse,
+            Consumer<T> release) {
+        DeferredResult<ResponseEntity<StreamingResponseBody>> deferred =
+                new DeferredResult<>(properties.getSync().getTimeout().toMillis());
+        AtomicBoolean abandoned = new AtomicBoolean();
+        deferred.onTimeout(() -> {
+            abandoned.set(true);
+            deferred.setErrorResult(new ConversionTimeoutException("转换超时，较大的文件请使用异步任务接口"));
+        });
+        deferred.onError(error -> abandoned.set(true));
 
-        log.info("视频转换成功 - 文件名: {}, 输出大小: {} bytes", 
-                videoFile.getOriginalFilename(), audioBytes.length);
+        syncExecutor.submit(() -> abandoned.get() ? null : conversion.get())
+                .whenComplete((value, error) -> {
+                    if (error != null) {
+                        deferred.setErrorResult(error instanceof CompletionException ? error.getCause() : error);
+                    } else if (value != null && !deferred.setResult(toResponse.apply(value))) {
+                        log.info("请求已超时或中断，释放转换结果");
+                        release.accept(value);
+                    }
+                });
+        return deferred;
+    }
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(audioBytes);
+    /**
+     * 边转换边写出：编码在同步转换线程池上执行并直接写入响应流，写出线程只等待转换结束
+     * <p>
+     * 转换任务在返回响应前提交，线程全忙且等待队列已满时同样返回429。
+     * 客户端断开或写出超时导致响应体未被执行时，请求结束即通知转换线程放弃转换，不占用转换线程；
+     * converter.sync.timeout 作为兜底的等待上限。
+     *
+     * @param videoFile 要转换的视频文件
+     * @param options   转换参数
+     * @param request   当前请求
+     * @return StreamingResponseBody 响应体
+     * @throws com.naz1k1.exception.TooManyJobsException 当同步转换线程全忙且等待队列已满时抛出
+     */
+    private StreamingResponseBody streamConversion(
+            MultipartFile videoFile, ConversionOptions options, HttpServletRequest request) {
+        CompletableFuture<OutputStream> response = new CompletableFuture<>();
+        CompletableFuture<Void> conversion = syncExecutor.submit(() -> {
+            converterService.convertToStream(videoFile, options, awaitResponse(response));
+            return null;
+        });
+        // 响应体的写出同样以异步请求执行，请求结束（含出错、超时）时响应体已执行完毕或不会再执行
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(STREAM_INTERCEPTOR_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        response.cancel(false);
+                    }
+                });
+        return outputStream -> {
+            response.complete(outputStream);
+            try {
+                conversion.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * 等待响应开始写出
+     *
+     * @param response 写出响应时得到的输出流
+     * @return OutputStream 响应输出流
+     * @throws ConversionTimeoutException 当超过 converter.sync.timeout 仍未开始写出时抛出
+     */
+    private OutputStream awaitResponse(CompletableFuture<OutputStream> response) {
+        try {
+            return response.get(properties.getSync().getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConversionTimeoutException("等待响应时被中断，放弃转换");
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            throw new ConversionTimeoutException("未开始写出响应，放弃转换");
+        }
+    }
+
+    /**
+     * 将每个视频文件按所有输出配置转换，任一转换失败时释放已有结果
+     *
+     * @param videoFiles  要转换的视频文件
+     * @param optionsList 输出配置
+     * @return Map<String, ConversionResult> ZIP条目名称与转换结果
+     */
+    private Map<String, ConversionResult> convertAll(List<MultipartFile> videoFiles, List<ConversionOptions> optionsList) {
+        Map<String, ConversionResult> entries = new LinkedHashMap<>();
+        try {
+            for (MultipartFile videoFile : videoFiles) {
+                List<ConversionResult> results = converterService.convertVideoToFormats(videoFile, optionsList);
+                for (int i = 0; i < results.size(); i++) {
+                    String entryName = getBatchEntryName(videoFile.getOriginalFilename(), optionsList, i);
+                    entries.put(uniqueEntryName(entries, entryName), results.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            entries.values().forEach(ConversionResult::close);
+            throw e;
+        }
+        return entries;
+    }
+
+    /**
+     * 将转换结果写入ZIP响应流，写完后删除临时文件
+     *
+     * @param entries      ZIP条目名称与转换结果
+     * @param outputStream 响应输出流
+     * @throws IOException 当写出响应时发生IO错误
+     */
+    private void streamZip(Map<String, ConversionResult> entries, OutputStream outputStream) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, ConversionResult> entry : entries.entrySet()) {
+                long startedAt = System.nanoTime();
+                // 音频数据已经过压缩，条目以 STORED 方式原样写入，条目头需预先给出大小和CRC32
+                Path audioFile = entry.getValue().getAudioFile();
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(Files.size(audioFile));
+                zipEntry.setCompressedSize(zipEntry.getSize());
+                zipEntry.setCrc(FileTransfer.crc32(audioFile));
+                zip.putNextEntry(zipEntry);
+                FileTransfer.transfer(audioFile, zip);
+                zip.closeEntry();
+                metrics.recordOutput(entry.getValue().getFormat(), System.nanoTime() - startedAt);
+            }
+        } finally {
+            entries.values().forEach(ConversionResult::close);
+        }
+    }
+
+    /**
+     * 探测媒体信息：客户端只发送文件开头的一段数据（如前1MB），在上传完整文件之前确认是否含音频流、
+     * 时长以及预计的转换耗时
+     *
+     * @param format     目标音频格式 (mp3/aac/wav/flac/opus/ogg)
+     * @param bitrate    音频比特率 (16000-320000)，未指定时按格式取默认值
+     * @param sampleRate 采样率 (8000-192000)
+     * @param channels   声道数 (1-8)
+     * @param length     完整文件的大小，用于判断请求体是否为完整文件，以及文件头中没有时长时估算耗时
+     * @param request    请求体为文件开头的原始数据，超出 converter.probe.max-bytes 的部分被忽略
+     * @return ResponseEntity<ProbeResponse> 探测得到的媒体信息
+     * @throws IOException 当读取请求数据失败时抛出
+     */
+    @PostMapping(value = "/probe", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ProbeResponse> probe(
+            @RequestParam(value = "format", defaultValue = "mp3")
+                @Pattern(regexp = "^(mp3|aac|wav|flac|opus|ogg)$" ,message = "不支持的音频格式") String format,
+            @RequestParam(value = "bitrate", required = false)
+                @Min(value = 16000, message = "比特率不能小于16kbps") @Max(value = 320000, message = "比特率不能大于320kps") Integer bitrate,
+            @RequestParam(value = "sampleRate", required = false)
+                @Min(value = 8000, message = "采样率不能小于8kHz") @Max(value = 192000, message = "采样率不能大于192kHz")Integer sampleRate,
+            @RequestParam(value = "channels", required = false)
+                @Min(value = 1, message = "声道数不能小于1") @Max(value = 8, message = "声道数不能大于8") Integer channels,
+            @RequestParam(value = "length", required = false)
+                @Min(value = 1, message = "文件大小必须大于0") @Max(value = 500L * 1024 * 1024, message = "文件大小超过限制（最大500MB）") Long length,
+            HttpServletRequest request) throws IOException {
+
+        AudioFormat audioFormat = AudioFormat.fromExtension(format);
+        ConversionOptions options = ConversionOptions.builder()
+                .format(audioFormat)
+                .bitrate(bitrate != null ? bitrate : audioFormat.getDefaultBitrate())
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .build();
+        MediaInfo info = mediaProbeService.probe(request.getInputStream(), length, options);
+        return ResponseEntity.ok(new ProbeResponse(info));
+    }
+
+    /**
+     * 解析输出配置
+     *
+     * @param profile    输出配置，格式为 "格式[:比特率]"
+     * @param sampleRate 采样率
+     * @param channels   声道数
+     * @return ConversionOptions 转换参数
+     * @throws InvalidInputException 当配置格式错误时抛出
+     */
+    private ConversionOptions parseProfile(String profile, Integer sampleRate, Integer channels) {
+        String[] parts = profile.trim().split(":");
+        if (parts.length > 2) {
+            throw new InvalidInputException("不支持的输出配置: " + profile);
+        }
+        AudioFormat format;
+        try {
+            format = AudioFormat.fromExtension(parts[0]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("不支持的输出配置: " + profile);
+        }
+        int bitrate = format.getDefaultBitrate();
+        if (parts.length == 2) {
+            try {
+                bitrate = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new InvalidInputException("比特率格式错误: " + profile);
+            }
+            if (bitrate < 16000 || bitrate > 320000) {
+                throw new InvalidInputException("比特率需在16kbps到320kbps之间: " + profile);
+            }
+        }
+        return ConversionOptions.builder()
+                .format(format)
+                .bitrate(bitrate)
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .build();
+    }
+
+    /**
+     * 生成批量转换的ZIP条目名称，同一格式出现多次时附加比特率区分
+     *
+     * @param originalFileName 原始文件名
+     * @param optionsList      所有输出配置
+     * @param index            当前输出配置的序号
+     * @return String ZIP条目名称
+     */
+    private String getBatchEntryName(String originalFileName, List<ConversionOptions> optionsList, int index) {
+        ConversionOptions options = optionsList.get(index);
+        String fileName = getOutputFileName(originalFileName, options.getFormat().getExtension());
+        long sameFormat = optionsList.stream()
+                .filter(other -> other.getFormat() == options.getFormat())
+                .count();
+        if (sameFormat > 1) {
+            int dot = fileName.lastIndexOf('.');
+            fileName = fileName.substring(0, dot) + "-" + options.getBitrate() / 1000 + "k" + fileName.substring(dot);
+        }
+        return fileName;
+    }
+
+    /**
+     * 避免ZIP条目重名
+     *
+     * @param entries   已有条目
+     * @param entryName 期望的条目名称
+     * @return String 不重复的条目名称
+     */
+    private String uniqueEntryName(Map<String, ConversionResult> entries, String entryName) {
+        String candidate = entryName;
+        int dot = entryName.lastIndexOf('.');
+        for (int i = 1; entries.containsKey(candidate); i++) {
+            candidate = entryName.substring(0, dot) + "-" + i + entryName.substring(dot);
+        }
+        return candidate;
+    }
+
+    /**
+     * 将转换结果写入响应流，写完后删除临时文件
+     *
+     * @param result       转换结果
+     * @param outputStream 响应输出流
+     * @throws IOException 当写出响应时发生IO错误
+     */
+    private void streamResult(ConversionResult result, OutputStream outputStream) throws IOException {
+        try (ConversionResult ignored = result) {
+            long startedAt = System.nanoTime();
+            FileTransfer.transfer(result.getAudioFile(), outputStream);
+            metrics.recordOutput(result.getFormat(), System.nanoTime() - startedAt);
+        }
     }
       
      /**
      * 构建响应头信息
      *
      * @param format        音频格式
-     * @param contentLength 内容长度
+     * @param contentLength 内容长度，未知时传入-1
      * @param fileName      文件名
      * @return HttpHeaders 响应头对象
      */
@@ -96,11 +515,23 @@ public class VideoToAudioController {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(format.getMimeType()));
         headers.setContentDispositionFormData("attachment", fileName);
-        headers.setContentLength(contentLength);
+        if (contentLength >= 0) {
+            headers.setContentLength(contentLength);
+        }
         return headers;
     }
 
     
+    /**
+     * 将请求中以秒为单位的时间转换为微秒
+     *
+     * @param seconds 秒数，可为空
+     * @return Long 微秒数，参数为空时返回null
+     */
+    private Long toMicros(Double seconds) {
+        return seconds != null ? Math.round(seconds * 1_000_000) : null;
+    }
+
     /**
      * 生成输出文件名
      *
@@ -3,14 +3,21 @@ package com.naz1k1.enums;
 import org.bytedeco.ffmpeg.global.avcodec;
 
 public enum AudioFormat {
-    MP3("mp3", avcodec.AV_CODEC_ID_MP3,"audio/mpeg"),
-    ACC("aac", avcodec.AV_CODEC_ID_AAC,"audio/acc"),
-    WAV("wav", avcodec.AV_CODEC_ID_PCM_S16LE,"audio/wav"),
-    FLAC("flac", avcodec.AV_CODEC_ID_FLAC,"audio/flac");
+    MP3("mp3", avcodec.AV_CODEC_ID_MP3,"audio/mpeg", "mp3", true, 128000, false),
+    AAC("aac", avcodec.AV_CODEC_ID_AAC,"audio/aac", "adts", true, 128000, false),
+    WAV("wav", avcodec.AV_CODEC_ID_PCM_S16LE,"audio/wav", "wav", false, 128000, true),
+    FLAC("flac", avcodec.AV_CODEC_ID_FLAC,"audio/flac", "flac", true, 128000, true),
+    /** 面向语音的低码率格式，编码快于MP3且输出更小 */
+    OPUS("opus", avcodec.AV_CODEC_ID_OPUS,"audio/ogg", "ogg", true, 32000, false),
+    VORBIS("ogg", avcodec.AV_CODEC_ID_VORBIS,"audio/ogg", "ogg", true, 96000, false);
 
     private final String extension;
     private final int codecId;
     private final String mimeType;
+    private final String muxer;
+    private final boolean streamable;
+    private final int defaultBitrate;
+    private final boolean lossless;
 
 
     /**
@@ -19,11 +26,20 @@ public enum AudioFormat {
      * @param extension 文件扩展名
      * @param codecId  编解码器ID
      * @param mimeType MIME类型
+     * @param muxer    FFmpeg封装格式名称
+     * @param streamable 封装格式是否可以写入不可回退的输出流
+     * @param defaultBitrate 未指定比特率时使用的比特率，无损格式忽略
+     * @param lossless 是否为无损格式，编码时忽略比特率
      */
-    AudioFormat(String extension, int codecId, String mimeType) {
+    AudioFormat(String extension, int codecId, String mimeType, String muxer, boolean streamable, int defaultBitrate,
+                boolean lossless) {
         this.extension = extension;
         this.codecId = codecId;
         this.mimeType = mimeType;
+        this.muxer = muxer;
+        this.streamable = streamable;
+        this.defaultBitrate = defaultBitrate;
+        this.lossless = lossless;
     }
 
     /**
@@ -53,4 +69,20 @@ public enum AudioFormat {
     public String getMimeType() {
         return mimeType;
     }
+
+    public String getMuxer() {
+        return muxer;
+    }
+
+    public boolean isStreamable() {
+        return streamable;
+    }
+
+    public int getDefaultBitrate() {
+        return defaultBitrate;
+    }
+
+    public boolean isLossless() {
+        return lossless;
+    }
 }
@@ -0,0 +1,17 @@
+package com.naz1k1.enums;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    /**
+     * 是否为终态
+     *
+     * @return boolean 任务已成功或失败时返回true
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,10 @@
+package com.naz1k1.exception;
+
+/**
+ * 同步转换接口在 converter.sync.timeout 内未完成转换
+ */
+public class ConversionTimeoutException extends RuntimeException {
+    public ConversionTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.naz1k1.exception;
+
+public class JobNotFoundException extends RuntimeException {
+    public JobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.naz1k1.exception;
+
+public class TooManyJobsException extends RuntimeException {
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 30;
+
+    private final long retryAfterSeconds;
+
+    public TooManyJobsException(String message) {
+        this(message, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    public TooManyJobsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
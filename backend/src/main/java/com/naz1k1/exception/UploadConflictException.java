@@ -0,0 +1,17 @@
+package com.naz1k1.exception;
+
+/**
+ * 分块上传的偏移量与服务端不一致，或同一上传正在被另一个请求写入
+ */
+public class UploadConflictException extends RuntimeException {
+    private final long offset;
+
+    public UploadConflictException(String message, long offset) {
+        super(message);
+        this.offset = offset;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+}
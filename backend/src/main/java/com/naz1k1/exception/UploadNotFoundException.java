@@ -0,0 +1,7 @@
+package com.naz1k1.exception;
+
+public class UploadNotFoundException extends RuntimeException {
+    public UploadNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package com.naz1k1.handler;
 import com.naz1k1.model.response.ApiError;
 import com.naz1k1.exception.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -41,6 +42,68 @@ public class GlobalExceptionHandler {
                 .body(new ApiError("输入验证失败", e.getMessage()));
     }
 
+    /**
+     * 处理任务队列已满异常
+     *
+     * @param e 任务过多异常
+     * @return ResponseEntity 包含错误信息的响应
+     */
+    @ExceptionHandler(TooManyJobsException.class)
+    public ResponseEntity<ApiError> handleTooManyJobsException(TooManyJobsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ApiError("服务繁忙", e.getMessage()));
+    }
+
+    /**
+     * 处理同步转换超时异常
+     *
+     * @param e 转换超时异常
+     * @return ResponseEntity 包含错误信息的响应
+     */
+    @ExceptionHandler(ConversionTimeoutException.class)
+    public ResponseEntity<ApiError> handleConversionTimeoutException(ConversionTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ApiError("转换超时", e.getMessage()));
+    }
+
+    /**
+     * 处理任务不存在异常
+     *
+     * @param e 任务不存在异常
+     * @return ResponseEntity 包含错误信息的响应
+     */
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ApiError> handleJobNotFoundException(JobNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ApiError("任务不存在", e.getMessage()));
+    }
+
+    /**
+     * 处理上传不存在异常
+     *
+     * @param e 上传不存在异常
+     * @return ResponseEntity 包含错误信息的响应
+     */
+    @ExceptionHandler(UploadNotFoundException.class)
+    public ResponseEntity<ApiError> handleUploadNotFoundException(UploadNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ApiError("上传不存在", e.getMessage()));
+    }
+
+    /**
+     * 处理上传偏移量冲突异常，返回服务端当前偏移量供客户端续传
+     *
+     * @param e 上传冲突异常
+     * @return ResponseEntity 包含错误信息的响应
+     */
+    @ExceptionHandler(UploadConflictException.class)
+    public ResponseEntity<ApiError> handleUploadConflictException(UploadConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("Upload-Offset", String.valueOf(e.getOffset()))
+                .body(new ApiError("上传冲突", e.getMessage()));
+    }
+
     /**
      * 处理转换异常
      *
@@ -0,0 +1,92 @@
+package com.naz1k1.model;
+
+import com.naz1k1.enums.JobStatus;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * 异步转换任务，状态字段在工作线程与请求线程之间共享
+ */
+@Getter
+public class ConversionJob {
+    private final String id;
+    private final String originalFileName;
+    private final ConversionOptions options;
+    private final Path videoFile;
+    private final long createdAt;
+    /** 估算的转换开销（墙钟秒） */
+    private final double estimatedCost;
+    /** 是否进入快速通道 */
+    private final boolean fastLane;
+    /** 分块上传的输入，上传完成前即可开始转换；普通上传时为null */
+    private final UploadSession upload;
+    private final ConversionProgress progress = new ConversionProgress();
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile ConversionResult result;
+    private volatile String errorMessage;
+    private volatile Long finishedAt;
+
+    public ConversionJob(
+            String id,
+            String originalFileName,
+            ConversionOptions options,
+            Path videoFile,
+            double estimatedCost,
+            boolean fastLane,
+            UploadSession upload) {
+        this(id, originalFileName, options, videoFile, estimatedCost, fastLane, upload, System.currentTimeMillis());
+    }
+
+    /**
+     * 还原已在其他节点提交的任务，保留原提交时间
+     */
+    public ConversionJob(
+            String id,
+            String originalFileName,
+            ConversionOptions options,
+            Path videoFile,
+            double estimatedCost,
+            boolean fastLane,
+            UploadSession upload,
+            long createdAt) {
+        this.id = id;
+        this.originalFileName = originalFileName;
+        this.options = options;
+        this.videoFile = videoFile;
+        this.estimatedCost = estimatedCost;
+        this.fastLane = fastLane;
+        this.upload = upload;
+        this.createdAt = createdAt;
+    }
+
+    public void markRunning() {
+        this.status = JobStatus.RUNNING;
+    }
+
+    public void markSucceeded(ConversionResult result) {
+        markSucceeded(result, System.currentTimeMillis());
+    }
+
+    /**
+     * @param finishedAt 完成时间，多节点部署时取执行节点记录的时间，各节点返回相同的 Last-Modified
+     */
+    public void markSucceeded(ConversionResult result, long finishedAt) {
+        this.result = result;
+        this.progress.finish();
+        this.finishedAt = finishedAt;
+        this.status = JobStatus.SUCCEEDED;
+    }
+
+    public void markFailed(String errorMessage) {
+        markFailed(errorMessage, System.currentTimeMillis());
+    }
+
+    public void markFailed(String errorMessage, long finishedAt) {
+        this.errorMessage = errorMessage;
+        this.progress.finish();
+        this.finishedAt = finishedAt;
+        this.status = JobStatus.FAILED;
+    }
+}
@@ -0,0 +1,68 @@
+package com.naz1k1.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.naz1k1.enums.AudioFormat;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * 音频转换参数，多节点部署时随任务序列化到共享队列
+ */
+@Value
+@Builder
+@Jacksonized
+public class ConversionOptions {
+    /** 目标音频格式 */
+    AudioFormat format;
+    /** 音频比特率 */
+    int bitrate;
+    /** 采样率，为空时沿用源文件 */
+    Integer sampleRate;
+    /** 声道数，为空时沿用源文件 */
+    Integer channels;
+    /** 截取起点（微秒），为空时从头开始 */
+    Long startMicros;
+    /** 截取时长（微秒），为空时截取到结尾 */
+    Long durationMicros;
+    /** 是否按 EBU R128 标准化响度 */
+    boolean normalizeLoudness;
+    /** 是否去除开头的静音和中间、结尾较长的静音 */
+    boolean trimSilence;
+    /** 是否在转换的同时计算波形峰值 */
+    boolean waveform;
+
+    /**
+     * 是否只转换一段时间范围
+     *
+     * @return boolean 指定了截取起点或时长时返回true
+     */
+    @JsonIgnore
+    public boolean isTrimmed() {
+        return startMicros != null || durationMicros != null;
+    }
+
+    /**
+     * 是否需要经过滤镜处理
+     *
+     * @return boolean 启用响度标准化或去除静音时返回true
+     */
+    @JsonIgnore
+    public boolean isFiltered() {
+        return normalizeLoudness || trimSilence;
+    }
+
+    /**
+     * 计算截取范围内的媒体时长
+     *
+     * @param sourceMicros 源文件时长（微秒），未知时为0或负数
+     * @return long 截取范围与源文件重叠部分的时长，源文件时长未知时返回指定的截取时长或原值
+     */
+    public long clipLength(long sourceMicros) {
+        if (sourceMicros <= 0) {
+            return durationMicros != null ? durationMicros : sourceMicros;
+        }
+        long remaining = Math.max(0, sourceMicros - (startMicros != null ? startMicros : 0));
+        return durationMicros != null ? Math.min(durationMicros, remaining) : remaining;
+    }
+}
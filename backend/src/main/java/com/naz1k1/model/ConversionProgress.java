@@ -0,0 +1,100 @@
+package com.naz1k1.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 转换进度，由转换线程按批累加，由查询和推送线程读取
+ * <p>
+ * 转换循环每处理一批帧才调用一次 {@link #advance(long, long)}，读取方按自己的频率取值，
+ * 进度上报不会阻塞或拖慢转换。
+ */
+public class ConversionProgress {
+    private final AtomicLong framesProcessed = new AtomicLong();
+    private final AtomicLong encodedMicros = new AtomicLong();
+    private volatile long durationMicros;
+    private volatile long startedAtNanos;
+    private volatile long finishedAtNanos;
+
+    /**
+     * 开始计时
+     *
+     * @param durationMicros 输入音频总时长（微秒），未知时为0
+     */
+    public void start(long durationMicros) {
+        this.durationMicros = Math.max(0, durationMicros);
+        this.startedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * 停止计时，之后的速度按转换用时计算
+     */
+    public void finish() {
+        if (startedAtNanos != 0 && finishedAtNanos == 0) {
+            this.finishedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 累加已处理的帧数和媒体时长，分段编码时多个线程可同时调用
+     *
+     * @param frames 新处理的帧数
+     * @param micros 新编码的媒体时长（微秒）
+     */
+    public void advance(long frames, long micros) {
+        framesProcessed.addAndGet(frames);
+        encodedMicros.addAndGet(micros);
+    }
+
+    public long getFramesProcessed() {
+        return framesProcessed.get();
+    }
+
+    public long getEncodedMicros() {
+        return encodedMicros.get();
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public boolean isStarted() {
+        return startedAtNanos != 0;
+    }
+
+    /**
+     * @return double 完成百分比（0-100），总时长未知时返回-1
+     */
+    public double getPercent() {
+        long duration = durationMicros;
+        if (duration <= 0) {
+            return -1;
+        }
+        return Math.min(100.0, encodedMicros.get() * 100.0 / duration);
+    }
+
+    /**
+     * @return double 编码速度（实时倍数），尚未开始时返回0
+     */
+    public double getSpeed() {
+        long startedAt = startedAtNanos;
+        if (startedAt == 0) {
+            return 0;
+        }
+        long finishedAt = finishedAtNanos;
+        long elapsedMicros = ((finishedAt != 0 ? finishedAt : System.nanoTime()) - startedAt) / 1000;
+        return elapsedMicros > 0 ? (double) encodedMicros.get() / elapsedMicros : 0;
+    }
+
+    /**
+     * @return long 预计剩余时间（毫秒），无法估算时返回-1
+     */
+    public long getEtaMillis() {
+        double speed = getSpeed();
+        long duration = durationMicros;
+        if (speed <= 0 || duration <= 0) {
+            return -1;
+        }
+        long remainingMicros = Math.max(0, duration - encodedMicros.get());
+        return (long) (remainingMicros / speed / 1000);
+    }
+}
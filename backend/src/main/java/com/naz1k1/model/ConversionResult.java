@@ -0,0 +1,45 @@
+package com.naz1k1.model;
+
+import com.naz1k1.enums.AudioFormat;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 转换结果，持有磁盘上的音频临时文件，由调用方负责在使用完毕后释放
+ */
+@Slf4j
+@Getter
+public class ConversionResult implements AutoCloseable {
+    private final Path audioFile;
+    private final AudioFormat format;
+    private final long size;
+    /** 波形峰值，未请求时为null */
+    private final WaveformPeaks peaks;
+
+    public ConversionResult(Path audioFile, AudioFormat format) throws IOException {
+        this(audioFile, format, null);
+    }
+
+    public ConversionResult(Path audioFile, AudioFormat format, WaveformPeaks peaks) throws IOException {
+        this.audioFile = audioFile;
+        this.format = format;
+        this.size = Files.size(audioFile);
+        this.peaks = peaks;
+    }
+
+    /**
+     * 删除音频临时文件
+     */
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(audioFile);
+        } catch (IOException e) {
+            log.warn("清理临时文件失败: {}", audioFile, e);
+        }
+    }
+}
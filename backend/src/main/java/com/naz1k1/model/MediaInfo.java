@@ -0,0 +1,28 @@
+package com.naz1k1.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 从文件头探测得到的媒体信息
+ */
+@Value
+@Builder
+public class MediaInfo {
+    /** 封装格式名称，如 mov,mp4,m4a,3gp,3g2,mj2 */
+    String container;
+    /** 时长（微秒），文件头中没有时长信息时为null */
+    Long durationMicros;
+    /** 音频编码名称 */
+    String audioCodec;
+    /** 音频采样率 */
+    int sampleRate;
+    /** 音频声道数 */
+    int channels;
+    /** 音频比特率，未知时为0 */
+    int audioBitrate;
+    /** 是否包含视频流 */
+    boolean hasVideo;
+    /** 按目标格式估算的转换墙钟耗时（秒），时长未知时为null */
+    Double estimatedCost;
+}
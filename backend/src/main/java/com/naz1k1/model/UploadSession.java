@@ -0,0 +1,292 @@
+package com.naz1k1.model;
+
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.exception.UploadConflictException;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 可续传的分块上传：各分块按偏移量直接写入同一个文件
+ * <p>
+ * 转换可以在上传完成前开始，{@link #openStream(long)} 返回的输入流读到尚未上传的位置时等待数据到达。
+ */
+@Getter
+public class UploadSession {
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+
+    private final String id;
+    private final String fileName;
+    private final Path file;
+    private final long length;
+    private final long createdAt;
+
+    private final FileChannel channel;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    /** 上传进度变化和中止时通知等待数据的读取方 */
+    private final Object progressLock = new Object();
+
+    /** 数据到达阈值或上传中止时执行一次的回调，受 progressLock 保护 */
+    private Runnable availableAction;
+    private long availableThreshold;
+
+    private volatile long offset;
+    private volatile long lastActivity;
+    private volatile boolean aborted;
+    private volatile String jobId;
+
+    public UploadSession(String id, String fileName, Path file, long length) throws IOException {
+        this.id = id;
+        this.fileName = fileName;
+        this.file = file;
+        this.length = length;
+        this.createdAt = System.currentTimeMillis();
+        this.lastActivity = createdAt;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public boolean isComplete() {
+        return offset == length;
+    }
+
+    /**
+     * 将一个分块写入文件，连接中断时已写入的部分仍然有效，客户端可从新的偏移量继续
+     *
+     * @param expectedOffset 客户端声明的分块起始偏移量
+     * @param body           分块数据
+     * @return long 写入后的偏移量
+     * @throws UploadConflictException 当偏移量与服务端不一致或上传正在被写入时抛出
+     * @throws InvalidInputException   当数据超出声明的总长度时抛出
+     * @throws IOException             当读取请求或写入文件失败时抛出
+     */
+    public long write(long expectedOffset, ReadableByteChannel body) throws IOException {
+        if (!writing.compareAndSet(false, true)) {
+            throw new UploadConflictException("该上传正在被另一个请求写入", offset);
+        }
+        try {
+            if (aborted) {
+                throw new UploadConflictException("上传已终止", offset);
+            }
+            if (expectedOffset != offset) {
+                throw new UploadConflictException("上传偏移量不一致", offset);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BUFFER_SIZE);
+            long position = offset;
+            while (true) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), length - position + 1));
+                int read = body.read(buffer);
+                if (read == -1) {
+                    break;
+                }
+                if (position + read > length) {
+                    throw new InvalidInputException("上传数据超出声明的长度");
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                advance(position);
+            }
+            return position;
+        } finally {
+            lastActivity = System.currentTimeMillis();
+            writing.set(false);
+        }
+    }
+
+    /**
+     * 终止上传，等待数据的读取方随即失败
+     */
+    public void abort() {
+        Runnable action;
+        synchronized (progressLock) {
+            aborted = true;
+            progressLock.notifyAll();
+            action = takeAvailableAction();
+        }
+        if (action != null) {
+            action.run();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 文件随后会被删除
+        }
+    }
+
+    /**
+     * 关闭并删除上传文件
+     *
+     * @throws IOException 当删除失败时抛出
+     */
+    public void delete() throws IOException {
+        abort();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * 打开读取上传数据的输入流，读到尚未上传的位置时阻塞等待
+     *
+     * @param stallTimeoutMillis 等待新数据的最长时间，超时后读取失败
+     * @return InputStream 支持 mark/reset/skip 随机访问的输入流，关闭时不会关闭上传文件
+     */
+    public InputStream openStream(long stallTimeoutMillis) {
+        return new UploadInputStream(stallTimeoutMillis);
+    }
+
+    /**
+     * 在已接收的数据达到指定字节数（或上传完成、中止）时执行回调，条件已满足时立即在当前线程执行
+     * <p>
+     * 回调在写入分块的请求线程上执行，不应阻塞；同一时刻只保留一个回调，后注册的替换先注册的。
+     *
+     * @param bytes  需要已接收的字节数，超过总长度时按总长度计算
+     * @param action 回调，执行时需自行检查 {@link #isAborted()}
+     */
+    public void whenAvailable(long bytes, Runnable action) {
+        synchronized (progressLock) {
+            if (!aborted && offset < Math.min(bytes, length)) {
+                availableThreshold = Math.min(bytes, length);
+                availableAction = action;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private void advance(long position) {
+        Runnable action = null;
+        synchronized (progressLock) {
+            offset = position;
+            lastActivity = System.currentTimeMillis();
+            progressLock.notifyAll();
+            if (availableAction != null && offset >= availableThreshold) {
+                action = takeAvailableAction();
+            }
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    private Runnable takeAvailableAction() {
+        Runnable action = availableAction;
+        availableAction = null;
+        return action;
+    }
+
+    /**
+     * 等待指定位置的数据写入
+     *
+     * @param position           需要读取的位置
+     * @param stallTimeoutMillis 上传无进展时的最长等待时间
+     * @throws IOException 当上传中止或等待超时时抛出
+     */
+    private void awaitData(long position, long stallTimeoutMillis) throws IOException {
+        synchronized (progressLock) {
+            long lastOffset = offset;
+            long deadline = System.currentTimeMillis() + stallTimeoutMillis;
+            while (offset <= position && !aborted) {
+                if (offset != lastOffset) {
+                    lastOffset = offset;
+                    deadline = System.currentTimeMillis() + stallTimeoutMillis;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("等待上传数据超时: " + id);
+                }
+                try {
+                    progressLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("等待上传数据被中断", e);
+                }
+            }
+            if (aborted) {
+                throw new IOException("上传已终止: " + id);
+            }
+        }
+    }
+
+    /**
+     * 按位置读取上传文件的输入流，总长度取声明的上传长度
+     */
+    private class UploadInputStream extends InputStream {
+        private final long stallTimeoutMillis;
+        private long position;
+        private long mark;
+
+        UploadInputStream(long stallTimeoutMillis) {
+            this.stallTimeoutMillis = stallTimeoutMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= length) {
+                return -1;
+            }
+            if (position >= offset) {
+                awaitData(position, stallTimeoutMillis);
+            }
+            int count = (int) Math.min(len, offset - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, count), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (n <= 0) {
+                return 0;
+            }
+            // FFmpegFrameGrabber 以 skip(Long.MAX_VALUE) 定位到文件末尾，需避免溢出
+            long skipped = Math.min(n, Math.max(length - position, 0));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(offset - position, 0));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.naz1k1.model;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 波形峰值：把音频按固定采样数分组，每组记录所有声道中的最小值和最大值，量化为8位
+ * <p>
+ * 与 audiowaveform 的数据格式一致，可序列化为其二进制 .dat 格式（版本2）或交给 peaks.js 等前端组件直接绘制。
+ */
+@Getter
+public class WaveformPeaks {
+    private static final int DAT_VERSION = 2;
+    /** .dat 文件头的 flags：第0位为1表示8位数据 */
+    private static final int DAT_FLAG_8_BIT = 1;
+    private static final int DAT_HEADER_SIZE = 24;
+
+    /** 计算峰值时的采样率 */
+    private final int sampleRate;
+    /** 每组（每个像素）的采样数 */
+    private final int samplesPerPixel;
+    /** 按组依次排列的最小值、最大值，范围 -128 到 127 */
+    private final byte[] data;
+
+    public WaveformPeaks(int sampleRate, int samplesPerPixel, byte[] data) {
+        this.sampleRate = sampleRate;
+        this.samplesPerPixel = samplesPerPixel;
+        this.data = data;
+    }
+
+    /**
+     * @return int 组数
+     */
+    public int getLength() {
+        return data.length / 2;
+    }
+
+    /**
+     * 序列化为 audiowaveform 二进制格式（版本2，小端序，单声道8位）
+     *
+     * @return byte[] .dat 文件内容
+     */
+    public byte[] toDat() {
+        ByteBuffer buffer = ByteBuffer.allocate(DAT_HEADER_SIZE + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(DAT_VERSION)
+                .putInt(DAT_FLAG_8_BIT)
+                .putInt(sampleRate)
+                .putInt(samplesPerPixel)
+                .putInt(getLength())
+                .putInt(1)
+                .put(data);
+        return buffer.array();
+    }
+
+    /**
+     * 从 {@link #toDat()} 的输出还原
+     *
+     * @param dat .dat 文件内容
+     * @return WaveformPeaks 波形峰值
+     * @throws IllegalArgumentException 当数据不是单声道8位的版本2格式时抛出
+     */
+    public static WaveformPeaks fromDat(byte[] dat) {
+        ByteBuffer buffer = ByteBuffer.wrap(dat).order(ByteOrder.LITTLE_ENDIAN);
+        if (dat.length < DAT_HEADER_SIZE || buffer.getInt() != DAT_VERSION || buffer.getInt() != DAT_FLAG_8_BIT) {
+            throw new IllegalArgumentException("不支持的波形数据格式");
+        }
+        int sampleRate = buffer.getInt();
+        int samplesPerPixel = buffer.getInt();
+        int length = buffer.getInt();
+        if (buffer.getInt() != 1 || buffer.remaining() != length * 2) {
+            throw new IllegalArgumentException("不支持的波形数据格式");
+        }
+        byte[] data = new byte[length * 2];
+        buffer.get(data);
+        return new WaveformPeaks(sampleRate, samplesPerPixel, data);
+    }
+}
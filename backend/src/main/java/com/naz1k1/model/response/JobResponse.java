@@ -0,0 +1,30 @@
+package com.naz1k1.model.response;
+
+import com.naz1k1.enums.JobStatus;
+import com.naz1k1.model.ConversionJob;
+import lombok.Data;
+
+@Data
+public class JobResponse {
+    private final String jobId;
+    private final JobStatus status;
+    private final String format;
+    private final double estimatedCost;
+    private final Long outputSize;
+    private final String errorMessage;
+    private final Long createdAt;
+    private final Long finishedAt;
+    private final ProgressResponse progress;
+
+    public JobResponse(ConversionJob job) {
+        this.jobId = job.getId();
+        this.status = job.getStatus();
+        this.format = job.getOptions().getFormat().getExtension();
+        this.estimatedCost = Math.round(job.getEstimatedCost() * 100) / 100.0;
+        this.outputSize = job.getResult() != null ? job.getResult().getSize() : null;
+        this.errorMessage = job.getErrorMessage();
+        this.createdAt = job.getCreatedAt();
+        this.finishedAt = job.getFinishedAt();
+        this.progress = job.getProgress().isStarted() ? new ProgressResponse(job.getProgress()) : null;
+    }
+}
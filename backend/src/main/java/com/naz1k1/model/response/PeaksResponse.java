@@ -0,0 +1,33 @@
+package com.naz1k1.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.naz1k1.model.WaveformPeaks;
+import lombok.Data;
+
+/**
+ * 波形峰值，字段与 audiowaveform 的 JSON 格式一致，可直接交给 peaks.js 等组件
+ */
+@Data
+public class PeaksResponse {
+    private final int version = 2;
+    private final int channels = 1;
+    @JsonProperty("sample_rate")
+    private final int sampleRate;
+    @JsonProperty("samples_per_pixel")
+    private final int samplesPerPixel;
+    private final int bits = 8;
+    private final int length;
+    /** 按组依次排列的最小值、最大值；byte[] 会被 Jackson 序列化为 Base64，因此按数值数组输出 */
+    private final int[] data;
+
+    public PeaksResponse(WaveformPeaks peaks) {
+        this.sampleRate = peaks.getSampleRate();
+        this.samplesPerPixel = peaks.getSamplesPerPixel();
+        this.length = peaks.getLength();
+        byte[] values = peaks.getData();
+        this.data = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            data[i] = values[i];
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.naz1k1.model.response;
+
+import com.naz1k1.model.MediaInfo;
+import lombok.Data;
+
+@Data
+public class ProbeResponse {
+    private final String container;
+    private final Double durationSeconds;
+    private final String audioCodec;
+    private final int sampleRate;
+    private final int channels;
+    private final Integer audioBitrate;
+    private final boolean hasVideo;
+    private final Long estimatedConversionMillis;
+
+    public ProbeResponse(MediaInfo info) {
+        this.container = info.getContainer();
+        this.durationSeconds = info.getDurationMicros() != null ? info.getDurationMicros() / 1_000_000.0 : null;
+        this.audioCodec = info.getAudioCodec();
+        this.sampleRate = info.getSampleRate();
+        this.channels = info.getChannels();
+        this.audioBitrate = info.getAudioBitrate() > 0 ? info.getAudioBitrate() : null;
+        this.hasVideo = info.isHasVideo();
+        this.estimatedConversionMillis = info.getEstimatedCost() != null
+                ? Math.round(info.getEstimatedCost() * 1000) : null;
+    }
+}
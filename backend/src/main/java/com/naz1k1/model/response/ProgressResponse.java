@@ -0,0 +1,26 @@
+package com.naz1k1.model.response;
+
+import com.naz1k1.model.ConversionProgress;
+import lombok.Data;
+
+@Data
+public class ProgressResponse {
+    private final long framesProcessed;
+    private final double encodedSeconds;
+    private final Double durationSeconds;
+    private final Double percent;
+    private final Double speed;
+    private final Long etaMillis;
+
+    public ProgressResponse(ConversionProgress progress) {
+        this.framesProcessed = progress.getFramesProcessed();
+        this.encodedSeconds = progress.getEncodedMicros() / 1_000_000.0;
+        this.durationSeconds = progress.getDurationMicros() > 0 ? progress.getDurationMicros() / 1_000_000.0 : null;
+        double percent = progress.getPercent();
+        this.percent = percent >= 0 ? Math.round(percent * 100) / 100.0 : null;
+        double speed = progress.getSpeed();
+        this.speed = speed > 0 ? Math.round(speed * 100) / 100.0 : null;
+        long etaMillis = progress.getEtaMillis();
+        this.etaMillis = etaMillis >= 0 ? etaMillis : null;
+    }
+}
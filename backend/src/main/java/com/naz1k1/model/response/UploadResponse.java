@@ -0,0 +1,19 @@
+package com.naz1k1.model.response;
+
+import com.naz1k1.model.UploadSession;
+import lombok.Data;
+
+@Data
+public class UploadResponse {
+    private final String uploadId;
+    private final String jobId;
+    private final long offset;
+    private final long length;
+
+    public UploadResponse(UploadSession upload) {
+        this.uploadId = upload.getId();
+        this.jobId = upload.getJobId();
+        this.offset = upload.getOffset();
+        this.length = upload.getLength();
+    }
+}
@@ -0,0 +1,182 @@
+package com.naz1k1.service;
+
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.util.SampleBufferPool;
+import lombok.Getter;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 按时间范围 [start, end) 转换音频：跳转到起点之前，再只记录范围内的采样
+ * <p>
+ * 截取和分段编码的各分段共用；边界精确到采样点，相邻范围的边界互补，拼接后不重复也不丢失采样。
+ */
+@Getter
+final class ClipRange {
+    /** 跳转时在起点之前提前解码的时长，保证解码器在起点前已稳定 */
+    private static final long SEEK_PREROLL_MICROS = 500_000;
+
+    /** 起点（微秒，包含），Long.MIN_VALUE 表示不设下界 */
+    private final long startMicros;
+    /** 终点（微秒，不包含），Long.MAX_VALUE 表示不设上界 */
+    private final long endMicros;
+
+    ClipRange(long startMicros, long endMicros) {
+        this.startMicros = startMicros;
+        this.endMicros = endMicros;
+    }
+
+    /**
+     * 转换参数中的截取范围；未截取或从0开始时不设下界，避免丢失时间戳略小于0的首帧，未指定时长时不设上界
+     *
+     * @param options 转换参数
+     * @return ClipRange 截取范围
+     */
+    static ClipRange of(ConversionOptions options) {
+        Long start = options.getStartMicros();
+        long startMicros = start != null && start > 0 ? start : Long.MIN_VALUE;
+        long endMicros = options.getDurationMicros() != null
+                ? (start != null ? start : 0) + options.getDurationMicros()
+                : Long.MAX_VALUE;
+        return new ClipRange(startMicros, endMicros);
+    }
+
+    /**
+     * 校验截取范围，起点是否在媒体时长以内只在时长已知时校验
+     *
+     * @param options      转换参数
+     * @param lengthMicros 媒体时长（微秒），未知时不大于0
+     * @throws InvalidInputException 当起点为负、时长不为正或起点不早于媒体结尾时抛出
+     */
+    static void validate(ConversionOptions options, long lengthMicros) {
+        if (options.getStartMicros() != null && options.getStartMicros() < 0) {
+            throw new InvalidInputException("截取起点不能小于0");
+        }
+        if (options.getDurationMicros() != null && options.getDurationMicros() <= 0) {
+            throw new InvalidInputException("截取时长必须大于0");
+        }
+        if (options.getStartMicros() != null && lengthMicros > 0 && options.getStartMicros() >= lengthMicros) {
+            throw new InvalidInputException("截取起点超出媒体时长");
+        }
+    }
+
+    /**
+     * 跳转到起点之前最近的关键帧，并预留一段解码时长，起点不大于预留时长时从头解码
+     *
+     * @param grabber 已启动的帧抓取器
+     * @throws IOException 当跳转失败时抛出
+     */
+    void seek(FFmpegFrameGrabber grabber) throws IOException {
+        if (startMicros > SEEK_PREROLL_MICROS) {
+            grabber.setTimestamp(startMicros - SEEK_PREROLL_MICROS);
+        }
+    }
+
+    /**
+     * 只转换范围内的音频，到达终点后停止抓取
+     *
+     * @param grabber   已跳转到起点之前的帧抓取器
+     * @param recorder  帧记录器
+     * @param cancelled 返回true时停止转换
+     * @param stats     转换统计
+     * @throws IOException 当处理帧时发生IO错误或转换被取消时抛出
+     */
+    void convert(FFmpegFrameGrabber grabber, FrameRecorder recorder, BooleanSupplier cancelled, ConversionStats stats)
+            throws IOException {
+        convert(grabber, recorder, this, cancelled, stats);
+    }
+
+    /**
+     * 转换范围内的音频，只有 counted 范围内的时长计入统计
+     *
+     * @param grabber   已跳转到起点之前的帧抓取器
+     * @param recorder  帧记录器
+     * @param counted   计入统计的范围，分段在边界前后多编码的部分不计入
+     * @param cancelled 返回true时停止转换
+     * @param stats     转换统计
+     * @throws IOException 当处理帧时发生IO错误或转换被取消时抛出
+     */
+    void convert(
+            FFmpegFrameGrabber grabber,
+            FrameRecorder recorder,
+            ClipRange counted,
+            BooleanSupplier cancelled,
+            ConversionStats stats) throws IOException {
+        Frame frame;
+        long decodeStartedAt = System.nanoTime();
+        while ((frame = grabber.grabSamples()) != null) {
+            if (cancelled.getAsBoolean()) {
+                throw new IOException("转换已取消");
+            }
+            long encodeStartedAt = System.nanoTime();
+            stats.addDecode(encodeStartedAt - decodeStartedAt);
+            if (frame.samples == null) {
+                decodeStartedAt = System.nanoTime();
+                continue;
+            }
+            boolean more = record(recorder, frame);
+            // 只计入范围内的时长；帧数只计起点及之后开始的帧，跨越分段起点的帧由上一分段计数，
+            // 预解码的帧不计入，分段编码的帧数与单遍转换一致
+            long frameEnd = frame.timestamp + frameMicros(frame);
+            long rangeMicros = Math.min(frameEnd, counted.endMicros) - Math.max(frame.timestamp, counted.startMicros);
+            if (rangeMicros > 0 && frame.timestamp >= counted.startMicros) {
+                stats.addFrame(rangeMicros);
+            } else if (rangeMicros > 0) {
+                stats.addMedia(rangeMicros);
+            }
+            decodeStartedAt = System.nanoTime();
+            stats.addEncode(decodeStartedAt - encodeStartedAt);
+            if (!more) {
+                break;
+            }
+        }
+        stats.flush();
+    }
+
+    /**
+     * 只记录音频帧中落在范围内的采样
+     *
+     * @param recorder 帧记录器
+     * @param frame    音频帧
+     * @return boolean 尚未到达终点、需要继续抓取时返回true
+     * @throws IOException 当写入失败时抛出
+     */
+    boolean record(FrameRecorder recorder, Frame frame) throws IOException {
+        int stride = frame.samples.length == 1 ? frame.audioChannels : 1;
+        long frameSamples = frame.samples[0].remaining() / stride;
+        long from = startMicros > frame.timestamp
+                ? microsToSamples(startMicros - frame.timestamp, frame.sampleRate) : 0;
+        long to = endMicros == Long.MAX_VALUE
+                ? frameSamples
+                : Math.min(frameSamples, microsToSamples(endMicros - frame.timestamp, frame.sampleRate));
+
+        if (to <= 0) {
+            return false;
+        }
+        if (from >= frameSamples) {
+            return true;
+        }
+        recorder.record(SampleBufferPool.copyOf(frame, (int) from, (int) to));
+        return to == frameSamples;
+    }
+
+    /**
+     * 计算音频帧的时长
+     *
+     * @param frame 音频帧
+     * @return long 帧时长（微秒）
+     */
+    static long frameMicros(Frame frame) {
+        int stride = frame.samples.length == 1 ? frame.audioChannels : 1;
+        return frame.samples[0].remaining() / stride * 1_000_000L / frame.sampleRate;
+    }
+
+    private static long microsToSamples(long micros, int sampleRate) {
+        return micros * sampleRate / 1_000_000L;
+    }
+}
@@ -0,0 +1,88 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 编解码线程预算：按正在进行的转换数平分CPU核数，避免每个转换都按 threads=auto 创建与核数相同的线程
+ * <p>
+ * 每个转换开始时领取一份额度，编解码器打开后线程数不能再调整，因此额度在领取时确定：
+ * 取平均份额与尚未分配的核数中的较小值，核数分完后新转换只保底分到1个线程，
+ * 已分配的线程数不会随转换数成倍超出核数；分段编码和多格式并行编码的并行度同样受额度限制。
+ */
+@Component
+public class CodecThreadBudget {
+    private final int cores;
+    /** 进行中的转换数，与已分配线程数一起在锁内更新 */
+    private int activeLeases;
+    private final AtomicInteger allocatedThreads = new AtomicInteger();
+
+    public CodecThreadBudget(ConverterProperties properties, MeterRegistry registry) {
+        this.cores = Math.max(1, properties.getThreads().getCores());
+        Gauge.builder("converter.threads.allocated", allocatedThreads, AtomicInteger::get)
+                .description("已分配给进行中转换的编解码线程数")
+                .register(registry);
+        Gauge.builder("converter.threads.per.conversion", this, CodecThreadBudget::currentShare)
+                .description("新开始的转换可分到的编解码线程数")
+                .register(registry);
+    }
+
+    /**
+     * 为一个转换领取线程额度，转换结束时需关闭返回的额度
+     *
+     * @return Lease 线程额度
+     */
+    public synchronized Lease acquire() {
+        int threads = share(activeLeases + 1);
+        activeLeases++;
+        allocatedThreads.addAndGet(threads);
+        return new Lease(threads);
+    }
+
+    private synchronized int currentShare() {
+        return share(activeLeases + 1);
+    }
+
+    /**
+     * 计算新转换可分到的线程数
+     *
+     * @param active 包括新转换在内的进行中转换数
+     * @return int 平均份额与剩余核数中的较小值，至少为1
+     */
+    private int share(int active) {
+        return Math.max(1, Math.min(cores / active, cores - allocatedThreads.get()));
+    }
+
+    private synchronized void release(int threads) {
+        activeLeases--;
+        allocatedThreads.addAndGet(-threads);
+    }
+
+    /**
+     * 一个转换持有的线程额度
+     */
+    public class Lease implements AutoCloseable {
+        private final int threads;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(int threads) {
+            this.threads = threads;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(threads);
+            }
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.WaveformPeaks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基于内容寻址的转换结果磁盘缓存
+ * <p>
+ * 缓存键由输入文件内容的SHA-256和转换参数共同决定，总大小超过上限时按最近最少使用淘汰。
+ * 命中和写入时都通过硬链接在缓存目录和临时文件之间共享数据，淘汰缓存不会影响正在返回的结果。
+ * 波形峰值作为独立条目与音频文件并列存放，文件名包含峰值的分辨率，与音频条目一同淘汰；
+ * 请求了波形峰值而当前分辨率的峰值条目不存在时按未命中处理。
+ */
+@Slf4j
+@Component
+public class ConversionCache {
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+    private static final String STAGING_PREFIX = "staging-";
+    private static final String PEAKS_SUFFIX = ".peaks";
+    /** 缓存键格式版本，键中包含的字段或编码参数的含义变化时递增，旧条目随之失效 */
+    private static final String KEY_VERSION = "v2";
+
+    private final ConverterProperties.Cache config;
+    private final ConverterProperties.Filters filters;
+    private final ConverterProperties.Waveform waveform;
+    private final Counter hits;
+    private final Counter misses;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+
+    public ConversionCache(ConverterProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getCache();
+        this.filters = properties.getFilters();
+        this.waveform = properties.getWaveform();
+        this.hits = Counter.builder("converter.cache.requests").tag("result", "hit")
+                .description("转换结果缓存查询次数")
+                .register(meterRegistry);
+        this.misses = Counter.builder("converter.cache.requests").tag("result", "miss")
+                .description("转换结果缓存查询次数")
+                .register(meterRegistry);
+        Gauge.builder("converter.cache.size", this, ConversionCache::getTotalSize)
+                .description("转换结果缓存占用的磁盘空间")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 加载缓存目录中已有的文件，按最后访问时间恢复淘汰顺序
+     *
+     * @throws IOException 当创建或读取缓存目录失败时抛出
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Files.createDirectories(config.getDirectory());
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(config.getDirectory())) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(file -> !isStaging(file))
+                    .sorted(Comparator.comparing(this::lastModified))
+                    .collect(Collectors.toList());
+        }
+        synchronized (this) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                entries.put(file.getFileName().toString(), new Entry(size));
+                totalSize += size;
+            }
+            evict();
+        }
+        log.info("转换结果缓存已加载 - 目录: {}, 条目数: {}, 大小: {} bytes",
+                config.getDirectory(), entries.size(), totalSize);
+    }
+
+    /**
+     * 计算输入文件内容的SHA-256
+     *
+     * @param videoFile 输入视频文件
+     * @return String 十六进制摘要
+     * @throws IOException 当读取输入文件失败时抛出
+     */
+    public String hashContent(Path videoFile) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(videoFile, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * 计算缓存键，同一输入转换为多种格式时内容摘要只需计算一次
+     * <p>
+     * 只包含影响输出音频的参数：波形峰值等附带结果不参与，同一音频不会因此重复缓存，
+     * 无损格式编码时忽略比特率，比特率也不参与；
+     * 峰值条目的键另外包含分辨率，见 {@link #peaksKey(String)}；
+     * 启用滤镜时包含滤镜的配置，修改目标响度等配置后不会命中旧结果。
+     *
+     * @param contentHash 输入文件内容摘要
+     * @param options     转换参数
+     * @return String 缓存键，同时用作缓存文件名
+     */
+    public String computeKey(String contentHash, ConversionOptions options) {
+        MessageDigest digest = newDigest();
+        digest.update(contentHash.getBytes(StandardCharsets.UTF_8));
+        digest.update(describeOutput(options).getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest()) + "." + options.getFormat().getExtension();
+    }
+
+    /**
+     * 按固定顺序描述决定输出音频内容的参数
+     *
+     * @param options 转换参数
+     * @return String 参数描述，未指定的参数记为空，无损格式不包含比特率
+     */
+    String describeOutput(ConversionOptions options) {
+        StringBuilder description = new StringBuilder(KEY_VERSION)
+                .append("|format=").append(options.getFormat().getExtension());
+        if (!options.getFormat().isLossless()) {
+            description.append("|bitrate=").append(options.getBitrate());
+        }
+        description.append("|sampleRate=").append(nullToEmpty(options.getSampleRate()))
+                .append("|channels=").append(nullToEmpty(options.getChannels()))
+                .append("|start=").append(nullToEmpty(options.getStartMicros()))
+                .append("|duration=").append(nullToEmpty(options.getDurationMicros()));
+        if (options.isTrimSilence()) {
+            description.append("|silenceremove=").append(filters.getSilenceThreshold())
+                    .append(',').append(filters.getSilenceMinDuration().toMillis())
+                    .append(',').append(filters.getSilenceKeep().toMillis());
+        }
+        if (options.isNormalizeLoudness()) {
+            description.append("|loudnorm=").append(filters.getIntegratedLoudness())
+                    .append(',').append(filters.getTruePeak())
+                    .append(',').append(filters.getLoudnessRange());
+        }
+        return description.toString();
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param videoFile 输入视频文件
+     * @param options   转换参数
+     * @return String 缓存键，同时用作缓存文件名
+     * @throws IOException 当读取输入文件失败时抛出
+     */
+    public String computeKey(Path videoFile, ConversionOptions options) throws IOException {
+        return computeKey(hashContent(videoFile), options);
+    }
+
+    /**
+     * 查找缓存结果
+     *
+     * @param key     缓存键
+     * @param options 转换参数
+     * @return Optional<ConversionResult> 命中时返回指向缓存文件副本的结果，调用方负责关闭
+     */
+    public Optional<ConversionResult> get(String key, ConversionOptions options) {
+        Path cached = config.getDirectory().resolve(key);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+        }
+
+        Path tempAudioFile = null;
+        try {
+            WaveformPeaks peaks = null;
+            if (options.isWaveform()) {
+                Optional<WaveformPeaks> cachedPeaks = getPeaks(key);
+                if (!cachedPeaks.isPresent()) {
+                    misses.increment();
+                    return Optional.empty();
+                }
+                peaks = cachedPeaks.get();
+            }
+            tempAudioFile = Files.createTempFile("audio-", "." + options.getFormat().getExtension());
+            linkOrCopy(cached, tempAudioFile);
+            Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return Optional.of(new ConversionResult(tempAudioFile, options.getFormat(), peaks));
+        } catch (IOException | IllegalArgumentException e) {
+            // 缓存文件可能已被并发淘汰，按未命中处理；条目已被重新写入时保留新条目
+            log.warn("读取缓存文件失败: {}", cached, e);
+            deleteQuietly(tempAudioFile);
+            remove(key, entry);
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 将转换结果写入缓存
+     *
+     * @param key    缓存键
+     * @param result 转换结果，写入后仍由调用方持有
+     */
+    public void put(String key, ConversionResult result) {
+        if (result.getSize() > config.getMaxSize().toBytes()) {
+            return;
+        }
+        Path cached = config.getDirectory().resolve(key);
+        try {
+            Path staging = Files.createTempFile(config.getDirectory(), STAGING_PREFIX, ".tmp");
+            Files.delete(staging);
+            linkOrCopy(result.getAudioFile(), staging);
+            Files.move(staging, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (result.getPeaks() != null) {
+                // 先写入峰值再登记音频条目，命中音频时峰值已就绪
+                putPeaks(key, result.getPeaks());
+            }
+        } catch (IOException e) {
+            log.warn("写入缓存失败: {}", cached, e);
+            return;
+        }
+
+        register(key, result.getSize());
+    }
+
+    /**
+     * 写入波形峰值条目
+     *
+     * @param key   音频条目的缓存键
+     * @param peaks 波形峰值
+     * @throws IOException 当写入失败时抛出
+     */
+    private void putPeaks(String key, WaveformPeaks peaks) throws IOException {
+        if (peaks.getSamplesPerPixel() != waveform.getSamplesPerPixel()) {
+            return;
+        }
+        byte[] dat = peaks.toDat();
+        Path staging = Files.createTempFile(config.getDirectory(), STAGING_PREFIX, ".tmp");
+        Files.write(staging, dat);
+        Files.move(staging, config.getDirectory().resolve(peaksKey(key)),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        register(peaksKey(key), dat.length);
+    }
+
+    /**
+     * 读取波形峰值条目
+     *
+     * @param key 音频条目的缓存键
+     * @return Optional<WaveformPeaks> 峰值条目不存在时为空
+     * @throws IOException 当读取失败时抛出
+     */
+    private Optional<WaveformPeaks> getPeaks(String key) throws IOException {
+        String peaksKey = peaksKey(key);
+        synchronized (this) {
+            if (entries.get(peaksKey) == null) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(WaveformPeaks.fromDat(Files.readAllBytes(config.getDirectory().resolve(peaksKey))));
+    }
+
+    /**
+     * 波形峰值条目的键：音频条目的键加上峰值分辨率，修改 converter.waveform.samples-per-pixel 后不会命中旧峰值
+     *
+     * @param key 音频条目的缓存键
+     * @return String 峰值条目的键，同时用作文件名
+     */
+    private String peaksKey(String key) {
+        return key + "." + waveform.getSamplesPerPixel() + PEAKS_SUFFIX;
+    }
+
+    private synchronized void register(String key, long size) {
+        Entry previous = entries.put(key, new Entry(size));
+        totalSize += size - (previous != null ? previous.size : 0);
+        evict();
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * 淘汰最近最少使用的条目直到总大小不超过上限，调用方需持有锁
+     */
+    private void evict() {
+        long maxSize = config.getMaxSize().toBytes();
+        while (totalSize > maxSize && !entries.isEmpty()) {
+            String eldest = entries.keySet().iterator().next();
+            remove(eldest);
+            log.debug("淘汰缓存条目: {}", eldest);
+        }
+    }
+
+    /**
+     * 移除条目并删除缓存文件，移除音频条目时一并移除其波形峰值条目
+     *
+     * @param key 缓存键
+     */
+    private synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalSize -= entry.size;
+        }
+        deleteQuietly(config.getDirectory().resolve(key));
+        if (!key.endsWith(PEAKS_SUFFIX)) {
+            remove(peaksKey(key));
+        }
+    }
+
+    /**
+     * 条目仍是查找时读到的那一个时才移除，已被淘汰后重新写入的条目不受影响
+     *
+     * @param key   缓存键
+     * @param entry 查找时读到的条目
+     */
+    private synchronized void remove(String key, Entry entry) {
+        if (entries.get(key) == entry) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 优先创建硬链接，跨文件系统时退化为复制
+     */
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.deleteIfExists(target);
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 写入过程中残留的暂存文件，加载时直接清理
+     */
+    private boolean isStaging(Path file) {
+        if (file.getFileName().toString().startsWith(STAGING_PREFIX)) {
+            deleteQuietly(file);
+            return true;
+        }
+        return false;
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("清理缓存文件失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 缓存条目，每次写入都创建新的对象，按对象判断条目在查找之后是否被替换
+     */
+    private static final class Entry {
+        private final long size;
+
+        Entry(long size) {
+            this.size = size;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
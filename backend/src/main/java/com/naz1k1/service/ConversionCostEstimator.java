@@ -0,0 +1,143 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 转换开销估算：探测输入的时长、采样率和声道数，按目标格式的编码速度估算单线程转换的墙钟耗时
+ * <p>
+ * 各格式"每秒媒体时长所需的秒数"以单线程实测值为初值，任务完成后按实际耗时修正。
+ * 修正依据的是转换的墙钟时间而非CPU时间：单线程转换两者相近，分段编码多核并行时墙钟时间偏短，
+ * 会使系数略微降低；单次修正的倍数限制在 {@link #MIN_RATIO} 到 {@link #MAX_RATIO} 之间，
+ * 个别异常耗时（GC停顿、磁盘阻塞）不会使系数成倍变化。
+ */
+@Slf4j
+@Component
+public class ConversionCostEstimator {
+    /** 实际耗时对估算系数的修正权重 */
+    private static final double LEARNING_RATE = 0.2;
+    /** 参与修正的实际耗时与估算之比的下限和上限 */
+    private static final double MIN_RATIO = 0.25;
+    private static final double MAX_RATIO = 4;
+    /** 与时长无关的固定开销：打开输入、初始化编码器、写出文件尾 */
+    private static final double FIXED_OVERHEAD_SECONDS = 0.05;
+    private static final double REFERENCE_SAMPLE_RATE = 44100;
+    private static final double REFERENCE_CHANNELS = 2;
+    /** 无法探测时假定的视频平均码率（1Mbps），按大小推算时长 */
+    private static final double ASSUMED_BYTES_PER_SECOND = 125_000;
+    /** 响度标准化在立体声下每秒媒体时长的额外耗时（秒），loudnorm 内部以192kHz处理，与源采样率无关 */
+    private static final double LOUDNORM_COST = 0.03;
+
+    private static final Map<AudioFormat, Double> INITIAL_COST = new EnumMap<>(AudioFormat.class);
+
+    static {
+        // 44.1kHz 立体声下每秒媒体时长的编码耗时（秒），含解码
+        INITIAL_COST.put(AudioFormat.MP3, 0.035);
+        INITIAL_COST.put(AudioFormat.AAC, 0.025);
+        INITIAL_COST.put(AudioFormat.FLAC, 0.005);
+        INITIAL_COST.put(AudioFormat.WAV, 0.004);
+        INITIAL_COST.put(AudioFormat.OPUS, 0.02);
+        INITIAL_COST.put(AudioFormat.VORBIS, 0.015);
+    }
+
+    private final Map<AudioFormat, Double> costPerMediaSecond = new ConcurrentHashMap<>(INITIAL_COST);
+
+    /**
+     * 探测视频文件并估算转换开销
+     *
+     * @param videoFile 视频文件路径
+     * @param options   转换参数
+     * @return double 预计的墙钟耗时（秒）
+     * @throws InvalidInputException 当文件无法解析或不含音频流时抛出
+     */
+    public double estimate(Path videoFile, ConversionOptions options) {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile.toFile());
+        try {
+            grabber.setOption("analyzeduration", "10M");
+            grabber.start();
+            if (grabber.getAudioChannels() <= 0) {
+                throw new InvalidInputException("视频中没有音频流");
+            }
+            // 截取片段时只解码截取范围，开销按片段时长计算
+            double mediaSeconds = Math.max(0, options.clipLength(grabber.getLengthInTime())) / 1_000_000.0;
+            return estimate(mediaSeconds, grabber.getSampleRate(), grabber.getAudioChannels(), options);
+        } catch (IOException e) {
+            throw new InvalidInputException("无法解析视频文件: " + e.getMessage());
+        } finally {
+            try {
+                grabber.release();
+            } catch (IOException e) {
+                log.warn("关闭grabber时发生错误", e);
+            }
+        }
+    }
+
+    /**
+     * 按已知的源音频参数估算转换开销
+     *
+     * @param mediaSeconds     源音频时长（秒）
+     * @param sourceSampleRate 源音频采样率
+     * @param sourceChannels   源音频声道数
+     * @param options          转换参数
+     * @return double 预计的墙钟耗时（秒）
+     */
+    public double estimate(double mediaSeconds, int sourceSampleRate, int sourceChannels, ConversionOptions options) {
+        int sampleRate = options.getSampleRate() != null ? options.getSampleRate() : sourceSampleRate;
+        int channels = options.getChannels() != null ? options.getChannels() : sourceChannels;
+        double scale = Math.max(sampleRate, sourceSampleRate) / REFERENCE_SAMPLE_RATE
+                * Math.max(channels, sourceChannels) / REFERENCE_CHANNELS;
+
+        double perSecond = scale * costPerMediaSecond.get(options.getFormat());
+        if (options.isNormalizeLoudness()) {
+            perSecond += LOUDNORM_COST * Math.max(channels, sourceChannels) / REFERENCE_CHANNELS;
+        }
+        double cost = FIXED_OVERHEAD_SECONDS + mediaSeconds * perSecond;
+        log.debug("转换开销估算 - 时长: {}s, 格式: {}, 估算: {}s",
+                mediaSeconds, options.getFormat().getExtension(), cost);
+        return cost;
+    }
+
+    /**
+     * 按文件大小估算转换开销，不打开输入，用于提交时的准入判断和无法探测的输入
+     *
+     * @param bytes   视频文件大小
+     * @param options 转换参数
+     * @return double 预计的墙钟耗时（秒）
+     */
+    public double estimateFromSize(long bytes, ConversionOptions options) {
+        // 截取片段时只解码截取范围，开销按片段时长计算
+        long assumedMicros = (long) (bytes / ASSUMED_BYTES_PER_SECOND * 1_000_000);
+        double mediaSeconds = Math.max(0, options.clipLength(assumedMicros)) / 1_000_000.0;
+        double perSecond = costPerMediaSecond.get(options.getFormat())
+                + (options.isNormalizeLoudness() ? LOUDNORM_COST : 0);
+        return FIXED_OVERHEAD_SECONDS + mediaSeconds * perSecond;
+    }
+
+    /**
+     * 按实际耗时修正目标格式的估算系数，实际耗时与估算之比先限制在 [0.25, 4] 内
+     *
+     * @param format           目标格式
+     * @param estimatedSeconds 提交时的估算值（秒）
+     * @param actualSeconds    实际转换的墙钟耗时（秒），不应包含排队或等待上传的时间
+     */
+    public void observe(AudioFormat format, double estimatedSeconds, double actualSeconds) {
+        if (estimatedSeconds <= FIXED_OVERHEAD_SECONDS || actualSeconds <= 0) {
+            return;
+        }
+        double ratio = Math.max(0, actualSeconds - FIXED_OVERHEAD_SECONDS)
+                / (estimatedSeconds - FIXED_OVERHEAD_SECONDS);
+        double clamped = Math.max(MIN_RATIO, Math.min(MAX_RATIO, ratio));
+        costPerMediaSecond.computeIfPresent(format,
+                (key, cost) -> cost * (1 - LEARNING_RATE) + cost * clamped * LEARNING_RATE);
+    }
+}
@@ -0,0 +1,446 @@
+package com.naz1k1.service;
+
+import com.naz1k1.cluster.ClusterJobDispatcher;
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.exception.JobNotFoundException;
+import com.naz1k1.exception.TooManyJobsException;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.UploadSession;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 异步转换任务管理：在固定数量的工作线程上执行转换，等待队列有界，队列满时拒绝新任务
+ * <p>
+ * 启用准入控制时，提交时按文件大小估算转换的墙钟耗时（请求线程上不打开输入）：排队和执行中任务的
+ * 估算开销总和不超过预算，超出时拒绝并给出重试时间；估算开销小的任务进入快速通道，优先执行，
+ * 且部分工作线程只执行快速通道任务，大任务堆积时短任务仍能立即开始。
+ * 工作线程开始转换前再探测输入得到准确估算，用于按实际耗时修正估算系数。
+ * <p>
+ * 分块上传的任务在收到足以探测的数据前不进入队列，等待期间不占用工作线程，但计入队列容量和开销预算。
+ * <p>
+ * 多节点部署（converter.cluster.enabled）时普通上传的任务发布到共享队列，由工作节点执行，
+ * 本节点不认识的任务按共享存储中的记录还原，任一节点都可查询和下载；分块上传的任务仍在本节点执行，
+ * 本节点同时执行共享队列任务时，本地工作线程数扣除 converter.cluster.workers（至少保留1个）。
+ */
+@Slf4j
+@Service
+public class ConversionJobService {
+
+    private final ConverterService converterService;
+    private final ConversionCostEstimator costEstimator;
+    private final ConverterProperties.Jobs config;
+    private final ConverterProperties.Admission admission;
+    private final ConverterProperties.Uploads uploads;
+    private final ConverterProperties.Cluster cluster;
+    /** 多节点部署时的任务分发，单节点部署时为null */
+    private final ClusterJobDispatcher dispatcher;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+    private final Deque<ConversionJob> fastLane = new ArrayDeque<>();
+    private final Deque<ConversionJob> slowLane = new ArrayDeque<>();
+    /** 已受理、等待分块上传数据到达的任务 */
+    private final Set<ConversionJob> awaitingUpload = new HashSet<>();
+    private final List<Thread> workers = new ArrayList<>();
+    /** 本地工作线程数 */
+    private final int workerCount;
+    /** 可同时执行普通通道任务的工作线程数 */
+    private final int maxSlowRunning;
+    private int running;
+    private int slowRunning;
+    /** 排队和执行中任务的估算开销总和（墙钟秒） */
+    private double committedCost;
+    private boolean shutdown;
+
+    public ConversionJobService(ConverterService converterService,
+                                ConversionCostEstimator costEstimator,
+                                ConverterProperties properties,
+                                MeterRegistry meterRegistry,
+                                ObjectProvider<ClusterJobDispatcher> dispatcher) {
+        this.converterService = converterService;
+        this.costEstimator = costEstimator;
+        this.config = properties.getJobs();
+        this.admission = properties.getAdmission();
+        this.uploads = properties.getUploads();
+        this.cluster = properties.getCluster();
+        this.dispatcher = dispatcher.getIfAvailable();
+        this.workerCount = this.dispatcher != null && cluster.isWorker()
+                ? Math.max(1, config.getWorkers() - cluster.getWorkers())
+                : config.getWorkers();
+        this.maxSlowRunning = admission.isEnabled()
+                ? Math.max(1, workerCount - admission.getReservedFastWorkers())
+                : workerCount;
+
+        for (int i = 1; i <= workerCount; i++) {
+            Thread thread = new Thread(this::workLoop, "converter-worker-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+
+        Gauge.builder("converter.jobs.queue.depth", this, service -> service.queueDepth(true))
+                .description("等待执行的转换任务数")
+                .tag("lane", "fast")
+                .register(meterRegistry);
+        Gauge.builder("converter.jobs.queue.depth", this, service -> service.queueDepth(false))
+                .description("等待执行的转换任务数")
+                .tag("lane", "slow")
+                .register(meterRegistry);
+        Gauge.builder("converter.jobs.awaiting.upload", this, ConversionJobService::awaitingUploadCount)
+                .description("等待分块上传数据的转换任务数")
+                .register(meterRegistry);
+        Gauge.builder("converter.jobs.active", this, ConversionJobService::activeCount)
+                .description("正在执行的转换任务数")
+                .register(meterRegistry);
+        Gauge.builder("converter.jobs.utilization", this,
+                        service -> (double) service.activeCount() / service.workerCount)
+                .description("工作线程利用率")
+                .register(meterRegistry);
+        Gauge.builder("converter.jobs.committed.cost", this, ConversionJobService::committedCost)
+                .description("排队和执行中任务的估算墙钟耗时")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交转换任务
+     *
+     * @param videoFile 上传的视频文件
+     * @param options   转换参数
+     * @return ConversionJob 已入队的任务
+     * @throws TooManyJobsException 当等待队列已满或超出开销预算时抛出
+     * @throws com.naz1k1.exception.ConversionException 当多节点部署时分发任务失败时抛出
+     */
+    public ConversionJob submit(MultipartFile videoFile, ConversionOptions options) {
+        if (queueDepth() >= config.getQueueCapacity()) {
+            // 队列已满时在保存上传文件之前快速拒绝
+            throw new TooManyJobsException("转换任务过多，请稍后重试");
+        }
+
+        Path tempVideoFile = converterService.saveUpload(videoFile);
+        ConversionJob job;
+        try {
+            double cost = admission.isEnabled() ? costEstimator.estimateFromSize(videoFile.getSize(), options) : 0;
+            boolean fast = admission.isEnabled() && cost <= admission.getFastLaneMaxCost().toMillis() / 1000.0;
+            job = new ConversionJob(
+                    UUID.randomUUID().toString(), videoFile.getOriginalFilename(), options, tempVideoFile, cost, fast, null);
+            if (dispatcher != null) {
+                // 开销预算按节点计算，共享队列只受其容量限制
+                dispatcher.dispatch(job);
+                jobs.put(job.getId(), job);
+                deleteQuietly(tempVideoFile);
+            } else {
+                enqueue(job);
+            }
+        } catch (RuntimeException e) {
+            deleteQuietly(tempVideoFile);
+            throw e;
+        }
+
+        log.info("转换任务已入队 - 任务ID: {}, 文件名: {}, 估算开销: {}s, 快速通道: {}",
+                job.getId(), job.getOriginalFileName(), String.format("%.2f", job.getEstimatedCost()), job.isFastLane());
+        return job;
+    }
+
+    /**
+     * 为分块上传提交转换任务，收到足以探测的数据后任务才进入队列，转换可在上传完成前开始
+     * <p>
+     * 提交时还没有可探测的数据，开销按声明的上传长度估算。等待数据期间任务计入队列容量和开销预算，
+     * 上传中止或超过 stall-timeout 无进展时任务失败并释放占用的额度。
+     *
+     * @param upload  分块上传会话
+     * @param options 转换参数
+     * @return ConversionJob 已入队的任务
+     * @throws TooManyJobsException 当等待队列已满或超出开销预算时抛出
+     */
+    public ConversionJob submitUpload(UploadSession upload, ConversionOptions options) {
+        double cost = admission.isEnabled() ? costEstimator.estimateFromSize(upload.getLength(), options) : 0;
+        boolean fast = admission.isEnabled() && cost <= admission.getFastLaneMaxCost().toMillis() / 1000.0;
+        ConversionJob job = new ConversionJob(
+                UUID.randomUUID().toString(), upload.getFileName(), options, upload.getFile(), cost, fast, upload);
+        enqueue(job);
+        upload.whenAvailable(uploads.getStartAfter().toBytes(), () -> release(job));
+
+        log.info("分块上传转换任务已入队 - 任务ID: {}, 上传ID: {}, 估算开销: {}s",
+                job.getId(), upload.getId(), String.format("%.2f", job.getEstimatedCost()));
+        return job;
+    }
+
+    /**
+     * 按通道入队，超出队列容量或开销预算时拒绝
+     * <p>
+     * 节点空闲时即使单个任务的估算开销超过预算也会接受，避免大文件永远无法转换。
+     * 分块上传的任务先进入等待数据的集合，由 {@link #release(ConversionJob)} 移入队列。
+     *
+     * @param job 要入队的任务
+     * @throws TooManyJobsException 当等待队列已满或超出开销预算时抛出
+     */
+    private void enqueue(ConversionJob job) {
+        synchronized (lock) {
+            if (shutdown || fastLane.size() + slowLane.size() + awaitingUpload.size() >= config.getQueueCapacity()) {
+                throw new TooManyJobsException("转换任务过多，请稍后重试");
+            }
+            double budget = admission.getWallTimeBudget().toMillis() / 1000.0;
+            if (admission.isEnabled() && committedCost > 0 && committedCost + job.getEstimatedCost() > budget) {
+                // 按全部工作线程消化超出部分所需的时间估算重试间隔
+                double excess = committedCost + job.getEstimatedCost() - budget;
+                long retryAfter = Math.max(1, (long) Math.ceil(excess / workerCount));
+                throw new TooManyJobsException("转换任务负载过高，请稍后重试", retryAfter);
+            }
+
+            committedCost += job.getEstimatedCost();
+            jobs.put(job.getId(), job);
+            if (job.getUpload() != null) {
+                awaitingUpload.add(job);
+                return;
+            }
+            (job.isFastLane() ? fastLane : slowLane).add(job);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 分块上传收到足以探测的数据后将任务移入队列，上传已中止时任务失败
+     *
+     * @param job 等待上传数据的任务
+     */
+    private void release(ConversionJob job) {
+        synchronized (lock) {
+            if (!awaitingUpload.remove(job)) {
+                return;
+            }
+            if (!job.getUpload().isAborted() && !shutdown) {
+                (job.isFastLane() ? fastLane : slowLane).add(job);
+                lock.notifyAll();
+                return;
+            }
+            committedCost = Math.max(0, committedCost - job.getEstimatedCost());
+        }
+        log.warn("分块上传在转换开始前终止 - 任务ID: {}, 上传ID: {}", job.getId(), job.getUpload().getId());
+        job.markFailed("上传已终止或长时间无进展");
+    }
+
+    /**
+     * 获取任务，多节点部署时本节点不认识的任务从共享存储还原
+     *
+     * @param jobId 任务ID
+     * @return ConversionJob 对应的任务
+     * @throws JobNotFoundException 当任务不存在或已过期时抛出
+     * @throws com.naz1k1.exception.ConversionException 当多节点部署时读取共享存储失败时抛出
+     */
+    public ConversionJob getJob(String jobId) {
+        ConversionJob job = jobs.get(jobId);
+        if (job == null && dispatcher != null) {
+            job = dispatcher.load(jobId)
+                    .map(loaded -> jobs.computeIfAbsent(jobId, id -> loaded))
+                    .orElse(null);
+        }
+        if (job == null) {
+            throw new JobNotFoundException("任务不存在或已过期: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * 工作线程主循环
+     */
+    private void workLoop() {
+        ConversionJob job;
+        while ((job = take()) != null) {
+            try {
+                run(job);
+            } finally {
+                synchronized (lock) {
+                    running--;
+                    if (!job.isFastLane()) {
+                        slowRunning--;
+                    }
+                    committedCost = Math.max(0, committedCost - job.getEstimatedCost());
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出下一个任务：快速通道优先，普通通道任务只在执行数未达上限时取出
+     *
+     * @return ConversionJob 下一个任务，服务关闭时返回null
+     */
+    private ConversionJob take() {
+        synchronized (lock) {
+            while (!shutdown) {
+                if (!fastLane.isEmpty()) {
+                    running++;
+                    return fastLane.poll();
+                }
+                if (!slowLane.isEmpty() && slowRunning < maxSlowRunning) {
+                    running++;
+                    slowRunning++;
+                    return slowLane.poll();
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 执行转换任务
+     *
+     * @param job 要执行的任务
+     */
+    private void run(ConversionJob job) {
+        job.markRunning();
+        try {
+            // 提交时只按文件大小估算，开始前探测输入得到用于修正估算系数的准确估算；
+            // 可续传上传的耗时包含等待客户端分块的时间，不用于修正，无需探测
+            double probedCost = admission.isEnabled() && job.getUpload() == null
+                    ? costEstimator.estimate(job.getVideoFile(), job.getOptions())
+                    : 0;
+            long startedAt = System.nanoTime();
+            ConversionResult result = job.getUpload() != null
+                    ? converterService.convertUpload(job.getUpload(), job.getOptions(), job.getProgress())
+                    : converterService.convertFile(job.getVideoFile(), job.getOptions(), job.getProgress());
+            job.markSucceeded(result);
+            if (job.getProgress().isStarted() && probedCost > 0) {
+                // 命中缓存时没有实际转换，不用于修正估算
+                costEstimator.observe(job.getOptions().getFormat(), probedCost, (System.nanoTime() - startedAt) / 1e9);
+            }
+            log.info("转换任务完成 - 任务ID: {}, 输出大小: {} bytes", job.getId(), result.getSize());
+        } catch (Exception e) {
+            log.error("转换任务失败 - 任务ID: {}", job.getId(), e);
+            job.markFailed("视频转换过程中发生错误");
+        } finally {
+            if (job.getUpload() != null) {
+                // 转换结束后拒绝后续分块
+                job.getUpload().abort();
+            }
+            deleteQuietly(job.getVideoFile());
+        }
+    }
+
+    private int queueDepth() {
+        synchronized (lock) {
+            return fastLane.size() + slowLane.size() + awaitingUpload.size();
+        }
+    }
+
+    private int awaitingUploadCount() {
+        synchronized (lock) {
+            return awaitingUpload.size();
+        }
+    }
+
+    private int queueDepth(boolean fast) {
+        synchronized (lock) {
+            return fast ? fastLane.size() : slowLane.size();
+        }
+    }
+
+    private int activeCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    private double committedCost() {
+        synchronized (lock) {
+            return committedCost;
+        }
+    }
+
+    /**
+     * 定期清理过期任务及其结果文件，终止长时间收不到数据的分块上传任务，
+     * 多节点部署时由其他节点执行的任务超过 job-timeout 仍未结束时按失败处理
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredJobs() {
+        long stallDeadline = System.currentTimeMillis() - uploads.getStallTimeout().toMillis();
+        List<ConversionJob> stalled = new ArrayList<>();
+        synchronized (lock) {
+            for (ConversionJob job : awaitingUpload) {
+                if (job.getUpload().getLastActivity() < stallDeadline) {
+                    stalled.add(job);
+                }
+            }
+        }
+        // 中止上传会触发 release，任务随之失败并释放占用的额度
+        stalled.forEach(job -> job.getUpload().abort());
+
+        long timeoutDeadline = System.currentTimeMillis() - cluster.getJobTimeout().toMillis();
+        jobs.values().forEach(job -> {
+            if (dispatcher != null && job.getUpload() == null
+                    && !job.getStatus().isFinished() && job.getCreatedAt() < timeoutDeadline) {
+                log.warn("转换任务超时 - 任务ID: {}, 状态: {}", job.getId(), job.getStatus());
+                job.markFailed("转换任务超时");
+            }
+        });
+
+        long deadline = System.currentTimeMillis() - config.getResultTtl().toMillis();
+        jobs.values().removeIf(job -> {
+            if (job.getStatus().isFinished() && job.getFinishedAt() < deadline) {
+                if (job.getResult() != null) {
+                    job.getResult().close();
+                }
+                log.debug("清理过期任务: {}", job.getId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+        workers.forEach(Thread::interrupt);
+        jobs.values().forEach(job -> {
+            deleteQuietly(job.getVideoFile());
+            if (job.getResult() != null) {
+                job.getResult().close();
+            }
+        });
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            // 从共享存储还原的任务没有本地输入
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("清理临时文件失败: {}", file, e);
+        }
+    }
+}
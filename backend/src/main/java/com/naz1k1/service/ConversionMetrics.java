@@ -0,0 +1,186 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.ConversionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 转换流程指标
+ * <p>
+ * converter.stage.duration 按 stage 标签区分各阶段耗时：
+ * upload（上传落盘）、probe（打开输入并探测流信息）、decode（解码，流复制时为读取数据包）、
+ * encode（编码，流复制时为写入数据包）、output（读出结果写入响应）。
+ * 分段编码时 decode/encode 为各分段耗时之和，一次解码输出多种格式时 format 标签为 batch。
+ * <p>
+ * converter.conversions.duration 和 converter.bytes.out 按 cache 标签区分实际转换（miss）和命中缓存（hit），
+ * 命中缓存时耗时为计算缓存键和取出结果的时间，没有阶段耗时和实时倍数。
+ */
+@Component
+public class ConversionMetrics {
+    public static final String STAGE_UPLOAD = "upload";
+    public static final String STAGE_PROBE = "probe";
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_ENCODE = "encode";
+    public static final String STAGE_OUTPUT = "output";
+
+    /** 一次解码输出多种格式时的 format 标签 */
+    public static final String FORMAT_BATCH = "batch";
+    private static final String FORMAT_NONE = "none";
+    private static final String CACHE_HIT = "hit";
+    private static final String CACHE_MISS = "miss";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger activeConversions = new AtomicInteger();
+    private final DistributionSummary bytesIn;
+
+    public ConversionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("converter.conversions.active", activeConversions, AtomicInteger::get)
+                .description("正在进行的转换数")
+                .register(registry);
+        this.bytesIn = DistributionSummary.builder("converter.bytes.in")
+                .description("上传的视频大小")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void conversionStarted() {
+        activeConversions.incrementAndGet();
+    }
+
+    public void conversionFinished() {
+        activeConversions.decrementAndGet();
+    }
+
+    /**
+     * 记录上传数据
+     *
+     * @param nanos 落盘耗时（纳秒），未落盘时为0
+     * @param bytes 上传大小
+     */
+    public void recordUpload(long nanos, long bytes) {
+        bytesIn.record(bytes);
+        if (nanos > 0) {
+            recordStage(STAGE_UPLOAD, FORMAT_NONE, nanos);
+        }
+    }
+
+    /**
+     * 记录单个阶段耗时
+     *
+     * @param stage  阶段名称
+     * @param format 格式标签
+     * @param nanos  耗时（纳秒）
+     */
+    public void recordStage(String stage, String format, long nanos) {
+        Timer.builder("converter.stage.duration")
+                .description("转换各阶段耗时")
+                .tag("stage", stage)
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录读出结果的耗时
+     *
+     * @param format 音频格式
+     * @param nanos  耗时（纳秒）
+     */
+    public void recordOutput(AudioFormat format, long nanos) {
+        recordStage(STAGE_OUTPUT, format.getExtension(), nanos);
+    }
+
+    /**
+     * 记录一次转换中探测、解码和编码阶段的耗时
+     *
+     * @param stats  转换统计
+     * @param format 格式标签
+     */
+    void recordStages(ConversionStats stats, String format) {
+        recordStage(STAGE_PROBE, format, stats.getProbeNanos());
+        recordStage(STAGE_DECODE, format, stats.getDecodeNanos());
+        recordStage(STAGE_ENCODE, format, stats.getEncodeNanos());
+    }
+
+    /**
+     * 记录一次成功的转换
+     *
+     * @param format       音频格式
+     * @param mediaMicros  转换的媒体时长（微秒）
+     * @param elapsedNanos 转换耗时（纳秒）
+     * @param outputBytes  输出大小
+     */
+    public void recordConversion(AudioFormat format, long mediaMicros, long elapsedNanos, long outputBytes) {
+        String tag = format.getExtension();
+        recordResult(tag, CACHE_MISS, elapsedNanos, outputBytes);
+        if (mediaMicros > 0 && elapsedNanos > 0) {
+            DistributionSummary.builder("converter.realtime.factor")
+                    .description("转换速度，媒体时长与转换耗时之比")
+                    .tag("format", tag)
+                    .register(registry)
+                    .record(mediaMicros * 1000.0 / elapsedNanos);
+        }
+    }
+
+    /**
+     * 记录一次命中缓存的转换
+     *
+     * @param format       音频格式
+     * @param elapsedNanos 计算缓存键和取出结果的耗时（纳秒）
+     * @param outputBytes  输出大小
+     */
+    public void recordCacheHit(AudioFormat format, long elapsedNanos, long outputBytes) {
+        recordResult(format.getExtension(), CACHE_HIT, elapsedNanos, outputBytes);
+    }
+
+    private void recordResult(String format, String cache, long elapsedNanos, long outputBytes) {
+        Timer.builder("converter.conversions.duration")
+                .description("转换总耗时")
+                .tag("format", format)
+                .tag("cache", cache)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("converter.bytes.out")
+                .description("输出的音频大小")
+                .baseUnit("bytes")
+                .tag("format", format)
+                .tag("cache", cache)
+                .register(registry)
+                .record(outputBytes);
+    }
+
+    /**
+     * 记录转换失败，cause 标签为最内层的非 ConversionException 异常类型
+     *
+     * @param format 音频格式
+     * @param error  转换异常
+     */
+    public void recordFailure(AudioFormat format, Throwable error) {
+        Counter.builder("converter.conversions.failures")
+                .description("转换失败次数")
+                .tag("format", format != null ? format.getExtension() : FORMAT_NONE)
+                .tag("cause", causeName(error))
+                .register(registry)
+                .increment();
+    }
+
+    private static String causeName(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof ConversionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        String name = cause.getClass().getName();
+        return name.substring(name.lastIndexOf('.') + 1).replace('$', '.');
+    }
+}
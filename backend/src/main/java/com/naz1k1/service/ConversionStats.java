@@ -0,0 +1,119 @@
+package com.naz1k1.service;
+
+import com.naz1k1.model.ConversionProgress;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 单次转换在转换线程本地累计的统计：各阶段耗时和已编码的媒体时长
+ * <p>
+ * 进度每 {@link #PROGRESS_BATCH_FRAMES} 帧才写入一次共享的 {@link ConversionProgress}，
+ * 阶段耗时在转换结束后一次性写入指标，转换循环中不访问任何共享状态。
+ */
+@Slf4j
+class ConversionStats {
+    /** 转换循环每处理这么多帧才上报一次进度 */
+    static final int PROGRESS_BATCH_FRAMES = 64;
+
+    private final ConversionProgress progress;
+    private long probeNanos;
+    private long decodeNanos;
+    private long encodeNanos;
+    private long mediaMicros;
+    private long batchFrames;
+    private long batchMicros;
+
+    /**
+     * @param progress 转换进度，为null时不上报
+     */
+    ConversionStats(ConversionProgress progress) {
+        this.progress = progress;
+    }
+
+    ConversionProgress getProgress() {
+        return progress;
+    }
+
+    void addProbe(long nanos) {
+        probeNanos += nanos;
+    }
+
+    void addDecode(long nanos) {
+        decodeNanos += nanos;
+    }
+
+    void addEncode(long nanos) {
+        encodeNanos += nanos;
+    }
+
+    /**
+     * 记录一帧已编码
+     *
+     * @param frameMicros 帧时长（微秒）
+     */
+    void addFrame(long frameMicros) {
+        mediaMicros += frameMicros;
+        if (progress == null) {
+            return;
+        }
+        batchFrames++;
+        batchMicros += frameMicros;
+        if (batchFrames == PROGRESS_BATCH_FRAMES) {
+            flush();
+        }
+    }
+
+    /**
+     * 记录已编码的媒体时长但不计帧数，用于分段编码中起点之前开始、由上一分段计数的帧
+     *
+     * @param micros 编码的时长（微秒）
+     */
+    void addMedia(long micros) {
+        mediaMicros += micros;
+        if (progress != null) {
+            batchMicros += micros;
+        }
+    }
+
+    /**
+     * 将尚未上报的帧写入进度
+     */
+    void flush() {
+        if (progress == null || (batchFrames == 0 && batchMicros == 0)) {
+            return;
+        }
+        progress.advance(batchFrames, batchMicros);
+        batchFrames = 0;
+        batchMicros = 0;
+        if (log.isDebugEnabled() && progress.getPercent() >= 0) {
+            log.debug("转换进度: {}", String.format("%.2f%%", progress.getPercent()));
+        }
+    }
+
+    /**
+     * 合并分段编码的统计，多个分段线程可同时调用
+     *
+     * @param segment 已完成分段的统计
+     */
+    synchronized void merge(ConversionStats segment) {
+        probeNanos += segment.probeNanos;
+        decodeNanos += segment.decodeNanos;
+        encodeNanos += segment.encodeNanos;
+        mediaMicros += segment.mediaMicros;
+    }
+
+    synchronized long getProbeNanos() {
+        return probeNanos;
+    }
+
+    synchronized long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    synchronized long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    synchronized long getMediaMicros() {
+        return mediaMicros;
+    }
+}
@@ -1,123 +1,674 @@
 package com.naz1k1.service;
 
+import com.naz1k1.config.ConverterProperties;
 import com.naz1k1.enums.AudioFormat;
 import com.naz1k1.exception.ConversionException;
 import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionProgress;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.UploadSession;
+import com.naz1k1.model.WaveformPeaks;
+import com.naz1k1.util.FileChannelInputStream;
+import com.naz1k1.util.SampleBufferPool;
 import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacv.FFmpegFrameFilter;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Slf4j
 @Service
 public class ConverterService {
+        private static final double STREAM_COPY_BITRATE_TOLERANCE = 1.05;
+
+        /** 流复制时源未记录比特率的占位值，只用于让 JavaCV 创建音频流 */
+        private static final int COPY_PLACEHOLDER_BITRATE = 128000;
+
+        /** libopus 编码复杂度（0-10），2 时编码速度约为默认值的两倍，低码率下体积相近 */
+        private static final int OPUS_COMPRESSION_LEVEL = 2;
+
+        private final ConversionCache conversionCache;
+        private final ConversionMetrics metrics;
+        private final CodecThreadBudget threadBudget;
+        private final ConverterProperties.Uploads uploadsConfig;
+        private final ConverterProperties.Filters filtersConfig;
+        private final ConverterProperties.Waveform waveformConfig;
+        /** 一次解码输出多种格式时，各格式的编码在此线程池上并行执行 */
+        private final ExecutorService encoderPool;
+        /** 长音频的分段并行编码 */
+        private final SegmentedEncoder segmentedEncoder;
+
+        public ConverterService(
+                ConversionCache conversionCache,
+                ConversionMetrics metrics,
+                CodecThreadBudget threadBudget,
+                ConverterProperties properties) {
+            this.conversionCache = conversionCache;
+            this.metrics = metrics;
+            this.threadBudget = threadBudget;
+            this.uploadsConfig = properties.getUploads();
+            this.filtersConfig = properties.getFilters();
+            this.waveformConfig = properties.getWaveform();
+            this.segmentedEncoder = new SegmentedEncoder(this, properties.getSegmented());
+            AtomicInteger counter = new AtomicInteger();
+            this.encoderPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "converter-encoder-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @PreDestroy
+        public void shutdown() {
+            encoderPool.shutdownNow();
+            segmentedEncoder.shutdown();
+        }
+
         /**
          * 将视频文件转换为音频
          *
-         * @param videoFile  要转换的视频文件
-         * @param format    目标音频格式
-         * @param bitrate   音频比特率
-         * @param sampleRate 采样率
-         * @param channels  声道数
-         * @return byte[] 转换后的音频数据
+         * @param videoFile 要转换的视频文件
+         * @param options   转换参数
+         * @return ConversionResult 转换后的音频文件，调用方使用完毕后需关闭以删除临时文件
          * @throws ConversionException 当转换过程发生错误时抛出
          */
-        public byte[] convertVideoToAudio(
-                MultipartFile videoFile,
-                String format,
-                int bitrate,
-                Integer sampleRate,
-                Integer channels) throws ConversionException {
+        public ConversionResult convertVideoToAudio(MultipartFile videoFile, ConversionOptions options)
+                throws ConversionException {
+
+            Path tempVideoFile = saveUpload(videoFile);
+            try {
+                return convertFile(tempVideoFile, options);
+            } finally {
+                cleanupTempFiles(tempVideoFile);
+            }
+        }
 
+        /**
+         * 将视频文件一次解码后同时转换为多种音频格式
+         *
+         * @param videoFile   要转换的视频文件
+         * @param optionsList 各目标格式的转换参数
+         * @return List<ConversionResult> 与参数顺序一致的转换结果，调用方使用完毕后需逐个关闭
+         * @throws ConversionException 当转换过程发生错误时抛出
+         */
+        public List<ConversionResult> convertVideoToFormats(MultipartFile videoFile, List<ConversionOptions> optionsList)
+                throws ConversionException {
+
+            Path tempVideoFile = saveUpload(videoFile);
+            try {
+                return convertFileToFormats(tempVideoFile, optionsList);
+            } finally {
+                cleanupTempFiles(tempVideoFile);
+            }
+        }
+
+        /**
+         * 将上传的视频直接转换并写入输出流，不创建临时文件
+         * <p>
+         * 仅支持可流式封装的格式；输出流写入后无法再返回错误响应，调用方应在此之前完成参数校验
+         *
+         * @param videoFile    要转换的视频文件
+         * @param options      转换参数
+         * @param outputStream 音频输出流，转换完成后不会被关闭
+         * @throws ConversionException 当转换过程发生错误时抛出
+         */
+        public void convertToStream(MultipartFile videoFile, ConversionOptions options, OutputStream outputStream)
+                throws ConversionException {
+            AudioFormat audioFormat = options.getFormat();
+            if (!audioFormat.isStreamable()) {
+                throw new InvalidInputException("该音频格式不支持流式输出: " + audioFormat.getExtension());
+            }
             validateInputFile(videoFile);
-            AudioFormat audioFormat = AudioFormat.fromExtension(format);
+            metrics.recordUpload(0, videoFile.getSize());
+
+            FFmpegFrameRecorder recorder = new DrainingFrameRecorder(outputStream, 0);
+            recorder.setFormat(audioFormat.getMuxer());
+            recorder.setCloseOutputStream(false);
 
             Path tempVideoFile = null;
-            Path tempAudioFile = null;
+            ConversionStats stats = new ConversionStats(null);
+            long startedAt = System.nanoTime();
+            metrics.conversionStarted();
+            CodecThreadBudget.Lease lease = threadBudget.acquire();
+            try {
+                InputStream inputStream = openSeekableStream(videoFile);
+                FFmpegFrameGrabber grabber;
+                if (inputStream != null) {
+                    grabber = new FFmpegFrameGrabber(inputStream);
+                } else {
+                    // 上传数据不在磁盘上时无法随机访问，退回到临时文件
+                    tempVideoFile = saveUpload(videoFile);
+                    grabber = new FFmpegFrameGrabber(tempVideoFile.toFile());
+                }
+                convertToAudio(grabber, recorder, options, lease.getThreads(), stats);
+                metrics.recordStages(stats, audioFormat.getExtension());
+                // 输出大小在写入响应流后才可知，此处不统计
+                metrics.recordConversion(audioFormat, stats.getMediaMicros(), System.nanoTime() - startedAt, 0);
+            } catch (IOException e) {
+                log.error("音频转换失败", e);
+                metrics.recordFailure(audioFormat, e);
+                throw new ConversionException("音频转换失败: " + e.getMessage(), e);
+            } catch (ConversionException e) {
+                metrics.recordFailure(audioFormat, e);
+                throw e;
+            } finally {
+                lease.close();
+                metrics.conversionFinished();
+                cleanupTempFiles(tempVideoFile);
+            }
+        }
 
+        /**
+         * 打开可随机访问的上传数据流，直接读取容器已落盘的上传文件
+         *
+         * @param videoFile 上传的视频文件
+         * @return InputStream 支持 mark/reset 的输入流，上传数据不在磁盘上时返回null
+         * @throws IOException 当打开上传数据失败时抛出
+         */
+        private InputStream openSeekableStream(MultipartFile videoFile) throws IOException {
+            InputStream inputStream = videoFile.getInputStream();
+            if (inputStream instanceof FileInputStream) {
+                return new FileChannelInputStream(((FileInputStream) inputStream).getChannel());
+            }
+            if (inputStream instanceof ByteArrayInputStream) {
+                return inputStream;
+            }
+            inputStream.close();
+            return null;
+        }
+
+        /**
+         * 验证上传的视频文件并保存到临时位置
+         *
+         * @param videoFile 上传的视频文件
+         * @return Path 临时视频文件路径，调用方使用完毕后需删除
+         * @throws ConversionException 当保存文件失败时抛出
+         */
+        public Path saveUpload(MultipartFile videoFile) throws ConversionException {
+            validateInputFile(videoFile);
+
+            Path tempVideoFile = null;
             try {
-            String videoExtension = getFileExtension(videoFile.getOriginalFilename());
-            tempVideoFile = Files.createTempFile("video-", "." + videoExtension);
-            tempAudioFile = Files.createTempFile("audio-", "." + audioFormat.getExtension());
-            
-            log.debug("创建临时文件 - 视频: {}, 音频: {}", tempVideoFile, tempAudioFile);
-                // 保存上传的视频文件到临时位置
+                String videoExtension = getFileExtension(videoFile.getOriginalFilename());
+                tempVideoFile = Files.createTempFile("video-", "." + videoExtension);
+                log.debug("创建临时视频文件: {}", tempVideoFile);
+                long startedAt = System.nanoTime();
                 videoFile.transferTo(tempVideoFile);
+                metrics.recordUpload(System.nanoTime() - startedAt, videoFile.getSize());
+                return tempVideoFile;
+            } catch (IOException e) {
+                cleanupTempFiles(tempVideoFile);
+                throw new ConversionException("保存上传文件失败: " + e.getMessage(), e);
+            }
+        }
 
-                convertToAudio(
-                        tempVideoFile.toString(),
-                        tempAudioFile.toString(),
-                        audioFormat.getCodecId(),
-                        bitrate,
-                        sampleRate,
-                        channels
+        /**
+         * 将磁盘上的视频文件转换为音频
+         *
+         * @param videoFile 视频文件路径
+         * @param options   转换参数
+         * @return ConversionResult 转换后的音频文件，调用方使用完毕后需关闭以删除临时文件
+         * @throws ConversionException 当转换过程发生错误时抛出
+         */
+        public ConversionResult convertFile(Path videoFile, ConversionOptions options) throws ConversionException {
+            return convertFile(videoFile, options, null);
+        }
+
+        /**
+         * 将磁盘上的视频文件转换为音频，并上报转换进度
+         *
+         * @param videoFile 视频文件路径
+         * @param options   转换参数
+         * @param progress  转换进度，为null时不上报
+         * @return ConversionResult 转换后的音频文件，调用方使用完毕后需关闭以删除临时文件
+         * @throws ConversionException 当转换过程发生错误时抛出
+         */
+        public ConversionResult convertFile(Path videoFile, ConversionOptions options, ConversionProgress progress)
+                throws ConversionException {
+            AudioFormat audioFormat = options.getFormat();
+            // 先查缓存：命中时不占用编解码线程额度，也不计入进行中的转换
+            String cacheKey = null;
+            if (conversionCache.isEnabled()) {
+                long lookupStartedAt = System.nanoTime();
+                try {
+                    cacheKey = conversionCache.computeKey(videoFile, options);
+                } catch (IOException e) {
+                    log.error("读取输入文件失败", e);
+                    metrics.recordFailure(audioFormat, e);
+                    throw new ConversionException("读取输入文件失败: " + e.getMessage(), e);
+                }
+                Optional<ConversionResult> cached = conversionCache.get(cacheKey, options);
+                if (cached.isPresent()) {
+                    log.debug("命中转换结果缓存: {}", cacheKey);
+                    metrics.recordCacheHit(audioFormat, System.nanoTime() - lookupStartedAt, cached.get().getSize());
+                    return cached.get();
+                }
+            }
+
+            Path tempAudioFile = null;
+            boolean success = false;
+            ConversionStats stats = new ConversionStats(progress);
+            long startedAt = System.nanoTime();
+            metrics.conversionStarted();
+            CodecThreadBudget.Lease lease = threadBudget.acquire();
+
+            try {
+                tempAudioFile = Files.createTempFile("audio-", "." + audioFormat.getExtension());
+                log.debug("创建临时文件 - 视频: {}, 音频: {}", videoFile, tempAudioFile);
+
+                SegmentedEncoder.SourceInfo source =
+                        segmentedEncoder.probe(videoFile, options, lease.getThreads(), stats);
+                WaveformPeaks peaks = null;
+                if (source != null) {
+                    segmentedEncoder.convert(videoFile, tempAudioFile, options, source, stats);
+                } else {
+                    peaks = convertToAudio(
+                            new FFmpegFrameGrabber(videoFile.toFile()),
+                            new DrainingFrameRecorder(tempAudioFile.toFile(), 0),
+                            options,
+                            lease.getThreads(),
+                            stats
+                    );
+                }
+
+                ConversionResult result = new ConversionResult(tempAudioFile, audioFormat, peaks);
+                metrics.recordStages(stats, audioFormat.getExtension());
+                metrics.recordConversion(
+                        audioFormat, stats.getMediaMicros(), System.nanoTime() - startedAt, result.getSize());
+                if (cacheKey != null) {
+                    conversionCache.put(cacheKey, result);
+                }
+                success = true;
+                return result;
+
+            } catch (IOException e) {
+                log.error("音频转换失败", e);
+                metrics.recordFailure(audioFormat, e);
+                throw new ConversionException("音频转换失败: " + e.getMessage(), e);
+            } catch (ConversionException e) {
+                metrics.recordFailure(audioFormat, e);
+                throw e;
+            } finally {
+                lease.close();
+                metrics.conversionFinished();
+                // 输出文件交由调用方流式返回后再删除，仅在失败时立即清理
+                if (!success) {
+                    cleanupTempFiles(tempAudioFile);
+                }
+            }
+        }
+
+        /**
+         * 边接收分块上传边转换：读取到尚未上传的数据时等待后续分块
+         * <p>
+         * 上传未完成时无法计算内容摘要，也无法按时长分段，因此不使用缓存和分段编码。
+         *
+         * @param upload   分块上传会话
+         * @param options  转换参数
+         * @param progress 转换进度，为null时不上报
+         * @return ConversionResult 转换后的音频文件，调用方使用完毕后需关闭以删除临时文件
+         * @throws ConversionException 当转换过程发生错误或等待分块超时时抛出
+         */
+        public ConversionResult convertUpload(UploadSession upload, ConversionOptions options, ConversionProgress progress)
+                throws ConversionException {
+            AudioFormat audioFormat = options.getFormat();
+            Path tempAudioFile = null;
+            boolean success = false;
+            ConversionStats stats = new ConversionStats(progress);
+            long startedAt = System.nanoTime();
+            metrics.conversionStarted();
+            CodecThreadBudget.Lease lease = threadBudget.acquire();
+
+            try {
+                tempAudioFile = Files.createTempFile("audio-", "." + audioFormat.getExtension());
+                log.debug("创建临时文件 - 上传: {}, 音频: {}", upload.getId(), tempAudioFile);
+
+                WaveformPeaks peaks = convertToAudio(
+                        new FFmpegFrameGrabber(upload.openStream(uploadsConfig.getStallTimeout().toMillis())),
+                        new DrainingFrameRecorder(tempAudioFile.toFile(), 0),
+                        options,
+                        lease.getThreads(),
+                        stats
                 );
+                // 读取失败时 FFmpeg 按输入结束处理，需确认上传确实已完整接收
+                if (upload.isAborted() || !upload.isComplete()) {
+                    throw new ConversionException("上传未完成或已终止: " + upload.getId());
+                }
 
-                return Files.readAllBytes(tempAudioFile);
+                ConversionResult result = new ConversionResult(tempAudioFile, audioFormat, peaks);
+                metrics.recordUpload(0, upload.getLength());
+                metrics.recordStages(stats, audioFormat.getExtension());
+                metrics.recordConversion(
+                        audioFormat, stats.getMediaMicros(), System.nanoTime() - startedAt, result.getSize());
+                success = true;
+                return result;
 
             } catch (IOException e) {
                 log.error("音频转换失败", e);
+                metrics.recordFailure(audioFormat, e);
                 throw new ConversionException("音频转换失败: " + e.getMessage(), e);
+            } catch (ConversionException e) {
+                metrics.recordFailure(audioFormat, e);
+                throw e;
             } finally {
-                cleanupTempFiles(tempVideoFile, tempAudioFile);
+                lease.close();
+                metrics.conversionFinished();
+                if (!success) {
+                    cleanupTempFiles(tempAudioFile);
+                }
             }
         }
 
     
+        /**
+         * 将磁盘上的视频文件一次解码后同时转换为多种音频格式，已缓存的格式不再重复编码
+         *
+         * @param videoFile   视频文件路径
+         * @param optionsList 各目标格式的转换参数
+         * @return List<ConversionResult> 与参数顺序一致的转换结果，调用方使用完毕后需逐个关闭
+         * @throws ConversionException 当转换过程发生错误时抛出
+         */
+        public List<ConversionResult> convertFileToFormats(Path videoFile, List<ConversionOptions> optionsList)
+                throws ConversionException {
+            if (optionsList.size() == 1) {
+                return Collections.singletonList(convertFile(videoFile, optionsList.get(0)));
+            }
+
+            int count = optionsList.size();
+            ConversionResult[] results = new ConversionResult[count];
+            String[] cacheKeys = new String[count];
+            // 先查缓存：全部命中时不占用编解码线程额度，也不计入进行中的转换
+            if (conversionCache.isEnabled()) {
+                long lookupStartedAt = System.nanoTime();
+                String contentHash;
+                try {
+                    contentHash = conversionCache.hashContent(videoFile);
+                } catch (IOException e) {
+                    log.error("读取输入文件失败", e);
+                    metrics.recordFailure(null, e);
+                    throw new ConversionException("读取输入文件失败: " + e.getMessage(), e);
+                }
+                for (int i = 0; i < count; i++) {
+                    cacheKeys[i] = conversionCache.computeKey(contentHash, optionsList.get(i));
+                    results[i] = conversionCache.get(cacheKeys[i], optionsList.get(i)).orElse(null);
+                }
+                // 与单个格式的转换一致，命中的格式各记一次命中缓存的转换，全部命中时同样记录
+                long lookupNanos = System.nanoTime() - lookupStartedAt;
+                for (ConversionResult result : results) {
+                    if (result != null) {
+                        metrics.recordCacheHit(result.getFormat(), lookupNanos, result.getSize());
+                    }
+                }
+                if (Arrays.stream(results).allMatch(Objects::nonNull)) {
+                    return Arrays.asList(results);
+                }
+            }
+
+            Path[] tempAudioFiles = new Path[count];
+            boolean success = false;
+            ConversionStats stats = new ConversionStats(null);
+            long startedAt = System.nanoTime();
+            metrics.conversionStarted();
+            CodecThreadBudget.Lease lease = threadBudget.acquire();
+
+            try {
+                List<Integer> pending = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    if (results[i] == null) {
+                        pending.add(i);
+                        tempAudioFiles[i] = Files.createTempFile(
+                                "audio-", "." + optionsList.get(i).getFormat().getExtension());
+                    }
+                }
+
+                if (!pending.isEmpty()) {
+                    log.debug("一次解码输出 {} 种格式 - 视频: {}", pending.size(), videoFile);
+                    FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile.toFile());
+                    List<FFmpegFrameRecorder> recorders = new ArrayList<>();
+                    try {
+                        long probeStartedAt = System.nanoTime();
+                        initializeGrabber(grabber, lease.getThreads());
+                        grabber.start();
+                        discardNonAudioStreams(grabber);
+                        stats.addProbe(System.nanoTime() - probeStartedAt);
+
+                        // 额度在各格式的编码器之间平分，额度不足两个线程时在当前线程依次编码
+                        int recorderThreads = Math.max(1, lease.getThreads() / pending.size());
+                        boolean parallel = lease.getThreads() > 1;
+                        for (int i : pending) {
+                            ConversionOptions options = optionsList.get(i);
+                            FFmpegFrameRecorder recorder = new DrainingFrameRecorder(tempAudioFiles[i].toFile(), 0);
+                            recorders.add(recorder);
+                            initializeRecorder(
+                                    recorder,
+                                    options.getFormat().getCodecId(),
+                                    options.getBitrate(),
+                                    options.getSampleRate() != null ? options.getSampleRate() : grabber.getSampleRate(),
+                                    options.getChannels() != null ? options.getChannels() : grabber.getAudioChannels(),
+                                    recorderThreads
+                            );
+                            recorder.start();
+                        }
+
+                        processFrames(grabber, recorders, parallel, stats);
+                    } finally {
+                        closeResources(grabber, recorders);
+                    }
+
+                    long elapsedNanos = System.nanoTime() - startedAt;
+                    metrics.recordStages(stats, ConversionMetrics.FORMAT_BATCH);
+                    for (int i : pending) {
+                        results[i] = new ConversionResult(tempAudioFiles[i], optionsList.get(i).getFormat());
+                        metrics.recordConversion(
+                                results[i].getFormat(), stats.getMediaMicros(), elapsedNanos, results[i].getSize());
+                        if (cacheKeys[i] != null) {
+                            conversionCache.put(cacheKeys[i], results[i]);
+                        }
+                    }
+                }
+
+                success = true;
+                return Arrays.asList(results);
+
+            } catch (IOException e) {
+                log.error("音频转换失败", e);
+                metrics.recordFailure(null, e);
+                throw new ConversionException("音频转换失败: " + e.getMessage(), e);
+            } catch (ConversionException e) {
+                metrics.recordFailure(null, e);
+                throw e;
+            } finally {
+                lease.close();
+                metrics.conversionFinished();
+                if (!success) {
+                    for (ConversionResult result : results) {
+                        if (result != null) {
+                            result.close();
+                        }
+                    }
+                    cleanupTempFiles(tempAudioFiles);
+                }
+            }
+        }
+
         /**
          * 执行音频转换过程
          *
-         * @param inputFile  输入文件路径
-         * @param outputFile 输出文件路径
-         * @param audioCodec 音频编解码器ID
-         * @param bitrate   比特率
-         * @param sampleRate 采样率
-         * @param channels  声道数
+         * @param grabber  尚未启动的帧抓取器
+         * @param recorder 尚未启动的帧记录器，输出目标已确定
+         * @param options  转换参数
+         * @param threads  编解码线程数
+         * @param stats    转换统计
+         * @return WaveformPeaks 输出音频的波形峰值，未请求时返回null
          * @throws IOException 当IO操作失败时抛出
          */
-        private void convertToAudio(
-                String inputFile,
-                String outputFile,
-                int audioCodec,
-                int bitrate,
-                Integer sampleRate,
-                Integer channels) throws IOException {
+        private WaveformPeaks convertToAudio(
+                FFmpegFrameGrabber grabber,
+                FFmpegFrameRecorder recorder,
+                ConversionOptions options,
+                int threads,
+                ConversionStats stats) throws IOException {
 
-            FFmpegFrameGrabber grabber = null;
-            FFmpegFrameRecorder recorder = null;
+            int audioCodec = options.getFormat().getCodecId();
+            int bitrate = options.getBitrate();
+            Integer sampleRate = options.getSampleRate();
+            Integer channels = options.getChannels();
+            FilteringRecorder filtering = null;
 
             try {
                 // 初始化视频帧抓取器
-                grabber = initializeGrabber(inputFile);
+                long probeStartedAt = System.nanoTime();
+                initializeGrabber(grabber, threads);
                 grabber.start();
+                discardNonAudioStreams(grabber);
+                ClipRange range = ClipRange.of(options);
+                if (options.isTrimmed()) {
+                    ClipRange.validate(options, grabber.getLengthInTime());
+                    range.seek(grabber);
+                }
+                stats.addProbe(System.nanoTime() - probeStartedAt);
+                if (stats.getProgress() != null) {
+                    stats.getProgress().start(options.clipLength(grabber.getLengthInTime()));
+                }
+
+                // 源音频已是目标编码且参数不变时直接复制数据包，跳过解码和编码
+                if (canStreamCopy(grabber, options)) {
+                    log.debug("源音频编码与目标一致，使用流复制 - 编码: {}", grabber.getAudioCodecName());
+                    initializeCopyRecorder(recorder, grabber);
+                    recorder.start(grabber.getFormatContext());
+                    copyPackets(grabber, recorder, stats);
+                    return null;
+                }
 
                 // 初始化音频记录器
-                recorder = initializeRecorder(
-                        outputFile,
+                initializeRecorder(
+                        recorder,
                         audioCodec,
                         bitrate,
                         sampleRate != null ? sampleRate : grabber.getSampleRate(),
-                        channels != null ? channels : grabber.getAudioChannels()
+                        channels != null ? channels : grabber.getAudioChannels(),
+                        threads
                 );
                 recorder.start();
 
+                // 启用滤镜时帧先经过滤镜图再写入记录器，与解码编码在同一遍中完成
+                // 波形峰值在写入记录器前计算，反映滤镜处理后的音频
+                FrameRecorder sink = recorder;
+                PeaksRecorder peaks = null;
+                if (options.isWaveform()) {
+                    peaks = new PeaksRecorder(recorder, waveformConfig.getSamplesPerPixel());
+                    sink = peaks;
+                }
+                if (options.isFiltered()) {
+                    filtering = new FilteringRecorder(createFilter(grabber, recorder, options), sink);
+                    filtering.start();
+                    sink = filtering;
+                }
+
                 // 执行转换
-                processFrames(grabber, recorder);
+                if (options.isTrimmed()) {
+                    range.convert(grabber, sink, () -> false, stats);
+                } else {
+                    processFrames(grabber, Collections.singletonList(sink), false, stats);
+                }
+                if (filtering != null) {
+                    // 冲刷滤镜缓冲的采样，loudnorm 约缓冲3秒
+                    long flushStartedAt = System.nanoTime();
+                    filtering.stop();
+                    stats.addEncode(System.nanoTime() - flushStartedAt);
+                }
+                return peaks != null ? peaks.getPeaks() : null;
                 
             } catch (IOException e) {
                 log.error("转换过程中发生错误", e);
                 throw new ConversionException("转换失败: " + e.getMessage(), e);
             } finally {
+                if (filtering != null) {
+                    try {
+                        filtering.release();
+                    } catch (IOException e) {
+                        log.warn("释放滤镜时发生错误", e);
+                    }
+                }
                 closeResources(grabber, recorder);
             }
         }
+
+        /**
+         * 按转换参数创建音频滤镜：去除静音、响度标准化，最后重采样并转换声道
+         * <p>
+         * loudnorm 使用单遍的动态模式，不需要预先测量整段响度，输出固定为192kHz，
+         * 因此重采样放在滤镜末尾，输出的采样率和声道数与记录器一致，记录器无需再转换。
+         *
+         * @param grabber  已启动的帧抓取器，滤镜输入参数与其解码输出一致
+         * @param recorder 已初始化的帧记录器
+         * @param options  转换参数
+         * @return FFmpegFrameFilter 尚未启动的滤镜
+         */
+        private FFmpegFrameFilter createFilter(
+                FFmpegFrameGrabber grabber,
+                FFmpegFrameRecorder recorder,
+                ConversionOptions options) {
+            List<String> filters = new ArrayList<>();
+            if (options.isTrimSilence()) {
+                // 去除开头的静音，中间和结尾的长静音缩短为保留的停顿时长
+                String threshold = filtersConfig.getSilenceThreshold();
+                filters.add(String.format(Locale.ROOT,
+                        "silenceremove=start_periods=1:start_threshold=%s"
+                                + ":stop_periods=-1:stop_duration=%.3f:stop_threshold=%s:stop_silence=%.3f",
+                        threshold,
+                        filtersConfig.getSilenceMinDuration().toMillis() / 1000.0,
+                        threshold,
+                        filtersConfig.getSilenceKeep().toMillis() / 1000.0));
+            }
+            if (options.isNormalizeLoudness()) {
+                filters.add(String.format(Locale.ROOT, "loudnorm=I=%.1f:TP=%.1f:LRA=%.1f",
+                        filtersConfig.getIntegratedLoudness(),
+                        filtersConfig.getTruePeak(),
+                        filtersConfig.getLoudnessRange()));
+            }
+            filters.add("aresample=" + recorder.getSampleRate());
+            filters.add("aformat=sample_fmts=fltp:channel_layouts=" + recorder.getAudioChannels() + "c");
+
+            String spec = String.join(",", filters);
+            log.debug("音频滤镜: {}", spec);
+            FFmpegFrameFilter filter = new FFmpegFrameFilter(spec, grabber.getAudioChannels());
+            filter.setSampleFormat(grabber.getSampleFormat());
+            filter.setSampleRate(grabber.getSampleRate());
+            return filter;
+        }
         
 
         /**
@@ -146,7 +697,7 @@ public class ConverterService {
          *
          * @param files 要清理的文件路径数组
          */
-        private void cleanupTempFiles(Path... files) {
+        void cleanupTempFiles(Path... files) {
             for (Path file : files) {
                 if (file != null) {
                     try {
@@ -161,78 +712,272 @@ public class ConverterService {
         /**
          * 初始化FFmpeg帧抓取器
          *
-         * @param inputFile 输入文件路径
-         * @return FFmpegFrameGrabber 初始化后的帧抓取器
+         * @param grabber 要初始化的帧抓取器
+         * @param threads 解码线程数，由本次转换的线程额度决定
          */
-        private FFmpegFrameGrabber initializeGrabber(String inputFile) {
-            FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(inputFile);
+        void initializeGrabber(FFmpegFrameGrabber grabber, int threads) {
             // 设置额外的grabber选项，提高性能
-            grabber.setOption("threads", "auto");        // 自动选择线程数
+            // 不使用 threads=auto：并发转换时每个解码器都按核数开线程会超额订阅CPU
+            grabber.setOption("threads", String.valueOf(threads));
             grabber.setOption("analyzeduration", "10M"); // 分析时长限制
-            return grabber;
+        }
+
+        /**
+         * 让解复用器丢弃音频以外的流，视频数据包不再被读取和解码
+         *
+         * @param grabber 已启动的帧抓取器
+         */
+        void discardNonAudioStreams(FFmpegFrameGrabber grabber) {
+            AVFormatContext formatContext = grabber.getFormatContext();
+            for (int i = 0; i < formatContext.nb_streams(); i++) {
+                if (i != grabber.getAudioStream()) {
+                    formatContext.streams(i).discard(avcodec.AVDISCARD_ALL);
+                }
+            }
         }
 
         /**
          * 初始化FFmpeg帧记录器
          *
-         * @param outputFile 输出文件路径
+         * @param recorder   要初始化的帧记录器
          * @param audioCodec 音频编解码器ID
          * @param bitrate   比特率
-         * @param sampleRate 采样率
+         * @param sampleRate 采样率，编码器不支持时改用最接近的支持值
          * @param channels  声道数
-         * @return FFmpegFrameRecorder 初始化后的帧记录器
+         * @param threads   编码线程数，由本次转换的线程额度决定
          */
-        private FFmpegFrameRecorder initializeRecorder(
-                String outputFile,
+        void initializeRecorder(
+                FFmpegFrameRecorder recorder,
                 int audioCodec,
                 int bitrate,
                 int sampleRate,
-                int channels) {
+                int channels,
+                int threads) {
                 
-            FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(outputFile, 0);
-            
             // 基本设置
             recorder.setAudioCodec(audioCodec);
             recorder.setAudioBitrate(bitrate);
-            recorder.setSampleRate(sampleRate);
+            recorder.setSampleRate(resolveSampleRate(audioCodec, sampleRate));
             recorder.setAudioChannels(channels);
 
-            // 音频质量设置
-            recorder.setAudioQuality(0); // 最高质量
-            recorder.setAudioOption("crf", "0");
+            if (audioCodec == avcodec.AV_CODEC_ID_OPUS) {
+                // 低码率语音场景：按比特率编码，降低编码复杂度换取速度
+                recorder.setAudioOption("compression_level", String.valueOf(OPUS_COMPRESSION_LEVEL));
+            } else if (audioCodec != avcodec.AV_CODEC_ID_VORBIS) {
+                // 音频质量设置；Vorbis 在质量模式下 0 为最低质量，使用编码器默认值
+                recorder.setAudioQuality(0); // 最高质量
+                recorder.setAudioOption("crf", "0");
+            }
 
             // 其他优化选项
-            recorder.setOption("threads", "auto");
+            recorder.setOption("threads", String.valueOf(threads));
             recorder.setOption("preset", "medium"); // 平衡编码速度和质量
+        }
 
-            return recorder;
+        /**
+         * 选择编码器支持的采样率，如 Opus 只支持 48kHz 及其约数
+         *
+         * @param audioCodec 音频编解码器ID
+         * @param sampleRate 期望的采样率
+         * @return int 编码器支持时原样返回，否则返回不低于期望值的最小支持值，都低于期望值时返回最大支持值
+         */
+        private static int resolveSampleRate(int audioCodec, int sampleRate) {
+            AVCodec codec = avcodec.avcodec_find_encoder(audioCodec);
+            IntPointer supported = codec != null ? codec.supported_samplerates() : null;
+            if (supported == null || supported.isNull()) {
+                return sampleRate;
+            }
+            int higher = Integer.MAX_VALUE;
+            int highest = 0;
+            for (int i = 0; supported.get(i) != 0; i++) {
+                int rate = supported.get(i);
+                if (rate == sampleRate) {
+                    return rate;
+                }
+                if (rate > sampleRate) {
+                    higher = Math.min(higher, rate);
+                }
+                highest = Math.max(highest, rate);
+            }
+            return higher != Integer.MAX_VALUE ? higher : highest;
         }
 
         /**
-         * 处理音频帧转换
+         * 判断是否可以跳过解码和编码直接复制音频数据包
+         *
+         * @param grabber 已启动的帧抓取器
+         * @param options 转换参数
+         * @return boolean 编码相同、采样率和声道数不变、源比特率不明显高于目标比特率（无损格式不比较比特率），
+         *         且不截取、不经过滤镜、不计算波形峰值时返回true
+         */
+        boolean canStreamCopy(FFmpegFrameGrabber grabber, ConversionOptions options) {
+            int bitrate = options.getBitrate();
+            Integer sampleRate = options.getSampleRate();
+            Integer channels = options.getChannels();
+
+            // 截取时数据包边界与截取点不对齐，滤镜和波形峰值需要解码后的采样，都要重新编码
+            if (options.isTrimmed() || options.isFiltered() || options.isWaveform()) {
+                return false;
+            }
+            if (grabber.getAudioChannels() <= 0 || grabber.getAudioCodec() != options.getFormat().getCodecId()) {
+                return false;
+            }
+            if (sampleRate != null && sampleRate != grabber.getSampleRate()) {
+                return false;
+            }
+            if (channels != null && channels != grabber.getAudioChannels()) {
+                return false;
+            }
+            // 无损格式编码时忽略比特率，重新编码只会得到相同的采样
+            if (options.getFormat().isLossless()) {
+                return true;
+            }
+            // 以更高比特率重新编码并不能提升音质，容器统计的比特率存在少量误差，允许5%的浮动
+            // 源比特率未知时保守地重新编码
+            int sourceBitrate = grabber.getAudioBitrate();
+            return sourceBitrate > 0 && sourceBitrate <= bitrate * STREAM_COPY_BITRATE_TOLERANCE;
+        }
+
+        /**
+         * 初始化用于流复制的帧记录器，编码参数取自源音频流
+         *
+         * @param recorder 要初始化的帧记录器
+         * @param grabber  已启动的帧抓取器
+         */
+        void initializeCopyRecorder(FFmpegFrameRecorder recorder, FFmpegFrameGrabber grabber) {
+            recorder.setAudioChannels(grabber.getAudioChannels());
+            recorder.setAudioCodec(grabber.getAudioCodec());
+            // 比特率不大于0时 JavaCV 不创建音频流；流复制不编码，Matroska 中的 FLAC 等未记录比特率的源以占位值代替
+            int bitrate = grabber.getAudioBitrate();
+            recorder.setAudioBitrate(bitrate > 0 ? bitrate : COPY_PLACEHOLDER_BITRATE);
+            recorder.setSampleRate(grabber.getSampleRate());
+        }
+
+        /**
+         * 复制音频数据包，视频等其他流的数据包会被记录器丢弃
          *
          * @param grabber  帧抓取器
          * @param recorder 帧记录器
-         * @throws IOException 当处理帧时发生IO错误
+         * @param stats    转换统计
+         * @throws IOException 当读取或写入数据包时发生IO错误
          */
-        private void processFrames(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder) 
+        private void copyPackets(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder, ConversionStats stats)
                 throws IOException {
+            AVFormatContext formatContext = grabber.getFormatContext();
+            AVPacket packet;
+            long readStartedAt = System.nanoTime();
+            while ((packet = grabber.grabPacket()) != null) {
+                long writeStartedAt = System.nanoTime();
+                stats.addDecode(writeStartedAt - readStartedAt);
+                AVRational timeBase = formatContext.streams(packet.stream_index()).time_base();
+                stats.addFrame(packet.duration() * 1_000_000L * timeBase.num() / timeBase.den());
+                recorder.recordPacket(packet);
+                readStartedAt = System.nanoTime();
+                stats.addEncode(readStartedAt - writeStartedAt);
+            }
+            stats.addDecode(System.nanoTime() - readStartedAt);
+            stats.flush();
+        }
+
+        /**
+         * 处理音频帧转换，同一帧写入所有记录器
+         * <p>
+         * 多个记录器且允许并行时各自的编码在线程池上并行执行，全部完成后才抓取下一帧，
+         * 因此抓取器复用的帧缓冲无需复制。
+         *
+         * @param grabber   帧抓取器
+         * @param recorders 帧记录器列表
+         * @param parallel  多个记录器时是否并行编码，线程额度不足时在当前线程依次编码
+         * @param stats     转换统计，记录解码和编码耗时
+         * @throws IOException 当处理帧时发生IO错误
+         */
+        private void processFrames(
+                FFmpegFrameGrabber grabber,
+                List<? extends FrameRecorder> recorders,
+                boolean parallel,
+                ConversionStats stats) throws IOException {
             Frame frame;
-            long totalFrames = grabber.getLengthInAudioFrames();
-            long processedFrames = 0;
-            
-            while ((frame = grabber.grab()) != null) {
+            long decodeStartedAt = System.nanoTime();
+
+            // 只抓取音频帧，跳过视频解码
+            while ((frame = grabber.grabSamples()) != null) {
+                long encodeStartedAt = System.nanoTime();
+                stats.addDecode(encodeStartedAt - decodeStartedAt);
                 if (frame.samples != null) {
+                    // 复制到线程复用的堆缓冲区，记录器写入时不再为每帧分配本地指针对象
+                    Frame pooled = SampleBufferPool.copyOf(frame);
+                    if (parallel && recorders.size() > 1) {
+                        recordInParallel(pooled, recorders);
+                    } else {
+                        for (FrameRecorder recorder : recorders) {
+                            recorder.record(pooled);
+                        }
+                    }
+                    stats.addFrame(ClipRange.frameMicros(pooled));
+                }
+                decodeStartedAt = System.nanoTime();
+                stats.addEncode(decodeStartedAt - encodeStartedAt);
+            }
+            stats.addDecode(System.nanoTime() - decodeStartedAt);
+            stats.flush();
+        }
+
+        /**
+         * 将同一帧并行写入多个记录器，等待全部写入完成
+         *
+         * @param frame     音频帧
+         * @param recorders 帧记录器列表
+         * @throws IOException 当任一记录器写入失败时抛出
+         */
+        private void recordInParallel(Frame frame, List<? extends FrameRecorder> recorders) throws IOException {
+            recordInParallel(encoderPool, frame, recorders);
+        }
+
+        /**
+         * 将同一帧在线程池上并行写入多个记录器
+         * <p>
+         * 任一记录器失败时仍等待其余记录器写完才抛出：调用方随后会关闭所有记录器，
+         * 若其他线程仍在编码，关闭会释放正在使用的本地资源。
+         *
+         * @param pool      编码线程池
+         * @param frame     音频帧
+         * @param recorders 帧记录器列表
+         * @throws IOException 当任一记录器写入失败时抛出，多个失败时抛出最先提交的记录器的异常
+         */
+        static void recordInParallel(ExecutorService pool, Frame frame, List<? extends FrameRecorder> recorders)
+                throws IOException {
+            List<Future<?>> futures = new ArrayList<>(recorders.size());
+            for (FrameRecorder recorder : recorders) {
+                futures.add(pool.submit(() -> {
                     recorder.record(frame);
-                    processedFrames++;
-                    
-                    // 记录进度
-                    if (totalFrames > 0 && processedFrames % 100 == 0) {
-                        double progress = (double) processedFrames / totalFrames * 100;
-                        log.debug("转换进度: {:.2f}%", progress);
+                    return null;
+                }));
+            }
+            Throwable failure = null;
+            boolean interrupted = false;
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        // 编码中的记录器无法中途停止，记下中断后继续等待
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                        break;
                     }
                 }
             }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new ConversionException("转换被中断", failure);
+            }
+            if (failure != null) {
+                throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+            }
         }
 
         /**
@@ -241,8 +986,19 @@ public class ConverterService {
          * @param grabber  要关闭的帧抓取器
          * @param recorder 要关闭的帧记录器
          */
-        private void closeResources(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder) {
-            if (recorder != null) {
+        void closeResources(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder) {
+            closeResources(grabber, recorder != null
+                    ? Collections.singletonList(recorder) : Collections.emptyList());
+        }
+
+        /**
+         * 关闭资源
+         *
+         * @param grabber   要关闭的帧抓取器
+         * @param recorders 要关闭的帧记录器列表
+         */
+        private void closeResources(FFmpegFrameGrabber grabber, List<FFmpegFrameRecorder> recorders) {
+            for (FFmpegFrameRecorder recorder : recorders) {
                 try {
                     recorder.stop();
                     recorder.close();
@@ -0,0 +1,124 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avfilter;
+import org.bytedeco.ffmpeg.global.avformat;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.ffmpeg.global.swresample;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 启动预热：加载 FFmpeg 本地库，并对每种输出格式完整执行一次编码和解码
+ * <p>
+ * 本地库加载和编解码器初始化在首次使用时才发生，会让部署后的第一次转换明显变慢。
+ * 预热在 ApplicationRunner 中同步执行，Spring Boot 在所有 runner 完成后才将就绪状态置为
+ * ACCEPTING_TRAFFIC；同时作为健康检查项，预热完成前报告 OUT_OF_SERVICE。
+ */
+@Slf4j
+@Component("converterWarmup")
+public class ConverterWarmup implements ApplicationRunner, HealthIndicator {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    /** 预热音频时长：0.5秒静音 */
+    private static final int WARMUP_SAMPLES = SAMPLE_RATE / 2;
+    private static final int FRAME_SAMPLES = 1024;
+
+    private final ConverterService converterService;
+    private volatile boolean completed;
+
+    public ConverterWarmup(ConverterService converterService) {
+        this.converterService = converterService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        long startedAt = System.nanoTime();
+        // 只加载转换用到的库；avdevice 依赖 X11 等库，无头环境下无法加载，也不需要
+        Loader.load(avutil.class);
+        Loader.load(swresample.class);
+        Loader.load(avcodec.class);
+        Loader.load(avformat.class);
+        // 响度标准化等滤镜使用
+        Loader.load(avfilter.class);
+        log.info("FFmpeg 本地库加载完成，耗时 {}ms", (System.nanoTime() - startedAt) / 1_000_000);
+
+        for (AudioFormat format : AudioFormat.values()) {
+            long formatStartedAt = System.nanoTime();
+            Path file = Files.createTempFile("warmup-", "." + format.getExtension());
+            try {
+                encodeSilence(format, file);
+                decode(file);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+            log.debug("预热格式 {} 完成，耗时 {}ms",
+                    format.getExtension(), (System.nanoTime() - formatStartedAt) / 1_000_000);
+        }
+
+        completed = true;
+        log.info("转换服务预热完成，耗时 {}ms", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Override
+    public Health health() {
+        return completed ? Health.up().build() : Health.outOfService().withDetail("warmup", "进行中").build();
+    }
+
+    /**
+     * 以与正式转换相同的编码参数写入一段静音
+     *
+     * @param format 音频格式
+     * @param file   输出文件
+     * @throws IOException 当编码失败时抛出
+     */
+    private void encodeSilence(AudioFormat format, Path file) throws IOException {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file.toFile(), 0);
+        try {
+            converterService.initializeRecorder(
+                    recorder, format.getCodecId(), format.getDefaultBitrate(), SAMPLE_RATE, CHANNELS, 1);
+            recorder.start();
+            ShortBuffer samples = ShortBuffer.allocate(FRAME_SAMPLES * CHANNELS);
+            for (int written = 0; written < WARMUP_SAMPLES; written += FRAME_SAMPLES) {
+                samples.clear();
+                recorder.recordSamples(SAMPLE_RATE, CHANNELS, samples);
+            }
+            // 写出缓冲的数据包和文件尾，Ogg 等封装格式在此之前不会写出完整的页
+            recorder.stop();
+        } finally {
+            recorder.release();
+        }
+    }
+
+    /**
+     * 解码预热文件，同时初始化对应的解复用器和解码器
+     *
+     * @param file 音频文件
+     * @throws IOException 当解码失败时抛出
+     */
+    private void decode(Path file) throws IOException {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file.toFile());
+        try {
+            converterService.initializeGrabber(grabber, 1);
+            grabber.start();
+            while (grabber.grabSamples() != null) {
+                // 只需完整走一遍解码流程
+            }
+        } finally {
+            grabber.release();
+        }
+    }
+}
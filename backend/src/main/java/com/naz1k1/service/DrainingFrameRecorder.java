@@ -0,0 +1,132 @@
+package com.naz1k1.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avformat;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+
+/**
+ * 停止时取出编码器中缓冲的全部数据包的帧记录器
+ * <p>
+ * JavaCV 1.5.8 在输入结束后每次冲刷只取出一个数据包，再次冲刷时 avcodec_send_frame 返回 EOF 便不再读取，
+ * MP3、AAC、Opus 等有编码延迟的编码器缓冲的末尾几帧因此丢失，分段编码时每个分段的结尾都会缺一段音频。
+ * 编码器上下文不对外公开，只能通过反射读取后继续取出剩余的数据包；读取不到时退回原有行为。
+ * 分段编码按编码器的帧长和延迟对齐分段边界，同样从编码器上下文读取。
+ */
+@Slf4j
+class DrainingFrameRecorder extends FFmpegFrameRecorder {
+    private static final Field CODEC_CONTEXT = field("audio_c");
+    private static final Field AUDIO_STREAM = field("audio_st");
+    private static final Field OUTPUT_CONTEXT = field("oc");
+    private static final Field INPUT_CONTEXT = field("ifmt_ctx");
+
+    DrainingFrameRecorder(File file, int audioChannels) {
+        super(file, audioChannels);
+    }
+
+    DrainingFrameRecorder(OutputStream outputStream, int audioChannels) {
+        super(outputStream, audioChannels);
+    }
+
+    /**
+     * 编码器每帧的采样数
+     *
+     * @return int 已启动的编码器的帧长，流复制、帧长可变或读取不到时返回0
+     */
+    int getEncoderFrameSize() {
+        AVCodecContext codecContext = openCodecContext();
+        return codecContext != null ? codecContext.frame_size() : 0;
+    }
+
+    /**
+     * 编码器在输出开头插入的延迟采样数，解码时按封装中记录的值跳过
+     *
+     * @return int 已启动的编码器的延迟，流复制或读取不到时返回0
+     */
+    int getEncoderDelay() {
+        AVCodecContext codecContext = openCodecContext();
+        return codecContext != null ? codecContext.initial_padding() : 0;
+    }
+
+    @Override
+    public synchronized void flush() throws Exception {
+        super.flush();
+        drainEncoder();
+    }
+
+    /**
+     * 取出编码器在输入结束后仍缓冲的数据包并写入输出
+     *
+     * @throws Exception 当编码或写入失败时抛出
+     */
+    private void drainEncoder() throws Exception {
+        AVCodecContext codecContext = openCodecContext();
+        AVStream stream = (AVStream) read(AUDIO_STREAM);
+        AVFormatContext outputContext = (AVFormatContext) read(OUTPUT_CONTEXT);
+        if (codecContext == null || stream == null || outputContext == null) {
+            return;
+        }
+
+        AVPacket packet = avcodec.av_packet_alloc();
+        try {
+            int ret;
+            while ((ret = avcodec.avcodec_receive_packet(codecContext, packet)) >= 0) {
+                avcodec.av_packet_rescale_ts(packet, codecContext.time_base(), stream.time_base());
+                packet.stream_index(stream.index());
+                packet.flags(packet.flags() | avcodec.AV_PKT_FLAG_KEY);
+                synchronized (outputContext) {
+                    ret = avformat.av_interleaved_write_frame(outputContext, packet);
+                }
+                if (ret < 0) {
+                    throw new Exception("av_interleaved_write_frame() error " + ret + ": 写入编码器缓冲的数据包失败");
+                }
+            }
+            if (ret != avutil.AVERROR_EOF() && ret != avutil.AVERROR_EAGAIN()) {
+                throw new Exception("avcodec_receive_packet() error " + ret + ": 取出编码器缓冲的数据包失败");
+            }
+        } finally {
+            avcodec.av_packet_free(packet);
+        }
+    }
+
+    /**
+     * 读取已打开的编码器上下文
+     *
+     * @return AVCodecContext 编码器上下文，流复制时不经过编码器，与尚未启动或读取不到时一样返回null
+     */
+    private AVCodecContext openCodecContext() {
+        if (INPUT_CONTEXT == null || read(INPUT_CONTEXT) != null) {
+            return null;
+        }
+        AVCodecContext codecContext = (AVCodecContext) read(CODEC_CONTEXT);
+        return codecContext != null && avcodec.avcodec_is_open(codecContext) != 0 ? codecContext : null;
+    }
+
+    private Object read(Field field) {
+        try {
+            return field != null ? field.get(this) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field field(String name) {
+        try {
+            Field field = FFmpegFrameRecorder.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("无法访问 FFmpegFrameRecorder.{}，停止时不再取出编码器缓冲的数据包", name, e);
+            return null;
+        }
+    }
+}
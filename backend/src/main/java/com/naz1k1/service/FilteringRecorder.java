@@ -0,0 +1,88 @@
+package com.naz1k1.service;
+
+import org.bytedeco.javacv.FFmpegFrameFilter;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameFilter;
+import org.bytedeco.javacv.FrameRecorder;
+
+/**
+ * 在写入记录器之前经过 FFmpeg 滤镜图处理音频帧，滤镜与解码、编码在同一遍中完成
+ * <p>
+ * 目标记录器由调用方启动和关闭；全部帧写入后需调用 stop() 冲刷滤镜中缓冲的采样，
+ * 失败时只需调用 release() 释放滤镜图。
+ */
+class FilteringRecorder extends FrameRecorder {
+    private final FFmpegFrameFilter filter;
+    private final FrameRecorder target;
+
+    /**
+     * @param filter 尚未启动的滤镜，输入参数需与写入的帧一致
+     * @param target 已启动的目标记录器
+     */
+    FilteringRecorder(FFmpegFrameFilter filter, FrameRecorder target) {
+        this.filter = filter;
+        this.target = target;
+    }
+
+    @Override
+    public void start() throws Exception {
+        try {
+            filter.start();
+        } catch (FrameFilter.Exception e) {
+            throw new Exception("滤镜初始化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void record(Frame frame) throws Exception {
+        try {
+            filter.push(frame);
+        } catch (FrameFilter.Exception e) {
+            throw new Exception("滤镜处理失败: " + e.getMessage(), e);
+        }
+        drain();
+    }
+
+    @Override
+    public void flush() {
+        // 滤镜在 stop() 时才会输出全部缓冲的采样
+    }
+
+    @Override
+    public void stop() throws Exception {
+        try {
+            // 空帧表示输入结束，loudnorm、silenceremove 等滤镜随后输出缓冲的采样
+            filter.push(null);
+        } catch (FrameFilter.Exception e) {
+            throw new Exception("滤镜处理失败: " + e.getMessage(), e);
+        }
+        drain();
+    }
+
+    @Override
+    public void release() throws Exception {
+        try {
+            filter.release();
+        } catch (FrameFilter.Exception e) {
+            throw new Exception("释放滤镜失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 取出滤镜当前可输出的全部帧并写入目标记录器，拉取的帧在下一次拉取前有效
+     *
+     * @throws Exception 当拉取或写入失败时抛出
+     */
+    private void drain() throws Exception {
+        Frame frame;
+        try {
+            while ((frame = filter.pull()) != null) {
+                if (frame.samples != null) {
+                    target.record(frame);
+                }
+            }
+        } catch (FrameFilter.Exception e) {
+            throw new Exception("滤镜处理失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.response.JobResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 Server-Sent Events 推送任务进度
+ * <p>
+ * 推送线程按固定间隔读取各任务的进度快照并发送，转换线程不感知订阅者，
+ * 订阅数量和推送频率都不影响转换速度。
+ */
+@Slf4j
+@Service
+public class JobEventPublisher {
+
+    private static final String PROGRESS_EVENT = "progress";
+    private static final String COMPLETE_EVENT = "complete";
+
+    private final ConversionJobService jobService;
+    private final long timeoutMillis;
+    private final Map<SseEmitter, ConversionJob> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public JobEventPublisher(ConversionJobService jobService, ConverterProperties properties) {
+        this.jobService = jobService;
+        this.timeoutMillis = properties.getJobs().getResultTtl().toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "converter-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getJobs().getProgressInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::publish, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅任务进度，立即推送一次当前状态，任务结束后发送 complete 事件并关闭连接
+     *
+     * @param jobId 任务ID
+     * @return SseEmitter 事件流
+     * @throws com.naz1k1.exception.JobNotFoundException 当任务不存在或已过期时抛出
+     */
+    public SseEmitter subscribe(String jobId) {
+        ConversionJob job = jobService.getJob(jobId);
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+
+        subscribers.put(emitter, job);
+        send(emitter, job);
+        return emitter;
+    }
+
+    /**
+     * 向所有订阅者推送任务进度
+     */
+    private void publish() {
+        try {
+            subscribers.forEach(this::send);
+        } catch (RuntimeException e) {
+            // 异常会终止定时任务，记录后继续下一轮推送
+            log.warn("推送任务进度失败", e);
+        }
+    }
+
+    /**
+     * 推送单个任务的状态，任务已结束时发送最终状态并关闭连接
+     *
+     * @param emitter 事件流
+     * @param job     转换任务
+     */
+    private void send(SseEmitter emitter, ConversionJob job) {
+        boolean finished = job.getStatus().isFinished();
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(finished ? COMPLETE_EVENT : PROGRESS_EVENT)
+                    .data(new JobResponse(job), MediaType.APPLICATION_JSON));
+            if (finished) {
+                subscribers.remove(emitter);
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            log.debug("进度订阅已断开 - 任务ID: {}", job.getId());
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        subscribers.keySet().forEach(SseEmitter::complete);
+    }
+}
@@ -0,0 +1,140 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.MediaInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.global.avformat;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 只根据文件头探测媒体信息，在上传和转换之前拒绝无法处理的输入
+ * <p>
+ * 客户端只需发送文件开头的一段数据；时长、编码等信息位于文件末尾的封装格式
+ * （如未经 faststart 处理的 MP4）无法仅凭文件头解析。
+ */
+@Slf4j
+@Service
+public class MediaProbeService {
+    private static final int READ_BUFFER_SIZE = 8192;
+    /** 时长需读取文件末尾才能确定的封装格式 */
+    private static final Set<String> TAIL_DURATION_FORMATS = Collections.singleton("ogg");
+
+    private final ConversionCostEstimator costEstimator;
+    private final ConverterProperties.Probe config;
+
+    public MediaProbeService(ConversionCostEstimator costEstimator, ConverterProperties properties) {
+        this.costEstimator = costEstimator;
+        this.config = properties.getProbe();
+    }
+
+    /**
+     * 读取文件头并探测媒体信息
+     *
+     * @param body        文件开头的数据，超出配置上限的部分不会被读取
+     * @param totalLength 完整文件的大小，未知时为null
+     * @param options     转换参数，用于估算转换开销
+     * @return MediaInfo 探测得到的媒体信息
+     * @throws InvalidInputException 当数据为空、无法解析或不含音频流时抛出
+     * @throws IOException           当读取请求数据失败时抛出
+     */
+    public MediaInfo probe(InputStream body, Long totalLength, ConversionOptions options) throws IOException {
+        byte[] header = readHeader(body, config.getMaxBytes().toBytes());
+        if (header.length == 0) {
+            throw new InvalidInputException("探测数据不能为空");
+        }
+        boolean complete = totalLength != null && header.length >= totalLength;
+
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(new ByteArrayInputStream(header));
+        try {
+            // 数据已全部在内存中，探测范围以实际收到的长度为限
+            grabber.setOption("probesize", String.valueOf(Math.max(header.length, 32)));
+            grabber.setOption("analyzeduration", String.valueOf(config.getAnalyzeDuration().toNanos() / 1000));
+            grabber.start();
+        } catch (IOException e) {
+            release(grabber);
+            log.debug("探测失败 - 读取: {} bytes", header.length, e);
+            throw new InvalidInputException("无法从文件头解析媒体信息，MP4 文件需将 moov 置于文件开头（faststart）");
+        }
+
+        try {
+            if (grabber.getAudioChannels() <= 0) {
+                throw new InvalidInputException("视频中没有音频流");
+            }
+            long lengthMicros = complete || isDurationFromHeader(grabber) ? grabber.getLengthInTime() : 0;
+            Double estimatedCost = null;
+            if (lengthMicros > 0) {
+                estimatedCost = costEstimator.estimate(lengthMicros / 1_000_000.0,
+                        grabber.getSampleRate(), grabber.getAudioChannels(), options);
+            } else if (totalLength != null) {
+                estimatedCost = costEstimator.estimateFromSize(totalLength, options);
+            }
+            MediaInfo info = MediaInfo.builder()
+                    .container(grabber.getFormat())
+                    .durationMicros(lengthMicros > 0 ? lengthMicros : null)
+                    .audioCodec(grabber.getAudioCodecName())
+                    .sampleRate(grabber.getSampleRate())
+                    .channels(grabber.getAudioChannels())
+                    .audioBitrate(grabber.getAudioBitrate())
+                    .hasVideo(grabber.getVideoStream() >= 0)
+                    .estimatedCost(estimatedCost)
+                    .build();
+            log.debug("探测完成 - 读取: {} bytes, 封装: {}, 时长: {}us",
+                    header.length, info.getContainer(), lengthMicros);
+            return info;
+        } finally {
+            release(grabber);
+        }
+    }
+
+    /**
+     * 判断时长是否来自文件头
+     * <p>
+     * 按码率或末尾时间戳推算的时长在数据不完整时只反映已收到的部分。Ogg 的时长取自最后一页的时间戳，
+     * FFmpeg 仍将其标记为来自流信息，需单独排除。
+     *
+     * @param grabber 已启动的帧抓取器
+     * @return boolean 时长来自文件头时返回true
+     */
+    private boolean isDurationFromHeader(FFmpegFrameGrabber grabber) {
+        return grabber.getFormatContext().duration_estimation_method() == avformat.AVFMT_DURATION_FROM_STREAM
+                && !TAIL_DURATION_FORMATS.contains(grabber.getFormat());
+    }
+
+    /**
+     * 读取最多 maxBytes 字节
+     *
+     * @param body     输入流
+     * @param maxBytes 读取上限
+     * @return byte[] 读取到的数据
+     * @throws IOException 当读取失败时抛出
+     */
+    private byte[] readHeader(InputStream body, long maxBytes) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        long remaining = maxBytes;
+        int read;
+        while (remaining > 0 && (read = body.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+            header.write(buffer, 0, read);
+            remaining -= read;
+        }
+        return header.toByteArray();
+    }
+
+    private void release(FFmpegFrameGrabber grabber) {
+        try {
+            grabber.release();
+        } catch (IOException e) {
+            log.warn("关闭grabber时发生错误", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.naz1k1.service;
+
+import com.naz1k1.model.WaveformPeaks;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 在帧写入目标记录器的同时计算波形峰值，利用转换过程中已解码的采样，不需要再解码一遍
+ * <p>
+ * 目标记录器由调用方启动和关闭；位于滤镜之后时峰值反映的是滤镜处理后的音频。
+ */
+class PeaksRecorder extends FrameRecorder {
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final FrameRecorder target;
+    private final int samplesPerPixel;
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int length;
+    private int peakSampleRate;
+    /** 当前组已累计的采样数和范围 */
+    private int count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param target          已启动的目标记录器
+     * @param samplesPerPixel 每组的采样数
+     */
+    PeaksRecorder(FrameRecorder target, int samplesPerPixel) {
+        this.target = target;
+        this.samplesPerPixel = Math.max(1, samplesPerPixel);
+    }
+
+    @Override
+    public void start() {
+        // 目标记录器由调用方启动
+    }
+
+    @Override
+    public void record(Frame frame) throws Exception {
+        accumulate(frame);
+        target.record(frame);
+    }
+
+    @Override
+    public void flush() {
+        // 峰值在 getPeaks() 时输出最后不足一组的部分
+    }
+
+    @Override
+    public void stop() {
+        // 目标记录器由调用方关闭
+    }
+
+    @Override
+    public void release() {
+        // 没有本地资源
+    }
+
+    /**
+     * @return WaveformPeaks 已写入的全部采样的波形峰值，最后不足一组的采样单独成组
+     */
+    WaveformPeaks getPeaks() {
+        if (count > 0) {
+            emit();
+        }
+        return new WaveformPeaks(peakSampleRate, samplesPerPixel, Arrays.copyOf(data, length));
+    }
+
+    /**
+     * 累计一帧的采样，所有声道合并计算
+     *
+     * @param frame 音频帧，平面格式每个声道一个缓冲区，交错格式只有一个缓冲区
+     */
+    private void accumulate(Frame frame) {
+        Buffer[] samples = frame.samples;
+        int channels = Math.max(1, frame.audioChannels);
+        boolean planar = samples.length > 1;
+        int frameSamples = planar ? samples[0].remaining() : samples[0].remaining() / channels;
+        if (peakSampleRate == 0) {
+            peakSampleRate = frame.sampleRate;
+        }
+
+        for (int i = 0; i < frameSamples; i++) {
+            for (int c = 0; c < channels; c++) {
+                double value = planar
+                        ? sample(samples[Math.min(c, samples.length - 1)], i)
+                        : sample(samples[0], i * channels + c);
+                if (value < min) {
+                    min = value;
+                }
+                if (value > max) {
+                    max = value;
+                }
+            }
+            if (++count == samplesPerPixel) {
+                emit();
+            }
+        }
+    }
+
+    private void emit() {
+        if (length + 2 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[length++] = quantize(min);
+        data[length++] = quantize(max);
+        count = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    private static byte quantize(double value) {
+        return (byte) Math.max(-128, Math.min(127, Math.round(value * 127)));
+    }
+
+    /**
+     * 按缓冲区类型读取一个采样并归一化到 [-1, 1]
+     *
+     * @param buffer 采样缓冲区
+     * @param index  相对 position 的下标
+     * @return double 归一化的采样值
+     */
+    private static double sample(Buffer buffer, int index) {
+        int position = buffer.position() + index;
+        if (buffer instanceof FloatBuffer) {
+            return ((FloatBuffer) buffer).get(position);
+        } else if (buffer instanceof ShortBuffer) {
+            return ((ShortBuffer) buffer).get(position) / 32768.0;
+        } else if (buffer instanceof IntBuffer) {
+            return ((IntBuffer) buffer).get(position) / 2147483648.0;
+        } else if (buffer instanceof DoubleBuffer) {
+            return ((DoubleBuffer) buffer).get(position);
+        } else if (buffer instanceof ByteBuffer) {
+            // 8位采样为无符号数
+            return ((((ByteBuffer) buffer).get(position) & 0xff) - 128) / 128.0;
+        }
+        throw new IllegalArgumentException("不支持的采样缓冲区类型: " + buffer.getClass());
+    }
+}
@@ -0,0 +1,379 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.exception.ConversionException;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 长音频的分段并行编码：按时间切分输入，各段独立解码编码后按数据包拼接
+ * <p>
+ * 各分段按 {@link ClipRange} 只转换自己的时间段，编解码器的初始化和资源释放沿用 {@link ConverterService}。
+ */
+@Slf4j
+class SegmentedEncoder {
+    /** 有编码延迟的格式分段编码时，各分段在边界前后多编码的帧数，拼接时丢弃 */
+    private static final int SEGMENT_OVERLAP_FRAMES = 2;
+
+    private final ConverterService converter;
+    private final ConverterProperties.Segmented config;
+    /** 分段编码的线程池 */
+    private final ForkJoinPool segmentPool;
+
+    /**
+     * @param converter 提供编解码器初始化和资源释放的转换服务
+     * @param config    分段编码配置
+     */
+    SegmentedEncoder(ConverterService converter, ConverterProperties.Segmented config) {
+        this.converter = converter;
+        this.config = config;
+        this.segmentPool = new ForkJoinPool(Math.max(1, config.getParallelism()));
+    }
+
+    void shutdown() {
+        segmentPool.shutdownNow();
+    }
+
+    /**
+     * 判断输入是否适合分段并行编码
+     *
+     * @param videoFile 视频文件路径
+     * @param options   转换参数
+     * @param threads   本次转换的线程额度，分段数不超过该值
+     * @param stats     转换统计，探测耗时计入其中
+     * @return SourceInfo 适合分段时返回源音频信息和分段数，否则返回null
+     * @throws IOException           当读取输入文件失败时抛出
+     * @throws InvalidInputException 当截取范围不合法时抛出
+     */
+    SourceInfo probe(
+            Path videoFile, ConversionOptions options, int threads, ConversionStats stats) throws IOException {
+        int segments = Math.min(config.getParallelism(), threads);
+        // loudnorm 等滤镜的状态贯穿整段音频，分段独立处理会在分段边界处不连续；波形峰值按顺序逐组计算
+        if (!config.isEnabled() || segments < 2 || options.isFiltered() || options.isWaveform()
+                || !config.getFormats().contains(options.getFormat().getExtension())) {
+            return null;
+        }
+
+        long startedAt = System.nanoTime();
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile.toFile());
+        try {
+            converter.initializeGrabber(grabber, 1);
+            grabber.start();
+            // 分段路径不经过单次转换中的校验，选择分段前先按源时长校验截取范围
+            ClipRange.validate(options, grabber.getLengthInTime());
+            // 截取时只按片段时长切分
+            long lengthMicros = options.clipLength(grabber.getLengthInTime());
+            if (grabber.getAudioChannels() <= 0
+                    || lengthMicros < config.getMinDuration().toNanos() / 1000
+                    || converter.canStreamCopy(grabber, options)) {
+                return null;
+            }
+            return new SourceInfo(
+                    lengthMicros,
+                    segments,
+                    options.getSampleRate() != null ? options.getSampleRate() : grabber.getSampleRate(),
+                    options.getChannels() != null ? options.getChannels() : grabber.getAudioChannels());
+        } finally {
+            converter.closeResources(grabber, (FFmpegFrameRecorder) null);
+            stats.addProbe(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * 将输入切分为 source 中的分段数并行编码，全部完成后拼接到输出文件
+     *
+     * @param videoFile  视频文件路径
+     * @param outputFile 输出文件路径
+     * @param options    转换参数
+     * @param source     源音频信息
+     * @param stats      转换统计，各分段的统计在分段完成后合并到其中
+     * @throws IOException           当任一分段转换或拼接失败时抛出
+     * @throws InvalidInputException 当分段发现输入不合法时抛出，保持原类型以便返回400
+     */
+    void convert(
+            Path videoFile,
+            Path outputFile,
+            ConversionOptions options,
+            SourceInfo source,
+            ConversionStats stats) throws IOException {
+        int segments = source.segments;
+        String extension = "." + options.getFormat().getExtension();
+        List<Segment> segmentParts = new ArrayList<>();
+        log.debug("分段并行编码 - 视频: {}, 时长: {}us, 分段数: {}", videoFile, source.lengthMicros, segments);
+        if (stats.getProgress() != null) {
+            stats.getProgress().start(source.lengthMicros);
+        }
+
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            // 首个失败的原因，其余分段据此在下一帧停止
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            for (int i = 0; i < segments; i++) {
+                Segment segment = new Segment(i, Files.createTempFile("segment-", extension));
+                segmentParts.add(segment);
+                tasks.add(segmentPool.submit(() -> {
+                    if (failure.get() != null) {
+                        return null;
+                    }
+                    try {
+                        ConversionStats segmentStats = new ConversionStats(stats.getProgress());
+                        encodeSegment(videoFile, segment, options, source,
+                                () -> failure.get() != null, segmentStats);
+                        stats.merge(segmentStats);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+            // 等待所有分段结束后才能删除分段文件：出错后尚未开始的分段直接取消，进行中的分段在下一帧停止
+            for (ForkJoinTask<?> task : tasks) {
+                if (failure.get() != null) {
+                    task.cancel(false);
+                }
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, new ConversionException("转换被中断", e));
+                    task.quietlyJoin();
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | CancellationException e) {
+                    // 失败原因已记录在 failure 中
+                }
+            }
+            Throwable cause = failure.get();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InvalidInputException || cause instanceof ConversionException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause != null) {
+                throw new IOException(cause);
+            }
+
+            long mergeStartedAt = System.nanoTime();
+            mergeSegments(segmentParts, outputFile);
+            stats.addEncode(System.nanoTime() - mergeStartedAt);
+        } finally {
+            converter.cleanupTempFiles(segmentParts.stream().map(segment -> segment.file).toArray(Path[]::new));
+        }
+    }
+
+    /**
+     * 转换单个时间段，段边界精确到采样点，相邻分段的边界互补
+     * <p>
+     * 有编码延迟的格式（如 MP3）独立编码的分段直接拼接时，每段开头都会多出编码器的延迟采样，
+     * 结尾补齐整帧的填充也留在中间。这类格式的分段边界对齐到编码器的帧，分段在边界前后各多编码几帧，
+     * 拼接时只保留边界之间的数据包：边界前的预编码使保留的首个数据包恰好从边界开始，
+     * 边界后的多余编码使保留的末帧按真实的后续音频编码，相邻两段在解码时的重叠相加处衔接。
+     *
+     * @param videoFile    视频文件路径
+     * @param segment      分段，编码完成后记录拼接时跳过和保留的数据包数
+     * @param options      转换参数
+     * @param source       源音频信息
+     * @param cancelled    其他分段失败时返回true，本分段随即停止
+     * @param stats        本分段的转换统计
+     * @throws IOException 当转换失败或被取消时抛出
+     */
+    private void encodeSegment(
+            Path videoFile,
+            Segment segment,
+            ConversionOptions options,
+            SourceInfo source,
+            BooleanSupplier cancelled,
+            ConversionStats stats) throws IOException {
+
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile.toFile());
+        DrainingFrameRecorder recorder = new DrainingFrameRecorder(segment.file.toFile(), 0);
+        try {
+            long probeStartedAt = System.nanoTime();
+            // 分段数已按线程额度确定，每段只用一个编解码线程
+            converter.initializeGrabber(grabber, 1);
+            grabber.start();
+            converter.discardNonAudioStreams(grabber);
+
+            converter.initializeRecorder(
+                    recorder,
+                    options.getFormat().getCodecId(),
+                    options.getBitrate(),
+                    source.sampleRate,
+                    source.channels,
+                    1
+            );
+            if (options.getFormat().getCodecId() == avcodec.AV_CODEC_ID_MP3) {
+                // 保留的首帧不能引用被丢弃的前一帧中的比特储备
+                recorder.setAudioOption("reservoir", "0");
+            }
+            recorder.start();
+
+            // 首末两段使用截取范围的边界，未截取时不设上下界，避免容器时长与音频实际时长不一致时丢失数据
+            ClipRange clip = ClipRange.of(options);
+            int index = segment.index;
+            boolean last = index == source.segments - 1;
+            long originMicros = options.getStartMicros() != null ? options.getStartMicros() : 0;
+            long startMicros = index == 0
+                    ? clip.getStartMicros() : originMicros + source.lengthMicros * index / source.segments;
+            long endMicros = last
+                    ? clip.getEndMicros() : originMicros + source.lengthMicros * (index + 1) / source.segments;
+            long encodeFrom = startMicros;
+            long encodeTo = endMicros;
+
+            int frameSize = recorder.getEncoderFrameSize();
+            int delay = recorder.getEncoderDelay();
+            if (frameSize > 0 && delay > 0) {
+                // 以采样计的对齐位置：从截取起点编码时第 n 个数据包从 n * frameSize - delay 开始
+                int sampleRate = recorder.getSampleRate();
+                long lengthSamples = source.lengthMicros * sampleRate / 1_000_000L;
+                long startFrame = alignedFrame(lengthSamples * index / source.segments, frameSize, delay);
+                long endFrame = alignedFrame(lengthSamples * (index + 1) / source.segments, frameSize, delay);
+                if (index > 0) {
+                    // 在边界前预编码整数帧，保留的首个数据包恰好从边界开始
+                    int overlap = (int) Math.min(startFrame,
+                            (SEGMENT_OVERLAP_FRAMES * frameSize + delay + frameSize - 1) / frameSize);
+                    segment.skipPackets = overlap;
+                    startMicros = samplesToMicros(originMicros, startFrame * frameSize - delay, sampleRate);
+                    encodeFrom = samplesToMicros(
+                            originMicros, (startFrame - overlap) * frameSize, sampleRate);
+                }
+                if (!last) {
+                    segment.keepPackets = (int) (endFrame - startFrame);
+                    endMicros = samplesToMicros(originMicros, endFrame * frameSize - delay, sampleRate);
+                    encodeTo = samplesToMicros(
+                            originMicros, endFrame * frameSize - delay + SEGMENT_OVERLAP_FRAMES * frameSize,
+                            sampleRate);
+                }
+            }
+            ClipRange encoded = new ClipRange(encodeFrom, encodeTo);
+            encoded.seek(grabber);
+            stats.addProbe(System.nanoTime() - probeStartedAt);
+
+            encoded.convert(grabber, recorder, new ClipRange(startMicros, endMicros), cancelled, stats);
+        } finally {
+            converter.closeResources(grabber, recorder);
+        }
+    }
+
+    /**
+     * 将分段边界对齐到编码器的帧
+     *
+     * @param samples   边界相对截取起点的采样数
+     * @param frameSize 编码器帧长
+     * @param delay     编码器延迟
+     * @return long 从截取起点编码时，开始位置最接近边界的数据包序号，首段边界为0
+     */
+    private static long alignedFrame(long samples, int frameSize, int delay) {
+        return samples <= 0 ? 0 : Math.round((samples + delay) / (double) frameSize);
+    }
+
+    /**
+     * 将相对截取起点的采样数换算为时间戳，向上取整使换算回采样时不会落到前一个采样
+     */
+    private static long samplesToMicros(long originMicros, long samples, int sampleRate) {
+        return originMicros + (samples * 1_000_000L + sampleRate - 1) / sampleRate;
+    }
+
+    /**
+     * 按数据包顺序拼接分段输出，每段只保留边界之间的数据包，时间戳依次平移
+     *
+     * @param segments   分段，按时间顺序排列
+     * @param outputFile 输出文件路径
+     * @throws IOException 当读取或写入失败时抛出
+     */
+    private void mergeSegments(List<Segment> segments, Path outputFile) throws IOException {
+        List<FFmpegFrameGrabber> grabbers = new ArrayList<>();
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(outputFile.toFile(), 0);
+        try {
+            for (Segment segment : segments) {
+                FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(segment.file.toFile());
+                grabbers.add(grabber);
+                grabber.start();
+            }
+
+            // 各分段编码参数一致，以首段的流参数作为输出流参数
+            FFmpegFrameGrabber first = grabbers.get(0);
+            converter.initializeCopyRecorder(recorder, first);
+            recorder.start(first.getFormatContext());
+
+            long next = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                FFmpegFrameGrabber grabber = grabbers.get(i);
+                long offset = next;
+                int index = 0;
+                AVPacket packet;
+                while ((packet = grabber.grabPacket()) != null
+                        && index < segment.skipPackets + (long) segment.keepPackets) {
+                    if (index++ < segment.skipPackets) {
+                        continue;
+                    }
+                    if (index == segment.skipPackets + 1 && i > 0) {
+                        // 保留的首个数据包紧接上一段之后
+                        offset = next - packet.pts();
+                    }
+                    next = Math.max(next, offset + packet.pts() + packet.duration());
+                    packet.pts(packet.pts() + offset);
+                    packet.dts(packet.dts() + offset);
+                    recorder.recordPacket(packet);
+                }
+            }
+        } finally {
+            converter.closeResources(null, recorder);
+            for (FFmpegFrameGrabber grabber : grabbers) {
+                converter.closeResources(grabber, (FFmpegFrameRecorder) null);
+            }
+        }
+    }
+
+    /**
+     * 分段编码的一个分段：输出文件，以及拼接时开头跳过和随后保留的数据包数
+     */
+    private static class Segment {
+        private final int index;
+        private final Path file;
+        private int skipPackets;
+        private int keepPackets = Integer.MAX_VALUE;
+
+        Segment(int index, Path file) {
+            this.index = index;
+            this.file = file;
+        }
+    }
+
+    /**
+     * 分段编码所需的源音频信息
+     */
+    @Getter
+    static class SourceInfo {
+        private final long lengthMicros;
+        private final int segments;
+        private final int sampleRate;
+        private final int channels;
+
+        SourceInfo(long lengthMicros, int segments, int sampleRate, int channels) {
+            this.lengthMicros = lengthMicros;
+            this.segments = segments;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+        }
+    }
+}
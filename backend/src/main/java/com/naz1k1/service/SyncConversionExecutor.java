@@ -0,0 +1,73 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.exception.TooManyJobsException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 同步转换接口的执行线程池
+ * <p>
+ * 同步接口以 Servlet 异步请求处理：请求线程接收完上传后立即归还给 Tomcat，
+ * 解码编码在线程数固定为核数的本线程池上执行，响应写出由 Spring MVC 的异步任务线程负责。
+ * 慢速客户端上传或下载时只占用请求线程或写出线程，不占用转换线程；
+ * 转换线程全忙且等待队列已满时直接拒绝，不会无限堆积。
+ * 边转换边输出时编码也在本线程池上执行并直接写入响应流，写出线程只等待转换结束。
+ */
+@Slf4j
+@Component
+public class SyncConversionExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public SyncConversionExecutor(ConverterProperties properties, MeterRegistry meterRegistry) {
+        ConverterProperties.Sync config = properties.getSync();
+        int concurrency = Math.max(1, config.getConcurrency());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "converter-sync-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("converter.sync.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在执行的同步转换数")
+                .register(meterRegistry);
+        Gauge.builder("converter.sync.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("等待执行的同步转换数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交转换
+     *
+     * @param conversion 在转换线程上执行的转换
+     * @param <T>        转换结果类型
+     * @return CompletableFuture<T> 转换结果，转换抛出的异常原样传递
+     * @throws TooManyJobsException 当转换线程全忙且等待队列已满时抛出
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> conversion) {
+        try {
+            return CompletableFuture.supplyAsync(conversion, executor);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyJobsException("转换请求过多，请稍后重试");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,147 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.exception.ConversionException;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.exception.UploadNotFoundException;
+import com.naz1k1.model.UploadSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可续传分块上传的会话管理
+ */
+@Slf4j
+@Service
+public class UploadService {
+    /** 与 multipart 上传一致的大小上限 */
+    public static final long MAX_UPLOAD_SIZE = 500L * 1024 * 1024;
+
+    private final ConverterProperties.Uploads config;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadService(ConverterProperties properties) {
+        this.config = properties.getUploads();
+    }
+
+    /**
+     * 创建上传会话并预先创建上传文件
+     *
+     * @param fileName 原始文件名，可以为null
+     * @param length   上传总长度
+     * @return UploadSession 新的上传会话
+     * @throws InvalidInputException 当长度不合法时抛出
+     * @throws ConversionException   当创建上传文件失败时抛出
+     */
+    public UploadSession create(String fileName, long length) {
+        if (length <= 0) {
+            throw new InvalidInputException("上传长度必须大于0");
+        }
+        if (length > MAX_UPLOAD_SIZE) {
+            throw new InvalidInputException("文件大小超过限制（最大500MB）");
+        }
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("upload-", "." + getFileExtension(fileName));
+            UploadSession session = new UploadSession(UUID.randomUUID().toString(), fileName, file, length);
+            sessions.put(session.getId(), session);
+            log.info("创建分块上传 - 上传ID: {}, 文件名: {}, 长度: {}", session.getId(), fileName, length);
+            return session;
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new ConversionException("创建上传文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取上传会话
+     *
+     * @param uploadId 上传ID
+     * @return UploadSession 对应的上传会话
+     * @throws UploadNotFoundException 当上传不存在或已过期时抛出
+     */
+    public UploadSession get(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new UploadNotFoundException("上传不存在或已过期: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * 终止上传并删除已上传的数据
+     *
+     * @param uploadId 上传ID
+     * @throws UploadNotFoundException 当上传不存在或已过期时抛出
+     */
+    public void terminate(String uploadId) {
+        UploadSession session = sessions.remove(uploadId);
+        if (session == null) {
+            throw new UploadNotFoundException("上传不存在或已过期: " + uploadId);
+        }
+        delete(session);
+        log.info("终止分块上传 - 上传ID: {}", uploadId);
+    }
+
+    /**
+     * 定期清理长时间无进展的上传
+     * <p>
+     * 已完成的上传文件归转换任务所有，由任务结束时删除，此处只移除会话记录。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredUploads() {
+        long deadline = System.currentTimeMillis() - config.getExpiry().toMillis();
+        sessions.values().removeIf(session -> {
+            if (session.getLastActivity() >= deadline) {
+                return false;
+            }
+            if (!session.isComplete()) {
+                log.debug("清理过期上传: {}", session.getId());
+                delete(session);
+            }
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(this::delete);
+    }
+
+    private void delete(UploadSession session) {
+        try {
+            session.delete();
+        } catch (IOException e) {
+            log.warn("清理上传文件失败: {}", session.getFile(), e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("清理临时文件失败: {}", file, e);
+        }
+    }
+
+    private String getFileExtension(String fileName) {
+        if (fileName == null) {
+            return "tmp";
+        }
+        int lastDotIndex = fileName.lastIndexOf(".");
+        return lastDotIndex > -1 ? fileName.substring(lastDotIndex + 1) : "tmp";
+    }
+}
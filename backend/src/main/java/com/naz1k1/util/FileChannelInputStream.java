@@ -0,0 +1,77 @@
+package com.naz1k1.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 基于 FileChannel 的输入流，mark/reset/skip 直接移动文件位置而不缓冲数据
+ * <p>
+ * FFmpegFrameGrabber 读取 InputStream 时通过 mark/reset/skip 实现随机访问，
+ * 普通流会被包装成 BufferedInputStream 并把读过的数据全部留在堆上。
+ */
+public class FileChannelInputStream extends InputStream {
+    private final FileChannel channel;
+    private long mark;
+
+    public FileChannelInputStream(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.mark = channel.position();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        return channel.read(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long position = channel.position();
+        // FFmpegFrameGrabber 以 skip(Long.MAX_VALUE) 定位到文件末尾，需避免溢出
+        long skipped = Math.min(n, Math.max(channel.size() - position, 0));
+        channel.position(position + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, channel.size() - channel.position());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        try {
+            mark = channel.position();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法获取文件位置", e);
+        }
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        channel.position(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
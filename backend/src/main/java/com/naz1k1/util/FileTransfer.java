@@ -0,0 +1,67 @@
+package com.naz1k1.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class FileTransfer {
+
+    private FileTransfer() {
+    }
+
+    /**
+     * 使用 FileChannel.transferTo 将文件内容写入输出流，避免在堆上缓冲整个文件
+     *
+     * @param file         要写出的文件
+     * @param outputStream 目标输出流
+     * @throws IOException 当读取文件或写出时发生IO错误
+     */
+    public static void transfer(Path file, OutputStream outputStream) throws IOException {
+        transfer(file, 0, Long.MAX_VALUE, outputStream);
+    }
+
+    /**
+     * 计算文件内容的CRC32，用于以 STORED 方式写入 zip 条目前填写条目头
+     *
+     * @param file 要计算的文件
+     * @return long CRC32 值
+     * @throws IOException 当读取文件时发生IO错误
+     */
+    public static long crc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 将文件中指定区间的内容写入输出流，用于响应 Range 请求
+     *
+     * @param file         要写出的文件
+     * @param position     起始位置
+     * @param count        最多写出的字节数，超出文件末尾的部分忽略
+     * @param outputStream 目标输出流
+     * @throws IOException 当读取文件或写出时发生IO错误
+     */
+    public static void transfer(Path file, long position, long count, OutputStream outputStream) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long end = Math.min(source.size(), position + Math.min(count, Long.MAX_VALUE - position));
+            while (position < end) {
+                position += source.transferTo(position, end - position, target);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.naz1k1.util;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 按线程复用的音频采样缓冲区
+ * <p>
+ * FFmpegFrameGrabber 返回的采样位于直接缓冲区中，FFmpegFrameRecorder 每次写入直接缓冲区都会新建
+ * Pointer 包装对象；写入数组支持的堆缓冲区时则复制到记录器内部已分配的本地内存，不再产生分配。
+ * 每个线程持有一组按需扩容的堆缓冲区，在帧之间和多次转换之间复用。
+ */
+public final class SampleBufferPool {
+    private static final ThreadLocal<SampleBufferPool> POOL = ThreadLocal.withInitial(SampleBufferPool::new);
+
+    private final Frame frame = new Frame();
+    private Buffer[] buffers = new Buffer[0];
+
+    private SampleBufferPool() {
+    }
+
+    /**
+     * 将音频帧的全部采样复制到当前线程的缓冲区
+     *
+     * @param source 源音频帧
+     * @return Frame 当前线程复用的音频帧，下次调用前有效
+     */
+    public static Frame copyOf(Frame source) {
+        int stride = source.samples.length == 1 ? source.audioChannels : 1;
+        return copyOf(source, 0, source.samples[0].remaining() / stride);
+    }
+
+    /**
+     * 将音频帧中 [from, to) 范围的采样复制到当前线程的缓冲区
+     *
+     * @param source 源音频帧
+     * @param from   起始采样下标（包含，按每声道计）
+     * @param to     结束采样下标（不包含，按每声道计）
+     * @return Frame 当前线程复用的音频帧，下次调用前有效
+     */
+    public static Frame copyOf(Frame source, int from, int to) {
+        return POOL.get().copy(source, from, to);
+    }
+
+    private Frame copy(Frame source, int from, int to) {
+        Buffer[] samples = source.samples;
+        int stride = samples.length == 1 ? source.audioChannels : 1;
+        if (buffers.length != samples.length) {
+            buffers = Arrays.copyOf(buffers, samples.length);
+        }
+        for (int i = 0; i < samples.length; i++) {
+            buffers[i] = copyInto(buffers[i], samples[i], from * stride, to * stride);
+        }
+        frame.samples = buffers;
+        frame.sampleRate = source.sampleRate;
+        frame.audioChannels = source.audioChannels;
+        frame.timestamp = source.timestamp;
+        return frame;
+    }
+
+    /**
+     * 复制采样到目标缓冲区，容量不足或类型不同时重新分配
+     *
+     * @param target 可复用的目标缓冲区，可以为null
+     * @param source 源缓冲区，复制后其 position 保持不变
+     * @param from   相对 position 的起始下标
+     * @param to     相对 position 的结束下标
+     * @return Buffer 写入完成、position 为0的目标缓冲区
+     */
+    private static Buffer copyInto(Buffer target, Buffer source, int from, int to) {
+        int position = source.position();
+        int length = to - from;
+        source.position(position + from);
+        try {
+            if (source instanceof ShortBuffer) {
+                ShortBuffer buffer = target instanceof ShortBuffer && target.capacity() >= length
+                        ? (ShortBuffer) target : ShortBuffer.allocate(length);
+                ((ShortBuffer) source).get(buffer.array(), 0, length);
+                return reset(buffer, length);
+            } else if (source instanceof FloatBuffer) {
+                FloatBuffer buffer = target instanceof FloatBuffer && target.capacity() >= length
+                        ? (FloatBuffer) target : FloatBuffer.allocate(length);
+                ((FloatBuffer) source).get(buffer.array(), 0, length);
+                return reset(buffer, length);
+            } else if (source instanceof IntBuffer) {
+                IntBuffer buffer = target instanceof IntBuffer && target.capacity() >= length
+                        ? (IntBuffer) target : IntBuffer.allocate(length);
+                ((IntBuffer) source).get(buffer.array(), 0, length);
+                return reset(buffer, length);
+            } else if (source instanceof DoubleBuffer) {
+                DoubleBuffer buffer = target instanceof DoubleBuffer && target.capacity() >= length
+                        ? (DoubleBuffer) target : DoubleBuffer.allocate(length);
+                ((DoubleBuffer) source).get(buffer.array(), 0, length);
+                return reset(buffer, length);
+            } else if (source instanceof ByteBuffer) {
+                ByteBuffer buffer = target instanceof ByteBuffer && target.capacity() >= length
+                        ? (ByteBuffer) target : ByteBuffer.allocate(length);
+                ((ByteBuffer) source).get(buffer.array(), 0, length);
+                return reset(buffer, length);
+            }
+            throw new IllegalArgumentException("不支持的采样缓冲区类型: " + source.getClass());
+        } finally {
+            source.position(position);
+        }
+    }
+
+    private static Buffer reset(Buffer buffer, int length) {
+        buffer.clear();
+        buffer.limit(length);
+        return buffer;
+    }
+}
@@ -0,0 +1,87 @@
+package com.naz1k1.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naz1k1.config.ConverterProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ClusterConfigurationTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void createsDirectoryDefaultsWhenNothingIsRegistered() {
+        runner().run(context -> {
+            assertThat(context).hasSingleBean(JobQueue.class);
+            assertThat(context).getBean(JobQueue.class).isInstanceOf(DirectoryJobQueue.class);
+            assertThat(context).hasSingleBean(SharedStorage.class);
+            assertThat(context).getBean(SharedStorage.class).isInstanceOf(DirectoryStorage.class);
+        });
+    }
+
+    @Test
+    void customQueueAndStorageReplaceDirectoryDefaults() {
+        runner().withUserConfiguration(CustomClusterBeans.class).run(context -> {
+            assertThat(context).hasSingleBean(JobQueue.class);
+            assertThat(context.getBean(JobQueue.class)).isSameAs(context.getBean("customQueue"));
+            assertThat(context).hasSingleBean(SharedStorage.class);
+            assertThat(context.getBean(SharedStorage.class)).isSameAs(context.getBean("customStorage"));
+        });
+    }
+
+    @Test
+    void staysOffWhenClusterIsDisabled() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(ClusterConfiguration.class))
+                .run(context -> assertThat(context).doesNotHaveBean(JobQueue.class));
+    }
+
+    @Test
+    void isSkippedByComponentScan() throws Exception {
+        // 被组件扫描注册时缺失条件取决于扫描顺序，只能作为自动配置处理
+        AutoConfigurationExcludeFilter filter = new AutoConfigurationExcludeFilter();
+        filter.setBeanClassLoader(getClass().getClassLoader());
+        MetadataReaderFactory readers = new SimpleMetadataReaderFactory();
+
+        assertThat(filter.match(readers.getMetadataReader(ClusterConfiguration.class.getName()), readers)).isTrue();
+    }
+
+    private ApplicationContextRunner runner() {
+        ConverterProperties properties = new ConverterProperties();
+        properties.getCluster().setDirectory(root);
+        properties.getCluster().setPollInterval(Duration.ofMillis(10));
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(ClusterConfiguration.class))
+                .withPropertyValues("converter.cluster.enabled=true")
+                .withBean(ConverterProperties.class, () -> properties)
+                .withBean(ObjectMapper.class, ObjectMapper::new);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class CustomClusterBeans {
+
+        @Bean
+        JobQueue customQueue() {
+            return mock(JobQueue.class);
+        }
+
+        @Bean
+        SharedStorage customStorage() {
+            return mock(SharedStorage.class);
+        }
+    }
+}
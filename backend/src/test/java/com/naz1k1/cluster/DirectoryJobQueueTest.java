@@ -0,0 +1,182 @@
+package com.naz1k1.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirectoryJobQueueTest {
+
+    private static final Duration POLL = Duration.ofMillis(10);
+    private static final Duration CLAIM_TIMEOUT = Duration.ofSeconds(60);
+
+    @TempDir
+    Path root;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DirectoryJobQueue queue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        queue = new DirectoryJobQueue(root, POLL, CLAIM_TIMEOUT, objectMapper);
+    }
+
+    @Test
+    void claimsFastLaneFirstThenInSubmissionOrder() throws Exception {
+        queue.publish(ticket("slow-1", false, 1));
+        queue.publish(ticket("fast-2", true, 3));
+        queue.publish(ticket("slow-2", false, 2));
+        queue.publish(ticket("fast-1", true, 4));
+
+        assertThat(queue.size()).isEqualTo(4);
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            order.add(queue.claim(POLL).getJobId());
+        }
+        assertThat(order).containsExactly("fast-2", "fast-1", "slow-1", "slow-2");
+        assertThat(queue.size()).isZero();
+        assertThat(queue.claim(POLL)).isNull();
+    }
+
+    @Test
+    void eachTicketIsClaimedOnceAcrossQueues() throws Exception {
+        int tickets = 50;
+        for (int i = 0; i < tickets; i++) {
+            queue.publish(ticket("job-" + i, i % 2 == 0, i));
+        }
+
+        // 多个队列实例共用同一目录，模拟多个节点同时领取
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<String>>> results = new ArrayList<>();
+        try {
+            for (int n = 0; n < 4; n++) {
+                DirectoryJobQueue node = new DirectoryJobQueue(root, POLL, CLAIM_TIMEOUT, objectMapper);
+                results.add(executor.submit((Callable<List<String>>) () -> {
+                    List<String> claimed = new ArrayList<>();
+                    JobTicket ticket;
+                    while ((ticket = node.claim(POLL)) != null) {
+                        claimed.add(ticket.getJobId());
+                        node.acknowledge(ticket);
+                    }
+                    return claimed;
+                }));
+            }
+            List<String> all = new ArrayList<>();
+            for (Future<List<String>> result : results) {
+                all.addAll(result.get());
+            }
+            assertThat(all).hasSize(tickets).doesNotHaveDuplicates();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(list(root.resolve("claimed"))).isEmpty();
+    }
+
+    @Test
+    void requeuesExpiredClaimWithIncrementedAttempts() throws Exception {
+        queue = new DirectoryJobQueue(root, POLL, Duration.ofMillis(100), objectMapper);
+        queue.publish(ticket("job-1", false, 1));
+        JobTicket claimed = queue.claim(POLL);
+        assertThat(claimed.getAttempts()).isZero();
+
+        // 执行节点失效，不再续期
+        expireClaims();
+        JobTicket reclaimed = queue.claim(Duration.ofSeconds(1));
+
+        assertThat(reclaimed.getJobId()).isEqualTo("job-1");
+        assertThat(reclaimed.getAttempts()).isEqualTo(1);
+        assertThat(list(root.resolve("claimed"))).hasSize(1);
+        assertThat(list(root.resolve(".staging"))).isEmpty();
+    }
+
+    @Test
+    void renewedClaimIsNotRequeued() throws Exception {
+        queue = new DirectoryJobQueue(root, POLL, Duration.ofMillis(100), objectMapper);
+        queue.publish(ticket("job-1", false, 1));
+        JobTicket claimed = queue.claim(POLL);
+
+        expireClaims();
+        assertThat(queue.renew(claimed)).isTrue();
+
+        assertThat(queue.claim(POLL)).isNull();
+        assertThat(queue.acknowledge(claimed)).isTrue();
+        assertThat(list(root.resolve("claimed"))).isEmpty();
+    }
+
+    @Test
+    void staleWorkerAcksAfterRequeue() throws Exception {
+        queue = new DirectoryJobQueue(root, POLL, Duration.ofMillis(100), objectMapper);
+        queue.publish(ticket("job-1", false, 1));
+        JobTicket stale = queue.claim(POLL);
+
+        // 原执行节点续期不及时，任务被放回并由其他节点重新领取
+        expireClaims();
+        JobTicket reclaimed = queue.claim(Duration.ofSeconds(1));
+        assertThat(reclaimed.getAttempts()).isEqualTo(1);
+
+        assertThat(queue.renew(stale)).isFalse();
+        assertThat(queue.acknowledge(stale)).isFalse();
+        assertThat(list(root.resolve("claimed"))).hasSize(1);
+
+        assertThat(queue.renew(reclaimed)).isTrue();
+        assertThat(queue.acknowledge(reclaimed)).isTrue();
+        assertThat(list(root.resolve("claimed"))).isEmpty();
+    }
+
+    @Test
+    void longQueuedTicketIsNotExpiredOnClaim() throws Exception {
+        queue = new DirectoryJobQueue(root, POLL, Duration.ofMillis(100), objectMapper);
+        queue.publish(ticket("job-1", false, 1));
+        for (Path file : list(root.resolve("pending"))) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+
+        JobTicket claimed = queue.claim(POLL);
+
+        assertThat(claimed.getAttempts()).isZero();
+        assertThat(queue.claim(POLL)).isNull();
+    }
+
+    private void expireClaims() throws Exception {
+        for (Path file : list(root.resolve("claimed"))) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+        // 过期检查按租约有效期限频
+        Thread.sleep(150);
+    }
+
+    private static JobTicket ticket(String jobId, boolean fastLane, long createdAt) {
+        return JobTicket.builder()
+                .jobId(jobId)
+                .inputKey("inputs/" + jobId + ".mp4")
+                .fastLane(fastLane)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static List<Path> list(Path directory) throws Exception {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> result = new ArrayList<>();
+            files.forEach(result::add);
+            return result;
+        }
+    }
+}
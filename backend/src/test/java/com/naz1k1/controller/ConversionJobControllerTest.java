@@ -0,0 +1,155 @@
+package com.naz1k1.controller;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.handler.GlobalExceptionHandler;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.service.ConversionJobService;
+import com.naz1k1.service.ConversionMetrics;
+import com.naz1k1.service.JobEventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ConversionJobControllerTest {
+
+    private static final byte[] AUDIO = "0123456789".getBytes();
+    private static final String URL = "/api/converter/jobs/job-1/download";
+
+    @TempDir
+    Path tempDir;
+
+    private final ConversionJobService jobService = mock(ConversionJobService.class);
+    private ConversionJob job;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path audio = Files.write(tempDir.resolve("audio.mp3"), AUDIO);
+        job = new ConversionJob("job-1", "video.mp4",
+                ConversionOptions.builder().format(AudioFormat.MP3).bitrate(128000).build(),
+                tempDir.resolve("video.mp4"), 0, true, null);
+        job.markSucceeded(new ConversionResult(audio, AudioFormat.MP3));
+        when(jobService.getJob("job-1")).thenReturn(job);
+
+        ConversionJobController controller = new ConversionJobController(
+                jobService, mock(JobEventPublisher.class), new ConversionMetrics(new SimpleMeterRegistry()));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void returnsFullContentWithoutRange() throws Exception {
+        perform(get(URL))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"job-1\""))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, AUDIO.length))
+                .andExpect(content().bytes(AUDIO));
+    }
+
+    @Test
+    void returnsRequestedRange() throws Exception {
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes("2345".getBytes()));
+    }
+
+    @Test
+    void returnsSuffixAndOpenEndedRanges() throws Exception {
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().bytes("789".getBytes()));
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=8-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 8-9/10"))
+                .andExpect(content().bytes("89".getBytes()));
+    }
+
+    @Test
+    void rejectsRangeBeyondEnd() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void ignoresMalformedAndMultipleRanges() throws Exception {
+        perform(get(URL).header(HttpHeaders.RANGE, "items=0-1"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(AUDIO));
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(AUDIO));
+    }
+
+    @Test
+    void honoursRangeWhenIfRangeMatches() throws Exception {
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "\"job-1\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("01".getBytes()));
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, httpDate(job.getFinishedAt())))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("01".getBytes()));
+    }
+
+    @Test
+    void returnsFullContentWhenIfRangeDoesNotMatch() throws Exception {
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(AUDIO));
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, httpDate(job.getFinishedAt() - 60_000)))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(AUDIO));
+        // 弱 ETag 不能用于 If-Range
+        perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "W/\"job-1\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingEtag() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.IF_NONE_MATCH, "\"job-1\""))
+                .andExpect(status().isNotModified());
+    }
+
+    /**
+     * 执行请求并等待 StreamingResponseBody 写出响应
+     */
+    private ResultActions perform(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,214 @@
+package com.naz1k1.controller;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.TooManyJobsException;
+import com.naz1k1.handler.GlobalExceptionHandler;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.service.ConversionMetrics;
+import com.naz1k1.service.ConverterService;
+import com.naz1k1.service.MediaProbeService;
+import com.naz1k1.service.SyncConversionExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class VideoToAudioControllerTest {
+
+    private static final String URL = "/api/converter/video-audio-convert";
+    private static final MockMultipartFile VIDEO =
+            new MockMultipartFile("file", "video.mp4", "video/mp4", new byte[16]);
+
+    @TempDir
+    Path tempDir;
+
+    private final ConverterService converterService = mock(ConverterService.class);
+    private final ConverterProperties properties = new ConverterProperties();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SyncConversionExecutor syncExecutor;
+    private VideoToAudioController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // 一个转换线程、一个排队位置，便于构造线程全忙和排队中的转换
+        properties.getSync().setConcurrency(1);
+        properties.getSync().setQueueCapacity(1);
+        properties.getSync().setTimeout(Duration.ofMinutes(1));
+        syncExecutor = new SyncConversionExecutor(properties, new SimpleMeterRegistry());
+        controller = new VideoToAudioController(converterService, mock(MediaProbeService.class),
+                new ConversionMetrics(new SimpleMeterRegistry()), properties, syncExecutor);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        syncExecutor.shutdown();
+    }
+
+    @Test
+    void rejectsWithTooManyRequestsWhenQueueIsFull() throws Exception {
+        occupyThread();
+        syncExecutor.submit(this::block);
+
+        mockMvc.perform(multipart(URL).file(VIDEO))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        verify(converterService, never()).convertVideoToAudio(any(), any());
+    }
+
+    @Test
+    void returnsServiceUnavailableWhenConversionTimesOut() throws Exception {
+        Path audio = Files.write(tempDir.resolve("audio.mp3"), new byte[16]);
+        CountDownLatch started = new CountDownLatch(1);
+        when(converterService.convertVideoToAudio(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            block();
+            return new ConversionResult(audio, AudioFormat.MP3);
+        });
+
+        MvcResult result = mockMvc.perform(multipart(URL).file(VIDEO))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        timeout(result);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        // 超时后才完成的转换结果无人接收，完成时立即释放
+        release.countDown();
+        drain();
+        assertThat(audio).doesNotExist();
+    }
+
+    @Test
+    void skipsQueuedConversionAfterTimeout() throws Exception {
+        occupyThread();
+
+        MvcResult result = mockMvc.perform(multipart(URL).file(VIDEO))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        timeout(result);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        release.countDown();
+        drain();
+        verify(converterService, never()).convertVideoToAudio(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void releasesStreamingConversionWhenBodyNeverRuns() throws Exception {
+        properties.getDirectStream().setEnabled(true);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.setAsyncSupported(true);
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(servletRequest);
+        asyncManager.setAsyncWebRequest(
+                new StandardServletAsyncWebRequest(servletRequest, new MockHttpServletResponse()));
+        // 写出响应体的任务被丢弃，模拟客户端断开或写出超时时响应体始终未执行
+        asyncManager.setTaskExecutor(new ConcurrentTaskExecutor(task -> { }));
+
+        DeferredResult<ResponseEntity<StreamingResponseBody>> deferred = controller.convertVideoToAudio(
+                VIDEO, "mp3", null, null, null, null, null, false, false, servletRequest);
+        StreamingResponseBody body = ((ResponseEntity<StreamingResponseBody>) deferred.getResult()).getBody();
+        asyncManager.startCallableProcessing(() -> {
+            body.writeTo(new ByteArrayOutputStream());
+            return null;
+        });
+        servletRequest.getAsyncContext().complete();
+
+        // 请求结束即放弃转换，不等待 converter.sync.timeout
+        drain();
+        verify(converterService, never()).convertToStream(any(), any(), any());
+    }
+
+    /**
+     * 占用唯一的转换线程，直到测试放行
+     */
+    private void occupyThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        syncExecutor.submit(() -> {
+            started.countDown();
+            return block();
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private Object block() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * 等待转换线程执行完之前提交的任务，排队位置尚未空出时稍后重试
+     */
+    private void drain() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                syncExecutor.submit(() -> null).get(5, TimeUnit.SECONDS);
+                return;
+            } catch (TooManyJobsException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * 触发异步请求超时，MockMvc 不会自行计时
+     */
+    private static void timeout(MvcResult result) throws Exception {
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.naz1k1.model;
+
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.exception.UploadConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadSessionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private UploadSession session;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        session = new UploadSession("upload", "video.mp4", Files.createTempFile(tempDir, "upload-", ".mp4"), 10);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        session.delete();
+    }
+
+    @Test
+    void appendsChunksAtMatchingOffsets() throws IOException {
+        assertThat(session.write(0, chunk(1, 2, 3, 4))).isEqualTo(4);
+        assertThat(session.write(4, chunk(5, 6, 7, 8, 9, 10))).isEqualTo(10);
+
+        assertThat(session.isComplete()).isTrue();
+        assertThat(Files.readAllBytes(session.getFile())).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    void rejectsMismatchedOffsetWithCurrentOffset() throws IOException {
+        session.write(0, chunk(1, 2, 3));
+
+        assertThatThrownBy(() -> session.write(0, chunk(1)))
+                .isInstanceOf(UploadConflictException.class)
+                .satisfies(e -> assertThat(((UploadConflictException) e).getOffset()).isEqualTo(3));
+        assertThatThrownBy(() -> session.write(5, chunk(1)))
+                .isInstanceOf(UploadConflictException.class);
+    }
+
+    @Test
+    void rejectsDataBeyondDeclaredLengthButKeepsWrittenPart() throws IOException {
+        session.write(0, chunk(1, 2, 3, 4, 5, 6, 7, 8));
+
+        assertThatThrownBy(() -> session.write(8, chunk(9, 10, 11)))
+                .isInstanceOf(InvalidInputException.class);
+        assertThat(session.getOffset()).isEqualTo(8);
+        assertThat(session.isComplete()).isFalse();
+    }
+
+    @Test
+    void rejectsConcurrentWriter() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ReadableByteChannel blocking = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                reading.countDown();
+                try {
+                    finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return session.write(0, blocking);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> session.write(0, chunk(1)))
+                .isInstanceOf(UploadConflictException.class);
+        finish.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    void rejectsWritesAfterAbort() {
+        session.abort();
+
+        assertThatThrownBy(() -> session.write(0, chunk(1)))
+                .isInstanceOf(UploadConflictException.class);
+    }
+
+    @Test
+    void streamWaitsForUploadedData() throws Exception {
+        session.write(0, chunk(1, 2));
+        InputStream in = session.openStream(5000);
+        byte[] buffer = new byte[10];
+
+        assertThat(in.read(buffer, 0, 10)).isEqualTo(2);
+        CompletableFuture<Integer> pending = CompletableFuture.supplyAsync(() -> {
+            try {
+                return in.read(buffer, 2, 8);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        session.write(2, chunk(3, 4, 5, 6, 7, 8, 9, 10));
+
+        assertThat(pending.get(5, TimeUnit.SECONDS)).isEqualTo(8);
+        assertThat(in.read()).isEqualTo(-1);
+        assertThat(in.skip(Long.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    void streamFailsWhenUploadStalls() throws IOException {
+        InputStream in = session.openStream(50);
+
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void runsAvailableActionOnceThresholdIsReached() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        session.whenAvailable(4, calls::incrementAndGet);
+
+        session.write(0, chunk(1, 2, 3));
+        assertThat(calls).hasValue(0);
+        session.write(3, chunk(4, 5));
+        session.write(5, chunk(6));
+        assertThat(calls).hasValue(1);
+
+        // 条件已满足时立即执行
+        session.whenAvailable(4, calls::incrementAndGet);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void runsAvailableActionOnAbort() {
+        AtomicInteger calls = new AtomicInteger();
+        session.whenAvailable(4, calls::incrementAndGet);
+
+        session.abort();
+
+        assertThat(calls).hasValue(1);
+        assertThat(session.isAborted()).isTrue();
+    }
+
+    private static ReadableByteChannel chunk(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,52 @@
+package com.naz1k1.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WaveformPeaksTest {
+
+    private static final byte[] DATA = {-32, 64, -127, 127, 0, 0};
+
+    @Test
+    void datRoundTripPreservesPeaks() {
+        WaveformPeaks peaks = new WaveformPeaks(44100, 512, DATA);
+
+        WaveformPeaks restored = WaveformPeaks.fromDat(peaks.toDat());
+
+        assertThat(restored.getSampleRate()).isEqualTo(44100);
+        assertThat(restored.getSamplesPerPixel()).isEqualTo(512);
+        assertThat(restored.getLength()).isEqualTo(3);
+        assertThat(restored.getData()).containsExactly(DATA);
+    }
+
+    @Test
+    void datHeaderFollowsAudiowaveformVersion2() {
+        ByteBuffer dat = ByteBuffer.wrap(new WaveformPeaks(48000, 256, DATA).toDat()).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertThat(dat.remaining()).isEqualTo(24 + DATA.length);
+        assertThat(dat.getInt()).as("version").isEqualTo(2);
+        assertThat(dat.getInt()).as("flags").isEqualTo(1);
+        assertThat(dat.getInt()).as("sample rate").isEqualTo(48000);
+        assertThat(dat.getInt()).as("samples per pixel").isEqualTo(256);
+        assertThat(dat.getInt()).as("length").isEqualTo(3);
+        assertThat(dat.getInt()).as("channels").isEqualTo(1);
+    }
+
+    @Test
+    void rejectsUnsupportedOrTruncatedDat() {
+        byte[] dat = new WaveformPeaks(44100, 512, DATA).toDat();
+        byte[] sixteenBit = dat.clone();
+        sixteenBit[4] = 0;
+
+        assertThatThrownBy(() -> WaveformPeaks.fromDat(sixteenBit)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WaveformPeaks.fromDat(Arrays.copyOf(dat, dat.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WaveformPeaks.fromDat(new byte[8])).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,146 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.naz1k1.service.TestMedia.SAMPLE_RATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ClipRangeTest {
+
+    private final FrameRecorder target = mock(FrameRecorder.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void leavesUntrimmedSidesUnbounded() {
+        ClipRange whole = ClipRange.of(options().build());
+        assertThat(whole.getStartMicros()).isEqualTo(Long.MIN_VALUE);
+        assertThat(whole.getEndMicros()).isEqualTo(Long.MAX_VALUE);
+
+        // 从0开始的截取不设下界，保留时间戳略小于0的首帧
+        ClipRange head = ClipRange.of(options().startMicros(0L).durationMicros(2_000_000L).build());
+        assertThat(head.getStartMicros()).isEqualTo(Long.MIN_VALUE);
+        assertThat(head.getEndMicros()).isEqualTo(2_000_000L);
+
+        ClipRange clip = ClipRange.of(options().startMicros(1_500_000L).durationMicros(2_000_000L).build());
+        assertThat(clip.getStartMicros()).isEqualTo(1_500_000L);
+        assertThat(clip.getEndMicros()).isEqualTo(3_500_000L);
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThatThrownBy(() -> ClipRange.validate(options().startMicros(-1L).build(), 1_000_000L))
+                .isInstanceOf(InvalidInputException.class);
+        assertThatThrownBy(() -> ClipRange.validate(options().durationMicros(0L).build(), 1_000_000L))
+                .isInstanceOf(InvalidInputException.class);
+        assertThatThrownBy(() -> ClipRange.validate(options().startMicros(1_000_000L).build(), 1_000_000L))
+                .isInstanceOf(InvalidInputException.class);
+        // 时长未知时不校验起点
+        assertThatCode(() -> ClipRange.validate(options().startMicros(5_000_000L).build(), 0))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void recordsOnlySamplesInsideRange() throws Exception {
+        List<Short> recorded = capture();
+        // 采样率1000时每个采样1毫秒
+        ClipRange range = new ClipRange(10_000L, 60_000L);
+
+        assertThat(range.record(target, rampFrame(0, 100))).isFalse();
+
+        assertThat(recorded).hasSize(50);
+        assertThat(recorded.get(0)).isEqualTo((short) 10);
+        assertThat(recorded.get(49)).isEqualTo((short) 59);
+    }
+
+    @Test
+    void continuesUntilFrameReachesEnd() throws Exception {
+        ClipRange range = new ClipRange(200_000L, 300_000L);
+
+        // 起点之前的帧不写入，需要继续抓取；终点之后的帧表示已结束
+        assertThat(range.record(target, rampFrame(0, 100))).isTrue();
+        assertThat(range.record(target, rampFrame(300_000L, 100))).isFalse();
+        verify(target, never()).record(any(Frame.class));
+    }
+
+    @Test
+    void countsOnlyCountedRangeInStats() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 2 * SAMPLE_RATE);
+        List<Short> recorded = capture();
+        ConversionStats stats = new ConversionStats(null);
+        ClipRange range = new ClipRange(500_000L, 1_500_000L);
+
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(wav.toFile());
+        try {
+            grabber.start();
+            range.seek(grabber);
+            range.convert(grabber, target, new ClipRange(1_000_000L, 1_500_000L), () -> false, stats);
+        } finally {
+            grabber.release();
+        }
+
+        // 写入整个范围内的采样，统计只计入 counted 范围，各帧时长向下取整到微秒
+        assertThat(recorded).hasSize(SAMPLE_RATE);
+        assertThat(recorded.get(0)).isEqualTo(TestMedia.sampleAt(SAMPLE_RATE / 2));
+        assertThat(stats.getMediaMicros()).isCloseTo(500_000L, within(1_000L));
+    }
+
+    /**
+     * 记录写入目标记录器的第一个声道的采样，写入的帧在下一次写入前有效
+     */
+    private List<Short> capture() throws Exception {
+        List<Short> recorded = new ArrayList<>();
+        doAnswer(invocation -> {
+            Frame frame = invocation.getArgument(0);
+            ShortBuffer samples = (ShortBuffer) frame.samples[0];
+            for (int i = samples.position(); i < samples.limit(); i += frame.audioChannels) {
+                recorded.add(samples.get(i));
+            }
+            return null;
+        }).when(target).record(any(Frame.class));
+        return recorded;
+    }
+
+    /**
+     * 采样率1000的单声道帧，采样值等于帧内下标
+     */
+    private static Frame rampFrame(long timestamp, int samples) {
+        short[] values = new short[samples];
+        for (short i = 0; i < samples; i++) {
+            values[i] = i;
+        }
+        Frame frame = new Frame();
+        frame.sampleRate = 1000;
+        frame.audioChannels = 1;
+        frame.samples = new ShortBuffer[]{ShortBuffer.wrap(values)};
+        frame.timestamp = timestamp;
+        return frame;
+    }
+
+    private static ConversionOptions.ConversionOptionsBuilder options() {
+        return ConversionOptions.builder()
+                .format(AudioFormat.WAV)
+                .bitrate(AudioFormat.WAV.getDefaultBitrate());
+    }
+}
@@ -0,0 +1,89 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodecThreadBudgetTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void firstConversionGetsAllCores() {
+        CodecThreadBudget budget = newBudget(8);
+
+        try (CodecThreadBudget.Lease lease = budget.acquire()) {
+            assertThat(lease.getThreads()).isEqualTo(8);
+            assertThat(allocated()).isEqualTo(8);
+        }
+        assertThat(allocated()).isZero();
+    }
+
+    @Test
+    void laterConversionsOnlyGetUnallocatedCores() {
+        CodecThreadBudget budget = newBudget(16);
+        List<CodecThreadBudget.Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            leases.add(budget.acquire());
+        }
+
+        // 首个转换占满核数，之后的转换保底各1个，总数只按转换数线性超出
+        assertThat(leases.get(0).getThreads()).isEqualTo(16);
+        assertThat(leases.subList(1, 16)).allSatisfy(lease -> assertThat(lease.getThreads()).isEqualTo(1));
+        assertThat(allocated()).isEqualTo(16 + 15);
+
+        leases.forEach(CodecThreadBudget.Lease::close);
+        assertThat(allocated()).isZero();
+    }
+
+    @Test
+    void staysWithinCoresWhileCoresRemain() {
+        CodecThreadBudget budget = newBudget(16);
+        CodecThreadBudget.Lease first = budget.acquire();
+        first.close();
+
+        CodecThreadBudget.Lease a = budget.acquire();
+        CodecThreadBudget.Lease b = budget.acquire();
+        a.close();
+        // a 释放后 b 仍持有1个，新转换按两路平分但不超过剩余核数
+        CodecThreadBudget.Lease c = budget.acquire();
+        CodecThreadBudget.Lease d = budget.acquire();
+
+        assertThat(c.getThreads()).isEqualTo(8);
+        assertThat(d.getThreads()).isEqualTo(5);
+        assertThat(allocated()).isEqualTo(b.getThreads() + 8 + 5).isLessThanOrEqualTo(16);
+        assertThat(perConversion()).isEqualTo(2);
+    }
+
+    @Test
+    void closingTwiceReleasesOnce() {
+        CodecThreadBudget budget = newBudget(4);
+        CodecThreadBudget.Lease a = budget.acquire();
+        CodecThreadBudget.Lease b = budget.acquire();
+
+        a.close();
+        a.close();
+
+        assertThat(allocated()).isEqualTo(b.getThreads());
+        assertThat(perConversion()).isEqualTo(2);
+    }
+
+    private CodecThreadBudget newBudget(int cores) {
+        ConverterProperties properties = new ConverterProperties();
+        properties.getThreads().setCores(cores);
+        return new CodecThreadBudget(properties, registry);
+    }
+
+    private int allocated() {
+        return (int) registry.get("converter.threads.allocated").gauge().value();
+    }
+
+    private int perConversion() {
+        return (int) registry.get("converter.threads.per.conversion").gauge().value();
+    }
+}
@@ -0,0 +1,223 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.WaveformPeaks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversionCacheTest {
+
+    private static final ConversionOptions MP3 = mp3().build();
+
+    @TempDir
+    Path tempDir;
+
+    private final ConverterProperties properties = new ConverterProperties();
+    private Path cacheDir;
+
+    @BeforeEach
+    void setUp() {
+        cacheDir = tempDir.resolve("cache");
+        properties.getCache().setDirectory(cacheDir);
+        properties.getCache().setMaxSize(DataSize.ofBytes(25));
+    }
+
+    @Test
+    void keyDependsOnlyOnOutputAffectingOptions() {
+        ConversionCache cache = newCache();
+        String key = cache.computeKey("hash", MP3);
+
+        assertThat(cache.computeKey("hash", mp3().waveform(true).build())).isEqualTo(key);
+        assertThat(cache.computeKey("hash", mp3().bitrate(192000).build())).isNotEqualTo(key);
+        assertThat(cache.computeKey("hash", mp3().startMicros(0L).build())).isNotEqualTo(key);
+        assertThat(cache.computeKey("other", MP3)).isNotEqualTo(key);
+        assertThat(key).endsWith(".mp3");
+
+        // 无损格式编码时忽略比特率，不同比特率的请求共用同一条目
+        ConversionOptions.ConversionOptionsBuilder flac = ConversionOptions.builder().format(AudioFormat.FLAC);
+        assertThat(cache.computeKey("hash", flac.bitrate(128000).build()))
+                .isEqualTo(cache.computeKey("hash", flac.bitrate(320000).build()))
+                .endsWith(".flac");
+    }
+
+    @Test
+    void keyChangesWithFilterConfiguration() {
+        ConversionOptions normalized = mp3().normalizeLoudness(true).build();
+        String key = newCache().computeKey("hash", normalized);
+
+        properties.getFilters().setIntegratedLoudness(-16);
+        assertThat(newCache().computeKey("hash", normalized)).isNotEqualTo(key);
+        // 未启用滤镜时滤镜配置不影响键
+        assertThat(newCache().computeKey("hash", MP3)).isEqualTo(new ConversionCache(new ConverterProperties(),
+                new SimpleMeterRegistry()).computeKey("hash", MP3));
+    }
+
+    @Test
+    void returnsCopyOfCachedResult() throws IOException {
+        ConversionCache cache = loadedCache();
+        String key = cache.computeKey("hash", MP3);
+        assertThat(cache.get(key, MP3)).isEmpty();
+
+        cache.put(key, result("0123456789"));
+        Optional<ConversionResult> cached = cache.get(key, MP3);
+
+        assertThat(cached).isPresent();
+        try (ConversionResult result = cached.get()) {
+            assertThat(result.getAudioFile()).hasContent("0123456789");
+            assertThat(result.getAudioFile().getParent()).isNotEqualTo(cacheDir);
+        }
+        assertThat(cache.getTotalSize()).isEqualTo(10);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws IOException {
+        ConversionCache cache = loadedCache();
+        cache.put("a.mp3", result("aaaaaaaaaa"));
+        cache.put("b.mp3", result("bbbbbbbbbb"));
+        // 访问 a 后 b 成为最久未使用的条目
+        cache.get("a.mp3", MP3).ifPresent(ConversionResult::close);
+        cache.put("c.mp3", result("cccccccccc"));
+
+        assertThat(cache.getTotalSize()).isEqualTo(20);
+        assertThat(cacheDir.resolve("b.mp3")).doesNotExist();
+        assertThat(cache.get("a.mp3", MP3)).isPresent();
+        assertThat(cache.get("c.mp3", MP3)).isPresent();
+    }
+
+    @Test
+    void dropsEntryWhoseFileIsGoneAndAcceptsItAgain() throws IOException {
+        ConversionCache cache = loadedCache();
+        cache.put("a.mp3", result("aaaaaaaaaa"));
+        Files.delete(cacheDir.resolve("a.mp3"));
+
+        assertThat(cache.get("a.mp3", MP3)).isEmpty();
+        assertThat(cache.getTotalSize()).isZero();
+
+        cache.put("a.mp3", result("aaaaaaaaaa"));
+        assertThat(cache.get("a.mp3", MP3)).isPresent();
+        assertThat(cache.getTotalSize()).isEqualTo(10);
+    }
+
+    @Test
+    void skipsResultsLargerThanTheCache() throws IOException {
+        ConversionCache cache = loadedCache();
+        cache.put("big.mp3", result("0123456789012345678901234567890"));
+
+        assertThat(cache.getTotalSize()).isZero();
+        assertThat(cache.get("big.mp3", MP3)).isEmpty();
+    }
+
+    @Test
+    void reloadsEntriesInAccessOrderAndDropsStagingFiles() throws IOException {
+        Files.createDirectories(cacheDir);
+        Files.write(cacheDir.resolve("old.mp3"), "0123456789".getBytes());
+        Files.write(cacheDir.resolve("new.mp3"), "0123456789".getBytes());
+        Files.write(cacheDir.resolve("staging-1.tmp"), "x".getBytes());
+        Files.setLastModifiedTime(cacheDir.resolve("old.mp3"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(cacheDir.resolve("new.mp3"), FileTime.fromMillis(2_000));
+
+        ConversionCache cache = loadedCache();
+        assertThat(cache.getTotalSize()).isEqualTo(20);
+        assertThat(cacheDir.resolve("staging-1.tmp")).doesNotExist();
+
+        cache.put("next.mp3", result("0123456789"));
+        assertThat(cacheDir.resolve("old.mp3")).doesNotExist();
+        assertThat(cacheDir.resolve("new.mp3")).exists();
+    }
+
+    @Test
+    void waveformRequestMissesWithoutCachedPeaks() throws IOException {
+        properties.getCache().setMaxSize(DataSize.ofKilobytes(1));
+        ConversionCache cache = loadedCache();
+        ConversionOptions waveform = mp3().waveform(true).build();
+        String key = cache.computeKey("hash", waveform);
+        cache.put(key, result("0123456789"));
+
+        assertThat(cache.get(key, waveform)).isEmpty();
+
+        WaveformPeaks peaks = new WaveformPeaks(44100, 512, new byte[]{-3, 3});
+        cache.put(key, new ConversionResult(audioFile("0123456789"), AudioFormat.MP3, peaks));
+        Optional<ConversionResult> cached = cache.get(key, waveform);
+        assertThat(cached).isPresent();
+        assertThat(cached.get().getPeaks().getData()).containsExactly(-3, 3);
+        cached.get().close();
+    }
+
+    @Test
+    void peaksAreKeyedByResolution() throws IOException {
+        properties.getCache().setMaxSize(DataSize.ofKilobytes(1));
+        ConversionOptions waveform = mp3().waveform(true).build();
+        ConversionCache cache = loadedCache();
+        String key = cache.computeKey("hash", waveform);
+        WaveformPeaks peaks = new WaveformPeaks(44100, 512, new byte[]{-3, 3});
+        cache.put(key, new ConversionResult(audioFile("0123456789"), AudioFormat.MP3, peaks));
+
+        properties.getWaveform().setSamplesPerPixel(256);
+        ConversionCache finer = loadedCache();
+
+        // 音频条目不受分辨率影响，峰值需按新分辨率重新计算
+        assertThat(finer.computeKey("hash", waveform)).isEqualTo(key);
+        assertThat(finer.get(key, MP3)).hasValueSatisfying(ConversionResult::close);
+        assertThat(finer.get(key, waveform)).isEmpty();
+    }
+
+    @Test
+    void evictingAudioEntryDeletesItsPeaks() throws IOException {
+        properties.getCache().setMaxSize(DataSize.ofBytes(50));
+        ConversionOptions waveform = mp3().waveform(true).build();
+        ConversionCache cache = loadedCache();
+        WaveformPeaks peaks = new WaveformPeaks(44100, 512, new byte[]{-3, 3});
+        cache.put("a.mp3", new ConversionResult(audioFile("aaaaaaaaaa"), AudioFormat.MP3, peaks));
+        // 命中时先访问音频条目再访问峰值条目，音频条目成为最久未使用的条目
+        cache.get("a.mp3", waveform).ifPresent(ConversionResult::close);
+        cache.put("b.mp3", result("bbbbbbbbbb"));
+        cache.put("c.mp3", result("cccccccccc"));
+
+        assertThat(cacheDir.resolve("a.mp3")).doesNotExist();
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertThat(files.map(file -> file.getFileName().toString())).containsExactlyInAnyOrder("b.mp3", "c.mp3");
+        }
+        assertThat(cache.getTotalSize()).isEqualTo(20);
+    }
+
+    private static ConversionOptions.ConversionOptionsBuilder mp3() {
+        return ConversionOptions.builder()
+                .format(AudioFormat.MP3)
+                .bitrate(128000);
+    }
+
+    private ConversionCache newCache() {
+        return new ConversionCache(properties, new SimpleMeterRegistry());
+    }
+
+    private ConversionCache loadedCache() throws IOException {
+        ConversionCache cache = newCache();
+        cache.load();
+        return cache;
+    }
+
+    private ConversionResult result(String content) throws IOException {
+        return new ConversionResult(audioFile(content), AudioFormat.MP3);
+    }
+
+    private Path audioFile(String content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "audio-", ".mp3");
+        Files.write(file, content.getBytes());
+        return file;
+    }
+}
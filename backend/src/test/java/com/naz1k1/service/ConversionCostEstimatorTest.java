@@ -0,0 +1,94 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.model.ConversionOptions;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ConversionCostEstimatorTest {
+
+    private static final ConversionOptions MP3 = ConversionOptions.builder()
+            .format(AudioFormat.MP3)
+            .bitrate(128000)
+            .build();
+
+    private final ConversionCostEstimator estimator = new ConversionCostEstimator();
+
+    @Test
+    void scalesWithDurationSampleRateAndChannels() {
+        double base = estimator.estimate(100, 44100, 2, MP3) - estimator.estimate(0, 44100, 2, MP3);
+
+        assertThat(estimator.estimate(200, 44100, 2, MP3) - estimator.estimate(0, 44100, 2, MP3))
+                .isCloseTo(base * 2, within(1e-9));
+        assertThat(estimator.estimate(100, 88200, 2, MP3) - estimator.estimate(0, 88200, 2, MP3))
+                .isCloseTo(base * 2, within(1e-9));
+        assertThat(estimator.estimate(100, 44100, 6, MP3) - estimator.estimate(0, 44100, 6, MP3))
+                .isCloseTo(base * 3, within(1e-9));
+    }
+
+    @Test
+    void sizeEstimateCountsOnlyTheClip() {
+        ConversionOptions clip = ConversionOptions.builder()
+                .format(AudioFormat.MP3)
+                .bitrate(128000)
+                .durationMicros(10_000_000L)
+                .build();
+        double full = estimator.estimateFromSize(125_000_000, MP3);
+
+        // 按 1Mbps 推算为1000秒，截取10秒时开销按10秒计算
+        assertThat(estimator.estimateFromSize(125_000_000, clip) - estimator.estimateFromSize(0, MP3))
+                .isCloseTo((full - estimator.estimateFromSize(0, MP3)) / 100, within(1e-9));
+    }
+
+    @Test
+    void loudnessNormalizationAddsCost() {
+        ConversionOptions normalized = ConversionOptions.builder()
+                .format(AudioFormat.MP3)
+                .bitrate(128000)
+                .normalizeLoudness(true)
+                .build();
+
+        assertThat(estimator.estimate(100, 44100, 2, normalized)).isGreaterThan(estimator.estimate(100, 44100, 2, MP3));
+        assertThat(estimator.estimateFromSize(1_000_000, normalized)).isGreaterThan(estimator.estimateFromSize(1_000_000, MP3));
+    }
+
+    @Test
+    void observationMovesEstimateTowardsActualCost() {
+        double before = estimator.estimate(100, 44100, 2, MP3);
+        double overhead = estimator.estimate(0, 44100, 2, MP3);
+
+        // 实际耗时为估算的2倍，按20%的权重修正后系数变为原来的1.2倍
+        estimator.observe(AudioFormat.MP3, before, overhead + (before - overhead) * 2);
+        double after = estimator.estimate(100, 44100, 2, MP3);
+
+        assertThat(after - overhead).isCloseTo((before - overhead) * 1.2, within(1e-9));
+        // 其他格式不受影响
+        ConversionOptions flac = ConversionOptions.builder().format(AudioFormat.FLAC).bitrate(0).build();
+        assertThat(new ConversionCostEstimator().estimate(100, 44100, 2, flac))
+                .isEqualTo(estimator.estimate(100, 44100, 2, flac));
+    }
+
+    @Test
+    void outlierObservationIsClamped() {
+        double before = estimator.estimate(100, 44100, 2, MP3);
+        double overhead = estimator.estimate(0, 44100, 2, MP3);
+
+        // 实际耗时为估算的100倍时按4倍修正，系数变为原来的1.6倍
+        estimator.observe(AudioFormat.MP3, before, overhead + (before - overhead) * 100);
+
+        assertThat(estimator.estimate(100, 44100, 2, MP3) - overhead)
+                .isCloseTo((before - overhead) * 1.6, within(1e-9));
+    }
+
+    @Test
+    void ignoresObservationsWithoutMediaCost() {
+        double before = estimator.estimate(100, 44100, 2, MP3);
+
+        estimator.observe(AudioFormat.MP3, estimator.estimate(0, 44100, 2, MP3), 10);
+        estimator.observe(AudioFormat.MP3, before, 0);
+
+        assertThat(estimator.estimate(100, 44100, 2, MP3)).isEqualTo(before);
+    }
+}
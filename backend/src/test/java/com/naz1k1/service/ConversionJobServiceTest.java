@@ -0,0 +1,230 @@
+package com.naz1k1.service;
+
+import com.naz1k1.cluster.ClusterJobDispatcher;
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.enums.JobStatus;
+import com.naz1k1.exception.JobNotFoundException;
+import com.naz1k1.exception.TooManyJobsException;
+import com.naz1k1.model.ConversionJob;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionProgress;
+import com.naz1k1.model.ConversionResult;
+import com.naz1k1.model.UploadSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversionJobServiceTest {
+
+    private static final ConversionOptions OPTIONS = ConversionOptions.builder()
+            .format(AudioFormat.MP3)
+            .bitrate(128000)
+            .build();
+
+    @TempDir
+    Path tempDir;
+
+    private final ConverterService converterService = mock(ConverterService.class);
+    private final ConversionCostEstimator costEstimator = mock(ConversionCostEstimator.class);
+    private final ConverterProperties properties = new ConverterProperties();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ConversionJobService jobService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.getJobs().setWorkers(1);
+        properties.getJobs().setQueueCapacity(1);
+        properties.getAdmission().setReservedFastWorkers(0);
+        when(converterService.saveUpload(any())).thenAnswer(invocation -> Files.createTempFile(tempDir, "video-", ".mp4"));
+        when(converterService.convertFile(any(), any(), any())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return new ConversionResult(Files.createTempFile(tempDir, "audio-", ".mp3"), AudioFormat.MP3);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (jobService != null) {
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    void runsJobToCompletionAndDeletesInput() throws Exception {
+        jobService = newService();
+        ConversionJob job = jobService.submit(upload(), OPTIONS);
+        release.countDown();
+
+        awaitStatus(job, JobStatus.SUCCEEDED);
+        assertThat(job.getResult()).isNotNull();
+        assertThat(job.getFinishedAt()).isNotNull();
+        assertThat(job.getVideoFile()).doesNotExist();
+        assertThat(jobService.getJob(job.getId())).isSameAs(job);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        jobService = newService();
+        ConversionJob running = jobService.submit(upload(), OPTIONS);
+        awaitStatus(running, JobStatus.RUNNING);
+        jobService.submit(upload(), OPTIONS);
+
+        assertThatThrownBy(() -> jobService.submit(upload(), OPTIONS))
+                .isInstanceOf(TooManyJobsException.class);
+    }
+
+    @Test
+    void rejectsWhenCostBudgetIsExceeded() throws Exception {
+        properties.getJobs().setQueueCapacity(8);
+        properties.getAdmission().setWallTimeBudget(java.time.Duration.ofSeconds(100));
+        when(costEstimator.estimateFromSize(anyLong(), any())).thenReturn(60.0);
+        jobService = newService();
+
+        ConversionJob running = jobService.submit(upload(), OPTIONS);
+        awaitStatus(running, JobStatus.RUNNING);
+
+        assertThatThrownBy(() -> jobService.submit(upload(), OPTIONS))
+                .isInstanceOf(TooManyJobsException.class)
+                .satisfies(e -> assertThat(((TooManyJobsException) e).getRetryAfterSeconds()).isEqualTo(20));
+    }
+
+    @Test
+    void uploadJobWaitsForDataWithoutOccupyingWorker() throws Exception {
+        properties.getJobs().setQueueCapacity(2);
+        properties.getUploads().setStartAfter(DataSize.ofBytes(4));
+        when(converterService.convertUpload(any(), any(), any())).thenAnswer(invocation ->
+                new ConversionResult(Files.createTempFile(tempDir, "audio-", ".mp3"), AudioFormat.MP3));
+        jobService = newService();
+        UploadSession upload = newUploadSession(8);
+
+        ConversionJob job = jobService.submitUpload(upload, OPTIONS);
+        // 等待数据的任务计入队列容量，但不占用工作线程
+        ConversionJob other = jobService.submit(upload(), OPTIONS);
+        awaitStatus(other, JobStatus.RUNNING);
+        ConversionJob queued = jobService.submit(upload(), OPTIONS);
+        assertThatThrownBy(() -> jobService.submit(upload(), OPTIONS)).isInstanceOf(TooManyJobsException.class);
+        release.countDown();
+        awaitStatus(queued, JobStatus.SUCCEEDED);
+        assertThat(job.getStatus()).isEqualTo(JobStatus.QUEUED);
+
+        upload.write(0, Channels.newChannel(new ByteArrayInputStream(new byte[4])));
+        awaitStatus(job, JobStatus.SUCCEEDED);
+    }
+
+    @Test
+    void uploadJobFailsWhenUploadIsAbortedBeforeStart() throws Exception {
+        properties.getAdmission().setWallTimeBudget(java.time.Duration.ofSeconds(100));
+        when(costEstimator.estimateFromSize(anyLong(), any())).thenReturn(60.0);
+        jobService = newService();
+        UploadSession upload = newUploadSession(8);
+
+        ConversionJob job = jobService.submitUpload(upload, OPTIONS);
+        upload.abort();
+
+        assertThat(job.getStatus()).isEqualTo(JobStatus.FAILED);
+        // 已释放占用的开销预算和队列容量
+        ConversionJob next = jobService.submit(upload(), OPTIONS);
+        awaitStatus(next, JobStatus.RUNNING);
+    }
+
+    @Test
+    void onlyFileJobsCorrectCostEstimate() throws Exception {
+        properties.getJobs().setQueueCapacity(2);
+        properties.getUploads().setStartAfter(DataSize.ofBytes(4));
+        Answer<ConversionResult> convert = invocation -> {
+            invocation.getArgument(2, ConversionProgress.class).start(1_000_000);
+            return new ConversionResult(Files.createTempFile(tempDir, "audio-", ".mp3"), AudioFormat.MP3);
+        };
+        doAnswer(convert).when(converterService).convertFile(any(), any(), any());
+        doAnswer(convert).when(converterService).convertUpload(any(), any(), any());
+        when(costEstimator.estimateFromSize(anyLong(), any())).thenReturn(1.0);
+        when(costEstimator.estimate(any(Path.class), any())).thenReturn(5.0);
+        jobService = newService();
+        UploadSession upload = newUploadSession(4);
+
+        ConversionJob uploadJob = jobService.submitUpload(upload, OPTIONS);
+        upload.write(0, Channels.newChannel(new ByteArrayInputStream(new byte[4])));
+        awaitStatus(uploadJob, JobStatus.SUCCEEDED);
+        // 上传任务的耗时包含等待分块的时间，不用于修正估算
+        verify(costEstimator, never()).observe(any(), anyDouble(), anyDouble());
+
+        ConversionJob fileJob = jobService.submit(upload(), OPTIONS);
+        awaitStatus(fileJob, JobStatus.SUCCEEDED);
+        // 按工作线程探测得到的估算修正，而不是提交时按大小推算的估算
+        verify(costEstimator).observe(eq(AudioFormat.MP3), eq(5.0), anyDouble());
+    }
+
+    @Test
+    void probesInputOnWorkerNotOnRequestThread() throws Exception {
+        String requestThread = Thread.currentThread().getName();
+        AtomicReference<String> probeThread = new AtomicReference<>();
+        when(costEstimator.estimate(any(Path.class), any())).thenAnswer(invocation -> {
+            probeThread.set(Thread.currentThread().getName());
+            return 1.0;
+        });
+        jobService = newService();
+
+        ConversionJob job = jobService.submit(upload(), OPTIONS);
+        verify(costEstimator).estimateFromSize(16, OPTIONS);
+        release.countDown();
+
+        awaitStatus(job, JobStatus.SUCCEEDED);
+        assertThat(probeThread.get()).isNotNull().isNotEqualTo(requestThread).startsWith("converter-worker-");
+    }
+
+    @Test
+    void unknownJobIsNotFound() {
+        jobService = newService();
+        assertThatThrownBy(() -> jobService.getJob("missing")).isInstanceOf(JobNotFoundException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConversionJobService newService() {
+        ObjectProvider<ClusterJobDispatcher> dispatcher = mock(ObjectProvider.class);
+        return new ConversionJobService(converterService, costEstimator, properties, new SimpleMeterRegistry(), dispatcher);
+    }
+
+    private UploadSession newUploadSession(long length) throws Exception {
+        return new UploadSession("upload", "video.mp4", Files.createTempFile(tempDir, "upload-", ".mp4"), length);
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("file", "video.mp4", "video/mp4", new byte[16]);
+    }
+
+    private static void awaitStatus(ConversionJob job, JobStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(job.getStatus()).isEqualTo(status);
+    }
+}
@@ -0,0 +1,402 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static com.naz1k1.service.TestMedia.SAMPLE_RATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConverterServiceTest {
+
+    /** 有损编码的编码器延迟和末帧填充带来的时长误差上限（秒） */
+    private static final double LOSSY_TOLERANCE = 0.1;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private final ConverterProperties properties = new ConverterProperties();
+    private ConverterService service;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        properties.getCache().setEnabled(false);
+        properties.getThreads().setCores(4);
+        properties.getSegmented().setParallelism(4);
+        properties.getSegmented().setEnabled(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void parallelRecordWaitsForAllRecordersBeforeFailing() throws Exception {
+        FrameRecorder.Exception failure = new FrameRecorder.Exception("编码失败");
+        FrameRecorder failing = mock(FrameRecorder.class);
+        doThrow(failure).when(failing).record(any(Frame.class));
+        AtomicBoolean slowFinished = new AtomicBoolean();
+        FrameRecorder slow = mock(FrameRecorder.class);
+        doAnswer(invocation -> {
+            Thread.sleep(300);
+            slowFinished.set(true);
+            return null;
+        }).when(slow).record(any(Frame.class));
+
+        assertThatThrownBy(() -> ConverterService.recordInParallel(pool, new Frame(), Arrays.asList(failing, slow)))
+                .isSameAs(failure);
+        // 抛出时所有记录器都已空闲，调用方可以安全关闭
+        assertThat(slowFinished).isTrue();
+    }
+
+    @Test
+    void parallelRecordWrapsNonIoFailures() throws Exception {
+        FrameRecorder failing = mock(FrameRecorder.class);
+        doThrow(new IllegalStateException("编码器状态错误")).when(failing).record(any(Frame.class));
+        FrameRecorder ok = mock(FrameRecorder.class);
+
+        assertThatThrownBy(() -> ConverterService.recordInParallel(pool, new Frame(), Arrays.asList(ok, failing)))
+                .isInstanceOf(IOException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void streamCopiesMatchingCodecWithoutReencoding() throws Exception {
+        Path video = TestMedia.video(tempDir, 2, 64000);
+
+        try (ConversionResult result = newService().convertFile(video, options(AudioFormat.AAC).build())) {
+            // 源比特率低于目标比特率，数据包原样复制，ADTS 封装只为每个数据包加上7字节的帧头
+            assertThat(TestMedia.audioPacketSizes(result.getAudioFile()))
+                    .isEqualTo(TestMedia.audioPacketSizes(video).stream()
+                            .map(size -> size + 7)
+                            .collect(Collectors.toList()));
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_AAC);
+            // ADTS 不记录编码器的预热采样，解码结果比 MP4 中按编辑列表跳过后的多出一个 AAC 帧
+            assertThat(audio.samples.length - TestMedia.decode(video).samples.length).isBetween(0, 1024);
+        }
+    }
+
+    @Test
+    void streamCopiesLosslessSourceRegardlessOfBitrate() throws Exception {
+        Path video = TestMedia.flacVideo(tempDir, 2);
+
+        try (ConversionResult result = newService().convertFile(video, options(AudioFormat.FLAC).build())) {
+            // FLAC 源比特率远高于请求的比特率，无损格式不比较比特率，数据包原样复制
+            assertThat(TestMedia.audioPacketSizes(result.getAudioFile()))
+                    .isEqualTo(TestMedia.audioPacketSizes(video));
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_FLAC);
+            assertThat(audio.samples).isEqualTo(TestMedia.decode(video).samples);
+        }
+    }
+
+    @Test
+    void grabsOnlyAudioFromVideo() throws Exception {
+        Path video = TestMedia.video(tempDir, 2, 128000);
+        ConverterService converter = newService();
+
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(video.toFile());
+        try {
+            grabber.start();
+            converter.discardNonAudioStreams(grabber);
+            int images = 0;
+            Frame frame;
+            while ((frame = grabber.grab()) != null) {
+                images += frame.image != null ? 1 : 0;
+            }
+            // 只有 start() 时已预读的首帧是视频帧，之后的视频数据包不再被读取和解码
+            assertThat(images).isLessThanOrEqualTo(1);
+        } finally {
+            grabber.release();
+        }
+
+        try (ConversionResult result = converter.convertFile(video, options(AudioFormat.WAV).build())) {
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_PCM_S16LE);
+            assertThat(audio.samples).hasSameSizeAs(TestMedia.decode(video).samples);
+        }
+    }
+
+    @Test
+    void streamsUploadOnDiskWithoutTempFile() throws Exception {
+        Path video = TestMedia.video(tempDir, 2, 128000);
+        MultipartFile upload = mock(MultipartFile.class);
+        when(upload.getContentType()).thenReturn("video/mp4");
+        when(upload.getSize()).thenReturn(Files.size(video));
+        when(upload.getInputStream()).thenAnswer(invocation -> new FileInputStream(video.toFile()));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        newService().convertToStream(upload, options(AudioFormat.MP3).build(), output);
+
+        TestMedia.Decoded audio = TestMedia.decode(new ByteArrayInputStream(output.toByteArray()));
+        assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_MP3);
+        assertThat(audio.seconds()).isCloseTo(2.0, within(LOSSY_TOLERANCE));
+    }
+
+    @Test
+    void rejectsStreamingToUnseekableFormat() {
+        MultipartFile upload = mock(MultipartFile.class);
+        when(upload.getContentType()).thenReturn("video/mp4");
+
+        assertThatThrownBy(() -> newService().convertToStream(
+                upload, options(AudioFormat.WAV).build(), new ByteArrayOutputStream()))
+                .isInstanceOf(InvalidInputException.class);
+    }
+
+    @Test
+    void keepsEncoderTailWhenStopping() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 3 * SAMPLE_RATE);
+
+        try (ConversionResult result = newService().convertFile(wav, options(AudioFormat.MP3).build())) {
+            // 停止时取出编码器缓冲的全部数据包，解码时按封装记录的延迟和填充裁剪后与源等长
+            assertThat(TestMedia.decode(result.getAudioFile()).samples).hasSize(3 * SAMPLE_RATE);
+        }
+    }
+
+    @Test
+    void segmentedOutputMatchesSinglePass() throws Exception {
+        // 32位源转为16位 WAV 需要重新编码，不走流复制
+        Path wav = TestMedia.wav32(tempDir, 0, 3 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.WAV).build();
+        short[] singlePass;
+        try (ConversionResult result = newService().convertFile(wav, options)) {
+            singlePass = TestMedia.decode(result.getAudioFile()).samples;
+        }
+
+        enableSegments();
+        try (ConversionResult result = newService().convertFile(wav, options)) {
+            // 分段边界精确到采样点，拼接后与单遍转换逐采样一致
+            assertThat(TestMedia.decode(result.getAudioFile()).samples)
+                    .hasSize(3 * SAMPLE_RATE)
+                    .isEqualTo(singlePass);
+        }
+    }
+
+    @Test
+    void segmentedMp3MatchesSinglePass() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 3 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.MP3).build();
+        short[] singlePass;
+        try (ConversionResult result = newService().convertFile(wav, options)) {
+            singlePass = TestMedia.decode(result.getAudioFile()).samples;
+        }
+
+        enableSegments();
+        try (ConversionResult result = newService().convertFile(wav, options)) {
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_MP3);
+            // 分段边界对齐到编码器的帧，拼接后不多出编码器延迟，长度与单遍转换一致
+            assertThat(audio.samples).hasSize(singlePass.length);
+            // 边界处没有跳变或静音，与单遍转换只差有损编码的量化误差
+            long difference = 0;
+            for (int i = 0; i < singlePass.length; i++) {
+                difference += Math.abs(audio.samples[i] - singlePass[i]);
+            }
+            assertThat(difference / singlePass.length).isLessThan(50);
+        }
+    }
+
+    @Test
+    void encodesEveryFormatFromOneDecodeWithPooledBuffers() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 2 * SAMPLE_RATE);
+        short[] source = TestMedia.decode(wav).samples;
+
+        List<ConversionResult> results = newService().convertFileToFormats(wav, Arrays.asList(
+                options(AudioFormat.WAV).build(), options(AudioFormat.FLAC).build()));
+        try {
+            // 复用的缓冲区在各记录器并行写入期间保持不变，无损格式的输出与源逐采样一致
+            for (ConversionResult result : results) {
+                assertThat(TestMedia.decode(result.getAudioFile()).samples).isEqualTo(source);
+            }
+            assertThat(TestMedia.decode(results.get(1).getAudioFile()).codecId)
+                    .isEqualTo(avcodec.AV_CODEC_ID_FLAC);
+        } finally {
+            results.forEach(ConversionResult::close);
+        }
+    }
+
+    @Test
+    void encodesOpusAtSupportedSampleRate() throws Exception {
+        Path video = TestMedia.video(tempDir, 2, 128000);
+
+        try (ConversionResult result = newService().convertFile(video, options(AudioFormat.OPUS).build())) {
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_OPUS);
+            // Opus 不支持 44.1kHz，改用 48kHz
+            assertThat(audio.sampleRate).isEqualTo(48000);
+            assertThat(audio.channels).isEqualTo(2);
+            assertThat(audio.seconds()).isCloseTo(2.0, within(LOSSY_TOLERANCE));
+        }
+    }
+
+    @Test
+    void encodesVorbis() throws Exception {
+        Path video = TestMedia.video(tempDir, 2, 128000);
+
+        try (ConversionResult result = newService().convertFile(video, options(AudioFormat.VORBIS).build())) {
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_VORBIS);
+            assertThat(audio.sampleRate).isEqualTo(SAMPLE_RATE);
+            assertThat(audio.seconds()).isCloseTo(2.0, within(LOSSY_TOLERANCE));
+        }
+    }
+
+    @Test
+    void trimsExactlyToRequestedRange() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 4 * SAMPLE_RATE);
+        ConversionOptions clip = options(AudioFormat.WAV)
+                .startMicros(1_500_000L)
+                .durationMicros(2_000_000L)
+                .build();
+
+        try (ConversionResult result = newService().convertFile(wav, clip)) {
+            assertClip(TestMedia.decode(result.getAudioFile()).samples, SAMPLE_RATE * 3 / 2, 2 * SAMPLE_RATE);
+        }
+    }
+
+    @Test
+    void segmentedTrimMatchesRequestedRange() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 4 * SAMPLE_RATE);
+        ConversionOptions clip = options(AudioFormat.WAV)
+                .startMicros(1_500_000L)
+                .durationMicros(2_000_000L)
+                .build();
+        enableSegments();
+
+        try (ConversionResult result = newService().convertFile(wav, clip)) {
+            assertClip(TestMedia.decode(result.getAudioFile()).samples, SAMPLE_RATE * 3 / 2, 2 * SAMPLE_RATE);
+        }
+    }
+
+    @Test
+    void trimsToEndOfSourceWithoutDuration() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 2 * SAMPLE_RATE);
+        ConversionOptions clip = options(AudioFormat.WAV).startMicros(500_000L).build();
+
+        try (ConversionResult result = newService().convertFile(wav, clip)) {
+            assertClip(TestMedia.decode(result.getAudioFile()).samples, SAMPLE_RATE / 2, SAMPLE_RATE * 3 / 2);
+        }
+    }
+
+    @Test
+    void rejectsStartBeyondSource() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, SAMPLE_RATE);
+        ConversionOptions clip = options(AudioFormat.WAV).startMicros(2_000_000L).build();
+
+        assertThatThrownBy(() -> newService().convertFile(wav, clip)).isInstanceOf(InvalidInputException.class);
+    }
+
+    @Test
+    void trimsLeadingSilenceInSamePass() throws Exception {
+        Path wav = TestMedia.wav(tempDir, SAMPLE_RATE, 2 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.WAV).trimSilence(true).build();
+
+        try (ConversionResult result = newService().convertFile(wav, options)) {
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            assertThat(audio.sampleRate).isEqualTo(SAMPLE_RATE);
+            assertThat(audio.channels).isEqualTo(2);
+            assertThat(audio.seconds()).isCloseTo(2.0, within(0.05));
+            assertThat(audio.samples[0]).isNotZero();
+        }
+    }
+
+    @Test
+    void normalizesLoudnessWithoutChangingLengthOrFormat() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 2 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.WAV).normalizeLoudness(true).build();
+
+        try (ConversionResult result = newService().convertFile(wav, options)) {
+            TestMedia.Decoded audio = TestMedia.decode(result.getAudioFile());
+            // loudnorm 内部以192kHz输出，滤镜末尾重采样回源采样率；冲刷后不丢失缓冲的采样
+            assertThat(audio.sampleRate).isEqualTo(SAMPLE_RATE);
+            assertThat(audio.channels).isEqualTo(2);
+            assertThat(audio.seconds()).isCloseTo(2.0, within(0.05));
+            assertThat(peak(audio.samples)).isLessThan(peak(TestMedia.decode(wav).samples));
+        }
+    }
+
+    private ConverterService newService() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = new ConverterService(
+                new ConversionCache(properties, registry),
+                new ConversionMetrics(registry),
+                new CodecThreadBudget(properties, registry),
+                properties);
+        return service;
+    }
+
+    /**
+     * 让测试用的短输入也走分段编码
+     */
+    private void enableSegments() {
+        properties.getSegmented().setEnabled(true);
+        properties.getSegmented().setMinDuration(Duration.ofSeconds(1));
+    }
+
+    private static ConversionOptions.ConversionOptionsBuilder options(AudioFormat format) {
+        return ConversionOptions.builder()
+                .format(format)
+                .bitrate(format.getDefaultBitrate());
+    }
+
+    /**
+     * 校验截取结果与源信号中 [start, start + length) 的采样逐一对应
+     */
+    private static void assertClip(short[] clip, int start, int length) {
+        assertThat(clip).hasSize(length);
+        assertThat(clip[0]).isEqualTo(TestMedia.sampleAt(start));
+        assertThat(clip[length - 1]).isEqualTo(TestMedia.sampleAt(start + length - 1));
+        for (int i = 0; i < length; i++) {
+            if (clip[i] != TestMedia.sampleAt(start + i)) {
+                throw new AssertionError("采样 " + i + " 与源信号不一致");
+            }
+        }
+    }
+
+    private static int peak(short[] samples) {
+        int peak = 0;
+        for (short sample : samples) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        return peak;
+    }
+}
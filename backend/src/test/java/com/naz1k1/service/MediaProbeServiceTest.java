@@ -0,0 +1,109 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.exception.InvalidInputException;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.MediaInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.naz1k1.service.TestMedia.CHANNELS;
+import static com.naz1k1.service.TestMedia.SAMPLE_RATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MediaProbeServiceTest {
+
+    private static final ConversionOptions MP3 = ConversionOptions.builder()
+            .format(AudioFormat.MP3)
+            .bitrate(128000)
+            .build();
+    private static final int PREFIX_BYTES = 32 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final ConversionCostEstimator costEstimator = new ConversionCostEstimator();
+    private final MediaProbeService probeService = new MediaProbeService(costEstimator, new ConverterProperties());
+
+    @Test
+    void probesFaststartMp4FromPrefix() throws IOException {
+        Path video = TestMedia.faststartVideo(tempDir, 10);
+        byte[] prefix = prefix(video);
+
+        MediaInfo info = probe(prefix, Files.size(video));
+
+        // moov 位于文件开头时时长取自文件头，与收到的数据量无关
+        assertThat(info.getDurationMicros()).isCloseTo(10_000_000L, within(200_000L));
+        assertThat(info.getSampleRate()).isEqualTo(SAMPLE_RATE);
+        assertThat(info.getChannels()).isEqualTo(CHANNELS);
+        assertThat(info.isHasVideo()).isTrue();
+        assertThat(info.getEstimatedCost()).isCloseTo(
+                costEstimator.estimate(info.getDurationMicros() / 1_000_000.0, SAMPLE_RATE, CHANNELS, MP3),
+                within(1e-9));
+    }
+
+    @Test
+    void rejectsPrefixOfMp4WithoutFaststart() throws IOException {
+        byte[] prefix = prefix(TestMedia.video(tempDir, 10, 128000));
+
+        assertThatThrownBy(() -> probe(prefix, null))
+                .isInstanceOf(InvalidInputException.class)
+                .hasMessageContaining("faststart");
+    }
+
+    @Test
+    void omitsPartialOggDurationAndEstimatesFromSize() throws IOException {
+        Path ogg = TestMedia.ogg(tempDir, 10 * SAMPLE_RATE);
+        byte[] prefix = prefix(ogg);
+        long length = Files.size(ogg);
+
+        // Ogg 的时长取自已收到的最后一页，只反映前缀部分，不作为时长返回
+        MediaInfo partial = probe(prefix, length);
+        assertThat(partial.getDurationMicros()).isNull();
+        assertThat(partial.getEstimatedCost()).isEqualTo(costEstimator.estimateFromSize(length, MP3));
+
+        // 不知道完整大小时无法估算
+        assertThat(probe(prefix, null).getEstimatedCost()).isNull();
+
+        // 收到完整文件时末尾的时长可信
+        MediaInfo complete = probe(Files.readAllBytes(ogg), length);
+        assertThat(complete.getDurationMicros()).isCloseTo(10_000_000L, within(200_000L));
+    }
+
+    @Test
+    void rejectsMediaWithoutAudioStream() throws IOException {
+        byte[] content = Files.readAllBytes(TestMedia.silentVideo(tempDir, 10));
+
+        assertThatThrownBy(() -> probe(content, (long) content.length))
+                .isInstanceOf(InvalidInputException.class)
+                .hasMessageContaining("没有音频流");
+    }
+
+    @Test
+    void rejectsEmptyBody() {
+        assertThatThrownBy(() -> probe(new byte[0], null))
+                .isInstanceOf(InvalidInputException.class);
+    }
+
+    private MediaInfo probe(byte[] body, Long length) throws IOException {
+        return probeService.probe(new ByteArrayInputStream(body), length, MP3);
+    }
+
+    /**
+     * 文件开头的一段数据，模拟客户端只发送文件头
+     */
+    private static byte[] prefix(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        assertThat(content.length).isGreaterThan(PREFIX_BYTES);
+        return Arrays.copyOf(content, PREFIX_BYTES);
+    }
+}
@@ -0,0 +1,78 @@
+package com.naz1k1.service;
+
+import com.naz1k1.model.WaveformPeaks;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PeaksRecorderTest {
+
+    private final FrameRecorder target = mock(FrameRecorder.class);
+
+    @Test
+    void mergesPlanarChannelsIntoOneRangePerGroup() throws Exception {
+        PeaksRecorder recorder = new PeaksRecorder(target, 2);
+        Frame frame = audioFrame(44100, 2,
+                FloatBuffer.wrap(new float[]{0.5f, 0.25f, 0.0f, 1.0f}),
+                FloatBuffer.wrap(new float[]{-1.0f, 0.0f, 0.0f, -0.25f}));
+
+        recorder.record(frame);
+        WaveformPeaks peaks = recorder.getPeaks();
+
+        verify(target).record(frame);
+        assertThat(peaks.getSampleRate()).isEqualTo(44100);
+        assertThat(peaks.getSamplesPerPixel()).isEqualTo(2);
+        assertThat(peaks.getData()).containsExactly(-127, 64, -32, 127);
+    }
+
+    @Test
+    void readsInterleavedShortSamples() throws Exception {
+        PeaksRecorder recorder = new PeaksRecorder(target, 2);
+        // 两个声道交错排列，每组两个采样点共四个值
+        Frame frame = audioFrame(48000, 2,
+                ShortBuffer.wrap(new short[]{8192, -8192, 32767, 0, -32768, 0, 0, 0}));
+
+        recorder.record(frame);
+
+        assertThat(recorder.getPeaks().getData()).containsExactly(-32, 127, -127, 0);
+    }
+
+    @Test
+    void groupsSpanFramesAndLastPartialGroupIsKept() throws Exception {
+        PeaksRecorder recorder = new PeaksRecorder(target, 3);
+        recorder.record(audioFrame(44100, 1, FloatBuffer.wrap(new float[]{0.25f, -0.25f})));
+        recorder.record(audioFrame(44100, 1, FloatBuffer.wrap(new float[]{0.5f, 1.0f})));
+
+        WaveformPeaks peaks = recorder.getPeaks();
+
+        assertThat(peaks.getLength()).isEqualTo(2);
+        assertThat(peaks.getData()).containsExactly(-32, 64, 127, 127);
+    }
+
+    @Test
+    void readsFromBufferPosition() throws Exception {
+        PeaksRecorder recorder = new PeaksRecorder(target, 4);
+        FloatBuffer samples = FloatBuffer.wrap(new float[]{1.0f, -1.0f, 0.25f, -0.25f});
+        samples.position(2);
+
+        recorder.record(audioFrame(44100, 1, samples));
+
+        assertThat(recorder.getPeaks().getData()).containsExactly(-32, 32);
+    }
+
+    private static Frame audioFrame(int sampleRate, int channels, Buffer... samples) {
+        Frame frame = new Frame();
+        frame.sampleRate = sampleRate;
+        frame.audioChannels = channels;
+        frame.samples = samples;
+        return frame;
+    }
+}
@@ -0,0 +1,127 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.model.ConversionOptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static com.naz1k1.service.TestMedia.SAMPLE_RATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedEncoderTest {
+
+    private final ConverterProperties properties = new ConverterProperties();
+    private ConverterService converter;
+    private SegmentedEncoder encoder;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        properties.getCache().setEnabled(false);
+        properties.getSegmented().setEnabled(true);
+        properties.getSegmented().setParallelism(4);
+        properties.getSegmented().setMinDuration(Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        converter = new ConverterService(
+                new ConversionCache(properties, registry),
+                new ConversionMetrics(registry),
+                new CodecThreadBudget(properties, registry),
+                properties);
+        encoder = new SegmentedEncoder(converter, properties.getSegmented());
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.shutdown();
+        converter.shutdown();
+    }
+
+    @Test
+    void probeLimitsSegmentsToThreadsAndClipLength() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 4 * SAMPLE_RATE);
+        ConversionOptions clip = options(AudioFormat.MP3).startMicros(1_000_000L).durationMicros(2_000_000L).build();
+
+        SegmentedEncoder.SourceInfo source = encoder.probe(wav, clip, 3, new ConversionStats(null));
+
+        assertThat(source).isNotNull();
+        assertThat(source.getSegments()).isEqualTo(3);
+        assertThat(source.getLengthMicros()).isEqualTo(2_000_000L);
+        assertThat(source.getSampleRate()).isEqualTo(SAMPLE_RATE);
+        assertThat(source.getChannels()).isEqualTo(2);
+    }
+
+    @Test
+    void probeDeclinesShortOrFilteredInputs() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 2 * SAMPLE_RATE);
+        ConversionStats stats = new ConversionStats(null);
+
+        // 滤镜状态贯穿整段音频，不能分段
+        assertThat(encoder.probe(wav, options(AudioFormat.MP3).normalizeLoudness(true).build(), 4, stats)).isNull();
+        // 只有一个线程时分段没有收益
+        assertThat(encoder.probe(wav, options(AudioFormat.MP3).build(), 1, stats)).isNull();
+        properties.getSegmented().setMinDuration(Duration.ofSeconds(5));
+        assertThat(encoder.probe(wav, options(AudioFormat.MP3).build(), 4, stats)).isNull();
+    }
+
+    @Test
+    void mergesPcmSegmentsSampleExact() throws Exception {
+        // 32位源转为16位 WAV 需要重新编码，不走流复制
+        Path wav = TestMedia.wav32(tempDir, 0, 3 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.WAV).build();
+
+        Path output = convert(wav, options);
+
+        assertThat(TestMedia.decode(output).samples).isEqualTo(TestMedia.decode(wav).samples);
+    }
+
+    @Test
+    void mergesMp3SegmentsWithoutExtraEncoderDelay() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 3 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.MP3).build();
+
+        Path output = convert(wav, options);
+
+        // 各分段对齐到编码器的帧，拼接后只在开头保留一次编码器延迟，解码时按封装记录的值裁掉
+        TestMedia.Decoded audio = TestMedia.decode(output);
+        assertThat(audio.codecId).isEqualTo(avcodec.AV_CODEC_ID_MP3);
+        assertThat(audio.samples).hasSize(3 * SAMPLE_RATE);
+    }
+
+    @Test
+    void countsOnlyKeptAudioInStats() throws Exception {
+        Path wav = TestMedia.wav(tempDir, 0, 3 * SAMPLE_RATE);
+        ConversionOptions options = options(AudioFormat.MP3).build();
+        ConversionStats stats = new ConversionStats(null);
+
+        SegmentedEncoder.SourceInfo source = encoder.probe(wav, options, 4, stats);
+        encoder.convert(wav, Files.createTempFile(tempDir, "merged-", ".mp3"), options, source, stats);
+
+        // 分段在边界前后多编码的帧不计入，媒体时长与源一致（各帧时长向下取整到微秒）
+        assertThat(stats.getMediaMicros()).isBetween(2_990_000L, 3_000_000L);
+    }
+
+    private Path convert(Path input, ConversionOptions options) throws Exception {
+        SegmentedEncoder.SourceInfo source = encoder.probe(input, options, 4, new ConversionStats(null));
+        assertThat(source).isNotNull();
+        Path output = Files.createTempFile(tempDir, "merged-", "." + options.getFormat().getExtension());
+        encoder.convert(input, output, options, source, new ConversionStats(null));
+        return output;
+    }
+
+    private static ConversionOptions.ConversionOptionsBuilder options(AudioFormat format) {
+        return ConversionOptions.builder()
+                .format(format)
+                .bitrate(format.getDefaultBitrate());
+    }
+}
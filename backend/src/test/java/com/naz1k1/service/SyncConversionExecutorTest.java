@@ -0,0 +1,77 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import com.naz1k1.exception.TooManyJobsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncConversionExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final SyncConversionExecutor executor = newExecutor();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void rejectsWhenThreadsAndQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            return block("running");
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = executor.submit(() -> block("queued"));
+
+        assertThat(meterRegistry.get("converter.sync.active").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("converter.sync.queue.depth").gauge().value()).isEqualTo(1);
+        assertThatThrownBy(() -> executor.submit(() -> "rejected"))
+                .isInstanceOf(TooManyJobsException.class);
+
+        // 拒绝不影响已提交的转换
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    @Test
+    void passesConversionFailureThrough() {
+        IllegalStateException failure = new IllegalStateException("转换失败");
+        CompletableFuture<String> future = executor.submit(() -> {
+            throw failure;
+        });
+
+        assertThatThrownBy(future::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCause(failure);
+    }
+
+    private String block(String value) {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private SyncConversionExecutor newExecutor() {
+        ConverterProperties properties = new ConverterProperties();
+        properties.getSync().setConcurrency(1);
+        properties.getSync().setQueueCapacity(1);
+        return new SyncConversionExecutor(properties, meterRegistry);
+    }
+}
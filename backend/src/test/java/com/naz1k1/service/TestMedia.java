@@ -0,0 +1,301 @@
+package com.naz1k1.service;
+
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试用的短媒体文件：与启动预热一样在本地编码生成，并提供解码统计
+ */
+final class TestMedia {
+    static final int SAMPLE_RATE = 44100;
+    static final int CHANNELS = 2;
+
+    private static final int FRAME_SAMPLES = 1024;
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static final int FRAME_RATE = 10;
+
+    private TestMedia() {
+    }
+
+    /**
+     * 生成 WAV 文件：先是一段静音，之后的采样值由采样下标决定，便于校验截取边界
+     *
+     * @param directory      输出目录
+     * @param silentSamples  开头静音的采样数（每声道）
+     * @param signalSamples  静音之后的采样数（每声道）
+     * @return Path WAV 文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path wav(Path directory, int silentSamples, int signalSamples) throws IOException {
+        return wav(directory, silentSamples, signalSamples, avcodec.AV_CODEC_ID_PCM_S16LE, avutil.AV_SAMPLE_FMT_S16);
+    }
+
+    /**
+     * 以32位 PCM 编码生成 {@link #wav(Path, int, int)} 的信号，16位采样值可无损表示；
+     * 与16位输出的编码不同，转换时不会被流复制
+     *
+     * @param directory     输出目录
+     * @param silentSamples 开头静音的采样数（每声道）
+     * @param signalSamples 静音之后的采样数（每声道）
+     * @return Path WAV 文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path wav32(Path directory, int silentSamples, int signalSamples) throws IOException {
+        return wav(directory, silentSamples, signalSamples, avcodec.AV_CODEC_ID_PCM_S32LE, avutil.AV_SAMPLE_FMT_S32);
+    }
+
+    /**
+     * 生成 {@link #wav(Path, int, int)} 的信号的 Ogg Vorbis 文件，时长只能从文件末尾的页读取
+     *
+     * @param directory     输出目录
+     * @param signalSamples 采样数（每声道）
+     * @return Path Ogg 文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path ogg(Path directory, int signalSamples) throws IOException {
+        Path file = Files.createTempFile(directory, "source-", ".ogg");
+        return audio(file, "ogg", avcodec.AV_CODEC_ID_VORBIS, avutil.AV_SAMPLE_FMT_NONE, 0, signalSamples);
+    }
+
+    private static Path wav(Path directory, int silentSamples, int signalSamples, int codec, int sampleFormat)
+            throws IOException {
+        Path file = Files.createTempFile(directory, "source-", ".wav");
+        return audio(file, "wav", codec, sampleFormat, silentSamples, signalSamples);
+    }
+
+    private static Path audio(Path file, String format, int codec, int sampleFormat, int silentSamples,
+                              int signalSamples) throws IOException {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file.toFile(), CHANNELS);
+        recorder.setFormat(format);
+        recorder.setAudioCodec(codec);
+        // AV_SAMPLE_FMT_NONE 时使用编码器支持的首个采样格式
+        recorder.setSampleFormat(sampleFormat);
+        recorder.setSampleRate(SAMPLE_RATE);
+        try {
+            recorder.start();
+            ShortBuffer samples = ShortBuffer.allocate(FRAME_SAMPLES * CHANNELS);
+            int total = silentSamples + signalSamples;
+            for (int index = 0; index < total; ) {
+                samples.clear();
+                for (int i = 0; i < FRAME_SAMPLES && index < total; i++, index++) {
+                    short value = index < silentSamples ? 0 : sampleAt(index);
+                    samples.put(value).put(value);
+                }
+                samples.flip();
+                recorder.recordSamples(SAMPLE_RATE, CHANNELS, samples);
+            }
+            recorder.stop();
+        } finally {
+            recorder.release();
+        }
+        return file;
+    }
+
+    /**
+     * {@link #wav} 生成的信号在指定采样下标处的值
+     *
+     * @param index 采样下标（每声道）
+     * @return short 采样值，不为0
+     */
+    static short sampleAt(long index) {
+        return (short) (1000 + index % 20000);
+    }
+
+    /**
+     * 生成 MPEG-4 视频加 AAC 正弦波音轨的 MP4 文件
+     *
+     * @param directory    输出目录
+     * @param seconds      时长（秒）
+     * @param audioBitrate 音轨比特率
+     * @return Path 视频文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path video(Path directory, int seconds, int audioBitrate) throws IOException {
+        return video(directory, "mp4", avcodec.AV_CODEC_ID_AAC, audioBitrate, seconds, false);
+    }
+
+    /**
+     * 生成 moov 位于文件开头（faststart）的 {@link #video(Path, int, int)}，只凭文件头即可解析
+     *
+     * @param directory 输出目录
+     * @param seconds   时长（秒）
+     * @return Path 视频文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path faststartVideo(Path directory, int seconds) throws IOException {
+        return video(directory, "mp4", avcodec.AV_CODEC_ID_AAC, 128000, seconds, true);
+    }
+
+    /**
+     * 生成没有音轨的 faststart MP4 文件
+     *
+     * @param directory 输出目录
+     * @param seconds   时长（秒）
+     * @return Path 视频文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path silentVideo(Path directory, int seconds) throws IOException {
+        return video(directory, "mp4", avcodec.AV_CODEC_ID_NONE, 0, seconds, true);
+    }
+
+    /**
+     * 生成 MPEG-4 视频加 FLAC 正弦波音轨的 Matroska 文件
+     *
+     * @param directory 输出目录
+     * @param seconds   时长（秒）
+     * @return Path 视频文件路径
+     * @throws IOException 当编码失败时抛出
+     */
+    static Path flacVideo(Path directory, int seconds) throws IOException {
+        // 比特率为0时 JavaCV 不创建音频流，FLAC 编码器本身忽略比特率
+        return video(directory, "matroska", avcodec.AV_CODEC_ID_FLAC, 128000, seconds, false);
+    }
+
+    private static Path video(Path directory, String format, int audioCodec, int audioBitrate, int seconds,
+                              boolean faststart) throws IOException {
+        Path file = Files.createTempFile(directory, "source-", "matroska".equals(format) ? ".mkv" : "." + format);
+        boolean hasAudio = audioCodec != avcodec.AV_CODEC_ID_NONE;
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file.toFile(), WIDTH, HEIGHT, hasAudio ? CHANNELS : 0);
+        recorder.setFormat(format);
+        if (faststart) {
+            recorder.setOption("movflags", "faststart");
+        }
+        recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+        recorder.setFrameRate(FRAME_RATE);
+        recorder.setAudioCodec(audioCodec);
+        recorder.setAudioBitrate(audioBitrate);
+        recorder.setSampleRate(SAMPLE_RATE);
+
+        Frame image = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3);
+        int samplesPerFrame = SAMPLE_RATE / FRAME_RATE;
+        ShortBuffer samples = ShortBuffer.allocate(samplesPerFrame * CHANNELS);
+        long sampleIndex = 0;
+        try {
+            recorder.start();
+            for (int i = 0; i < seconds * FRAME_RATE; i++) {
+                recorder.record(image);
+                if (!hasAudio) {
+                    continue;
+                }
+                samples.clear();
+                for (int s = 0; s < samplesPerFrame; s++, sampleIndex++) {
+                    short value = (short) (8000 * Math.sin(2 * Math.PI * 440 * sampleIndex / SAMPLE_RATE));
+                    samples.put(value).put(value);
+                }
+                samples.flip();
+                recorder.recordSamples(SAMPLE_RATE, CHANNELS, samples);
+            }
+            recorder.stop();
+        } finally {
+            recorder.release();
+        }
+        return file;
+    }
+
+    /**
+     * 解码文件中的音频
+     *
+     * @param file 媒体文件
+     * @return Decoded 解码结果
+     * @throws IOException 当解码失败时抛出
+     */
+    static Decoded decode(Path file) throws IOException {
+        return decode(new FFmpegFrameGrabber(file.toFile()));
+    }
+
+    /**
+     * 解码输入流中的音频
+     *
+     * @param inputStream 媒体数据
+     * @return Decoded 解码结果
+     * @throws IOException 当解码失败时抛出
+     */
+    static Decoded decode(InputStream inputStream) throws IOException {
+        return decode(new FFmpegFrameGrabber(inputStream));
+    }
+
+    private static Decoded decode(FFmpegFrameGrabber grabber) throws IOException {
+        try {
+            grabber.start();
+            ShortBuffer channel = ShortBuffer.allocate(SAMPLE_RATE);
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                if (frame.samples == null) {
+                    continue;
+                }
+                // 默认以交错的16位整数输出，只保留第一个声道
+                ShortBuffer samples = (ShortBuffer) frame.samples[0];
+                for (int i = samples.position(); i < samples.limit(); i += frame.audioChannels) {
+                    if (!channel.hasRemaining()) {
+                        channel.flip();
+                        channel = ShortBuffer.allocate(channel.capacity() * 2).put(channel);
+                    }
+                    channel.put(samples.get(i));
+                }
+            }
+            return new Decoded(grabber.getAudioCodec(), grabber.getSampleRate(), grabber.getAudioChannels(),
+                    Arrays.copyOf(channel.array(), channel.position()));
+        } finally {
+            grabber.release();
+        }
+    }
+
+    /**
+     * 读取文件中音频流的各数据包大小
+     *
+     * @param file 媒体文件
+     * @return List<Integer> 按顺序排列的数据包大小
+     * @throws IOException 当读取失败时抛出
+     */
+    static List<Integer> audioPacketSizes(Path file) throws IOException {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file.toFile());
+        List<Integer> sizes = new ArrayList<>();
+        try {
+            grabber.start();
+            AVPacket packet;
+            while ((packet = grabber.grabPacket()) != null) {
+                if (packet.stream_index() == grabber.getAudioStream()) {
+                    sizes.add(packet.size());
+                }
+            }
+        } finally {
+            grabber.release();
+        }
+        return sizes;
+    }
+
+    /**
+     * 解码得到的音频参数和第一个声道的采样
+     */
+    static final class Decoded {
+        final int codecId;
+        final int sampleRate;
+        final int channels;
+        final short[] samples;
+
+        Decoded(int codecId, int sampleRate, int channels, short[] samples) {
+            this.codecId = codecId;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.samples = samples;
+        }
+
+        double seconds() {
+            return (double) samples.length / sampleRate;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.util.FileTransfer;
+import com.naz1k1.util.SampleBufferPool;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换流程分阶段基准：解码（grab）、编码（record）和临时文件读写
+ * <p>
+ * 抓取器和记录器使用 ConverterService 中相同的初始化逻辑，
+ * 修改 initializeRecorder 中的 FFmpeg 选项后可直接对比 record 阶段的结果。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ConversionStageBenchmark {
+
+    /**
+     * 预先解码的音频帧，供编码阶段使用
+     */
+    @State(Scope.Benchmark)
+    public static class DecodedFrames {
+        @Param
+        public AudioFormat format;
+
+        public List<Frame> frames;
+
+        @Setup(Level.Trial)
+        public void setUp(MediaState media) throws IOException {
+            frames = new ArrayList<>();
+            FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(media.videoFile.toFile());
+            try {
+                media.converterService.initializeGrabber(grabber, media.codecThreads);
+                grabber.start();
+                media.converterService.discardNonAudioStreams(grabber);
+                Frame frame;
+                while ((frame = grabber.grabSamples()) != null) {
+                    if (frame.samples != null) {
+                        frames.add(frame.clone());
+                    }
+                }
+            } finally {
+                grabber.release();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            frames.forEach(Frame::close);
+        }
+    }
+
+    @Benchmark
+    public long grab(MediaState media, MediaState.AudioThroughput throughput,
+                     MediaState.AllocationPerMinute allocation, Blackhole blackhole) throws IOException {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(media.videoFile.toFile());
+        long samples = 0;
+        try {
+            media.converterService.initializeGrabber(grabber, media.codecThreads);
+            grabber.start();
+            media.converterService.discardNonAudioStreams(grabber);
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                if (frame.samples != null) {
+                    blackhole.consume(frame.samples[0]);
+                    samples += frame.samples[0].limit();
+                }
+            }
+        } finally {
+            grabber.release();
+        }
+        throughput.audioSeconds += media.durationSeconds;
+        allocation.converted(media.durationSeconds);
+        return samples;
+    }
+
+    @Benchmark
+    public long record(MediaState media, DecodedFrames decoded, MediaState.AudioThroughput throughput,
+                       MediaState.AllocationPerMinute allocation) throws IOException {
+        Path output = Files.createTempFile("bench-audio-", "." + decoded.format.getExtension());
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(output.toFile(), 0);
+        try {
+            media.converterService.initializeRecorder(
+                    recorder,
+                    decoded.format.getCodecId(),
+                    decoded.format.getDefaultBitrate(),
+                    SyntheticMedia.SAMPLE_RATE,
+                    SyntheticMedia.CHANNELS,
+                    media.codecThreads);
+            recorder.start();
+            for (Frame frame : decoded.frames) {
+                // 与 processFrames 一致，经线程复用的堆缓冲区写入
+                recorder.record(SampleBufferPool.copyOf(frame));
+            }
+            recorder.stop();
+            throughput.audioSeconds += media.durationSeconds;
+            allocation.converted(media.durationSeconds);
+            return Files.size(output);
+        } finally {
+            recorder.release();
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * 上传落盘和结果读出两次文件IO，对应 saveUpload 与 FileTransfer
+     */
+    @Benchmark
+    public long tempIo(MediaState media, MediaState.AudioThroughput throughput,
+                       MediaState.AllocationPerMinute allocation) throws IOException {
+        Path copy = Files.createTempFile("bench-video-", ".mp4");
+        try {
+            Files.copy(media.videoFile, copy, StandardCopyOption.REPLACE_EXISTING);
+            CountingOutputStream sink = new CountingOutputStream();
+            FileTransfer.transfer(copy, sink);
+            throughput.audioSeconds += media.durationSeconds;
+            allocation.converted(media.durationSeconds);
+            return sink.count;
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    /**
+     * 丢弃写入数据的输出流，模拟响应输出
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
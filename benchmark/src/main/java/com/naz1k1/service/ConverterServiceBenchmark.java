@@ -0,0 +1,53 @@
+package com.naz1k1.service;
+
+import com.naz1k1.enums.AudioFormat;
+import com.naz1k1.model.ConversionOptions;
+import com.naz1k1.model.ConversionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConverterService 端到端基准：从磁盘上的视频文件到输出音频文件
+ * <p>
+ * 运行方式：
+ * <pre>
+ * java -jar target/benchmarks.jar ConverterServiceBenchmark -prof gc
+ * </pre>
+ * audioSeconds 指标为每秒转换的音频秒数，allocatedMbPerMinute 为每转换一分钟音频的堆分配量（MB），
+ * -prof gc 输出的 gc.alloc.rate.norm 为单次转换的堆分配字节数。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterServiceBenchmark {
+
+    @Param
+    public AudioFormat format;
+
+    @Benchmark
+    public long convertFile(MediaState media, MediaState.AudioThroughput throughput,
+                            MediaState.AllocationPerMinute allocation) {
+        ConversionOptions options = ConversionOptions.builder()
+                .format(format)
+                .bitrate(format.getDefaultBitrate())
+                .build();
+        try (ConversionResult result = media.converterService.convertFile(media.videoFile, options)) {
+            throughput.audioSeconds += media.durationSeconds;
+            allocation.converted(media.durationSeconds);
+            return result.getSize();
+        }
+    }
+}
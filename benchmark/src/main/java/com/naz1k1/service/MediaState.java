@@ -0,0 +1,115 @@
+package com.naz1k1.service;
+
+import com.naz1k1.config.ConverterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准测试共享状态：按时长生成的输入视频和关闭缓存的 ConverterService
+ */
+@State(Scope.Benchmark)
+public class MediaState {
+
+    /** 输入视频时长（秒） */
+    @Param({"10", "60", "300"})
+    public int durationSeconds;
+
+    /** 编解码线程总数，单个转换独占全部额度 */
+    @Param({"1"})
+    public int codecThreads;
+
+    public Path videoFile;
+    public ConverterService converterService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        videoFile = SyntheticMedia.generate(durationSeconds);
+
+        ConverterProperties properties = new ConverterProperties();
+        // 缓存命中会绕过整个转换流程，基准测试中必须关闭
+        properties.getCache().setEnabled(false);
+        properties.getThreads().setCores(codecThreads);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConversionCache cache = new ConversionCache(properties, registry);
+        converterService = new ConverterService(
+                cache, new ConversionMetrics(registry), new CodecThreadBudget(properties, registry), properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        converterService.shutdown();
+        Files.deleteIfExists(videoFile);
+    }
+
+    /**
+     * 每秒处理的音频时长，JMH 按测量时间归一化后即为"音频秒数/秒"
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class AudioThroughput {
+        public double audioSeconds;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            audioSeconds = 0;
+        }
+    }
+
+    /**
+     * 每转换一分钟音频的堆分配量（MB）
+     * <p>
+     * 统计所有线程的分配字节数，包含编码线程池和分段线程池中的分配，
+     * 与只统计基准线程的 gc.alloc.rate.norm 互为补充。
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class AllocationPerMinute {
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private long baselineBytes;
+        private double audioMinutes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            baselineBytes = allocatedBytes();
+            audioMinutes = 0;
+        }
+
+        /**
+         * 记录一次转换的音频时长
+         *
+         * @param seconds 音频时长（秒）
+         */
+        public void converted(int seconds) {
+            audioMinutes += seconds / 60.0;
+        }
+
+        public double allocatedMbPerMinute() {
+            if (audioMinutes == 0) {
+                return 0;
+            }
+            return (allocatedBytes() - baselineBytes) / (1024.0 * 1024.0) / audioMinutes;
+        }
+
+        private long allocatedBytes() {
+            long total = 0;
+            for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                if (bytes > 0) {
+                    total += bytes;
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.naz1k1.service;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 在本地生成基准测试用的视频文件：MPEG-4 视频加 AAC 正弦波音轨
+ */
+public class SyntheticMedia {
+    public static final int SAMPLE_RATE = 44100;
+    public static final int CHANNELS = 2;
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+    private static final int FRAME_RATE = 25;
+
+    private SyntheticMedia() {
+    }
+
+    /**
+     * 生成指定时长的测试视频
+     *
+     * @param seconds 时长（秒）
+     * @return Path 临时视频文件路径，调用方负责删除
+     * @throws IOException 当写入失败时抛出
+     */
+    public static Path generate(int seconds) throws IOException {
+        Path file = Files.createTempFile("bench-" + seconds + "s-", ".mp4");
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file.toFile(), WIDTH, HEIGHT, CHANNELS);
+        recorder.setFormat("mp4");
+        recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+        recorder.setVideoBitrate(2_000_000);
+        recorder.setFrameRate(FRAME_RATE);
+        recorder.setAudioCodec(avcodec.AV_CODEC_ID_AAC);
+        recorder.setAudioBitrate(128000);
+        recorder.setSampleRate(SAMPLE_RATE);
+
+        Frame image = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3);
+        ByteBuffer pixels = (ByteBuffer) image.image[0];
+        int samplesPerFrame = SAMPLE_RATE / FRAME_RATE;
+        ShortBuffer samples = ShortBuffer.allocate(samplesPerFrame * CHANNELS);
+        long sampleIndex = 0;
+
+        try {
+            recorder.start();
+            for (int i = 0; i < seconds * FRAME_RATE; i++) {
+                // 每帧改变画面内容，避免编码器把视频压缩成几乎为零的数据量
+                for (int p = 0; p < pixels.capacity(); p += 97) {
+                    pixels.put(p, (byte) (p + i));
+                }
+                recorder.record(image);
+
+                samples.clear();
+                for (int s = 0; s < samplesPerFrame; s++, sampleIndex++) {
+                    short value = (short) (8000 * Math.sin(2 * Math.PI * 440 * sampleIndex / SAMPLE_RATE));
+                    samples.put(value).put(value);
+                }
+                samples.flip();
+                recorder.recordSamples(SAMPLE_RATE, CHANNELS, samples);
+            }
+            recorder.stop();
+        } finally {
+            recorder.release();
+        }
+        return file;
+    }
+}